@@ -47,18 +47,24 @@ public class CacheController implements Controller {
             cacheName = "depsCache";
         }
         cacheName = cacheName.toLowerCase();
-        if (cacheName.equals("altstringscache")) {
+        if (cacheName.equals("actionresultcache")) {
+            return cachingService.getActionResultCache();
+        } else if (cacheName.equals("altstringscache")) {
             return cachingService.getAltStringsCache();
         } else if (cacheName.equals("clientlibraryoutputcache")) {
             return cachingService.getClientLibraryOutputCache();
         } else if (cacheName.equals("defdescriptorbynamecache")) {
             return cachingService.getDefDescriptorByNameCache();
+        } else if (cacheName.equals("definitionfragmentcache")) {
+            return cachingService.getDefinitionFragmentCache();
         } else if (cacheName.equals("defscache")) {
             return cachingService.getDefsCache();
         } else if (cacheName.equals("depscache")) {
             return cachingService.getDepsCache();
         } else if (cacheName.equals("descriptorfiltercache")) {
             return cachingService.getDescriptorFilterCache();
+        } else if (cacheName.equals("encodedcontentcache")) {
+            return cachingService.getEncodedContentCache();
         } else if (cacheName.equals("existscache")) {
             return cachingService.getExistsCache();
         } else if (cacheName.equals("stringscache")) {
@@ -15,13 +15,16 @@
  */
 package org.auraframework.impl;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -30,20 +33,28 @@ import org.apache.log4j.Logger;
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.builder.CacheBuilder;
 import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheEngine;
 import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.ComponentDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.Definition;
 import org.auraframework.impl.cache.CacheImpl;
+import org.auraframework.impl.cache.DependencyIndex;
+import org.auraframework.impl.cache.EncodedContentWeigher;
+import org.auraframework.impl.cache.StringWeigher;
 import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.service.CachingService;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.text.HashTree;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class CachingServiceImpl implements CachingService {
     private static final long serialVersionUID = -3311707270226573084L;
@@ -54,16 +65,62 @@ public class CachingServiceImpl implements CachingService {
     /** Default size of dependency caches, in number of entries */
     private final static int DEPENDENCY_CACHE_SIZE = 4 * 1024;
 
+    /** Default size of the failed compile cache, in number of entries */
+    private final static int FAILED_DEPENDENCY_CACHE_SIZE = 1024;
+
+    /** Default time a failed compile is remembered, in seconds */
+    private final static int FAILED_DEPENDENCY_CACHE_TTL_SECONDS = 60;
+
+    /** Default size of the uid hash tree cache, in number of entries */
+    private final static int UID_TREE_CACHE_SIZE = 1024;
+
     /** Default size of descriptor filter caches, in number of entries */
     private final static int FILTER_CACHE_SIZE = 4608;
 
-    /** Default size of string caches, in number of entries */
+    /** Expected number of entries in string caches, used as an initial capacity hint */
     private final static int STRING_CACHE_SIZE = 100;
     private final static int ALT_STRINGS_CACHE_SIZE = 100;
 
+    /** Default size of string caches, in megabytes of cached strings */
+    private final static int STRING_CACHE_WEIGHT_MB = 64;
+    private final static int ALT_STRINGS_CACHE_WEIGHT_MB = 256;
+
+    /** Expected number of entries in the encoded content cache, used as an initial capacity hint */
+    private final static int ENCODED_CONTENT_CACHE_SIZE = 100;
+
+    /** Default size of the encoded content cache, in megabytes of all encodings */
+    private final static int ENCODED_CONTENT_CACHE_WEIGHT_MB = 192;
+
+    /** Default size of the definition fragment cache, in megabytes of cached strings */
+    private final static int DEFINITION_FRAGMENT_CACHE_WEIGHT_MB = 64;
+
+    /** Expected number of entries in the definition fragment cache, used as an initial capacity hint */
+    private final static int DEFINITION_FRAGMENT_CACHE_SIZE = 8 * 1024;
+
+    /** Default size of the action result cache, in megabytes of cached strings */
+    private final static int ACTION_RESULT_CACHE_WEIGHT_MB = 32;
+
+    /** Expected number of entries in the action result cache, used as an initial capacity hint */
+    private final static int ACTION_RESULT_CACHE_SIZE = 1024;
+
     /** Default size of client lib caches, in number of entries */
     private final static int CLIENT_LIB_CACHE_SIZE = 30;
 
+    /** Default size of secondary storage for each cache that uses it, in megabytes */
+    private final static int SECONDARY_STORAGE_SIZE_MB = 1024;
+
+    /**
+     * Default engine of the definition and dependency caches. These are read far more often than
+     * they are written, and losing them to soft reference collection forces a recompile storm.
+     */
+    private final static CacheEngine DEFINITION_CACHE_ENGINE = CacheEngine.FREQUENCY;
+
+    /** Default engine of the string caches, which are bounded by weight so they can hold values strongly */
+    private final static CacheEngine STRING_CACHE_ENGINE = CacheEngine.FREQUENCY;
+
+    /** Default engine of the client lib cache, whose values are too large to hold strongly by count */
+    private final static CacheEngine CLIENT_LIB_CACHE_ENGINE = CacheEngine.LRU;
+
     @Configuration
     public static class BeanConfiguration {
         private static final CachingServiceImpl INSTANCE  = new CachingServiceImpl();
@@ -77,8 +134,15 @@ public class CachingServiceImpl implements CachingService {
     
     private LoggingAdapter loggingAdapter;
     
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
-    private final WriteLock wLock = rwLock.writeLock();
+    /**
+     * Serializes invalidations. Readers never take it, they check the epoch instead.
+     */
+    private final ReentrantLock wLock = new ReentrantLock();
+
+    /**
+     * The cache epoch, bumped to odd when an invalidation starts and to even when it ends.
+     */
+    private final AtomicLong epoch = new AtomicLong();
 
     @Override
     public <K, T> CacheBuilder<K, T> getCacheBuilder() {
@@ -89,10 +153,16 @@ public class CachingServiceImpl implements CachingService {
     private Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache;
     private Cache<String, String> stringsCache;
     private Cache<String, String> altStringsCache;
+    private Cache<String, EncodedContent> encodedContentCache;
+    private Cache<String, String> definitionFragmentCache;
+    private Cache<String, String> actionResultCache;
     private Cache<String, Set<DefDescriptor<?>>> descriptorFilterCache;
     private Cache<String, DependencyEntry> depsCache;
+    private Cache<String, DependencyEntry> failedDepsCache;
+    private Cache<String, HashTree<DefDescriptor<?>>> uidTreeCache;
     private Cache<String, String> clientLibraryOutputCache;
     private Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> defDescriptorByNameCache;
+    private final DependencyIndex dependencyIndex = new DependencyIndex();
 
     private static final Logger logger = Logger.getLogger(CachingServiceImpl.class);
 
@@ -101,6 +171,7 @@ public class CachingServiceImpl implements CachingService {
         int size = getCacheSize("aura.cache.existsCacheSize", DEFINITION_CACHE_SIZE);
         existsCache = this.<DefDescriptor<?>, Boolean> getCacheBuilder()
                 .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.existsCacheEngine", DEFINITION_CACHE_ENGINE))
                 .setLoggingAdapter(loggingAdapter)
                 .setMaximumSize(size)
                 .setRecordStats(true)
@@ -111,34 +182,78 @@ public class CachingServiceImpl implements CachingService {
         defsCache = this
                 .<DefDescriptor<?>, Optional<? extends Definition>> getCacheBuilder()
                 .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.defsCacheEngine", DEFINITION_CACHE_ENGINE))
                 .setLoggingAdapter(loggingAdapter)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("defsCache")
                 .setSoftValues(true).build();
 
-        size = getCacheSize("aura.cache.stringsCacheSize", STRING_CACHE_SIZE);
+        size = getWeighedCacheSize("aura.cache.stringsCacheSize", "aura.cache.stringsCacheSizeMB", STRING_CACHE_SIZE);
         stringsCache = this.<String, String> getCacheBuilder()
                 .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.stringsCacheEngine", STRING_CACHE_ENGINE))
                 .setLoggingAdapter(loggingAdapter)
-                .setMaximumSize(size)
+                .setWeigher(StringWeigher.INSTANCE)
+                .setMaximumWeight(getCacheWeight("aura.cache.stringsCacheSizeMB", STRING_CACHE_WEIGHT_MB))
                 .setRecordStats(true)
                 .setName("stringsCache")
                 .setSoftValues(true).build();
 
-        size = getCacheSize("aura.cache.altStringsCacheSize", ALT_STRINGS_CACHE_SIZE);
+        size = getWeighedCacheSize("aura.cache.altStringsCacheSize", "aura.cache.altStringsCacheSizeMB",
+                ALT_STRINGS_CACHE_SIZE);
         altStringsCache = this.<String, String> getCacheBuilder()
                 .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.altStringsCacheEngine", STRING_CACHE_ENGINE))
                 .setLoggingAdapter(loggingAdapter)
-                .setMaximumSize(size)
+                .setWeigher(StringWeigher.INSTANCE)
+                .setMaximumWeight(getCacheWeight("aura.cache.altStringsCacheSizeMB", ALT_STRINGS_CACHE_WEIGHT_MB))
+                .setUseSecondaryStorage(useSecondaryStorage())
+                .setSecondaryStorageLocation(getSecondaryStorageLocation("altStringsCache"))
+                .setSecondaryStorageMaximumSize(getCacheWeight("aura.cache.secondaryStorageSizeMB", SECONDARY_STORAGE_SIZE_MB))
                 .setRecordStats(true)
                 .setName("altStringsCache")
                 .setSoftValues(true).build();
 
+        size = getCacheSize("aura.cache.encodedContentCacheSize", ENCODED_CONTENT_CACHE_SIZE);
+        encodedContentCache = this.<String, EncodedContent> getCacheBuilder()
+                .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.encodedContentCacheEngine", STRING_CACHE_ENGINE))
+                .setLoggingAdapter(loggingAdapter)
+                .setWeigher(EncodedContentWeigher.INSTANCE)
+                .setMaximumWeight(getCacheWeight("aura.cache.encodedContentCacheSizeMB", ENCODED_CONTENT_CACHE_WEIGHT_MB))
+                .setRecordStats(true)
+                .setName("encodedContentCache")
+                .setSoftValues(true).build();
+
+        size = getCacheSize("aura.cache.definitionFragmentCacheSize", DEFINITION_FRAGMENT_CACHE_SIZE);
+        definitionFragmentCache = this.<String, String> getCacheBuilder()
+                .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.definitionFragmentCacheEngine", STRING_CACHE_ENGINE))
+                .setLoggingAdapter(loggingAdapter)
+                .setWeigher(StringWeigher.INSTANCE)
+                .setMaximumWeight(getCacheWeight("aura.cache.definitionFragmentCacheSizeMB",
+                        DEFINITION_FRAGMENT_CACHE_WEIGHT_MB))
+                .setRecordStats(true)
+                .setName("definitionFragmentCache")
+                .setSoftValues(true).build();
+
+        size = getCacheSize("aura.cache.actionResultCacheSize", ACTION_RESULT_CACHE_SIZE);
+        actionResultCache = this.<String, String> getCacheBuilder()
+                .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.actionResultCacheEngine", STRING_CACHE_ENGINE))
+                .setLoggingAdapter(loggingAdapter)
+                .setWeigher(StringWeigher.INSTANCE)
+                .setMaximumWeight(getCacheWeight("aura.cache.actionResultCacheSizeMB", ACTION_RESULT_CACHE_WEIGHT_MB))
+                .setRecordStats(true)
+                .setName("actionResultCache")
+                .setSoftValues(true).build();
+
         size = getCacheSize("aura.cache.filterCacheSize", FILTER_CACHE_SIZE);
         descriptorFilterCache = this
                 .<String, Set<DefDescriptor<?>>> getCacheBuilder()
                 .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.filterCacheEngine", DEFINITION_CACHE_ENGINE))
                 .setLoggingAdapter(loggingAdapter)
                 .setMaximumSize(size)
                 .setRecordStats(true)
@@ -148,18 +263,46 @@ public class CachingServiceImpl implements CachingService {
         size = getCacheSize("aura.cache.depsCacheSize", DEPENDENCY_CACHE_SIZE);
         depsCache = this.<String, DependencyEntry> getCacheBuilder()
                 .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.depsCacheEngine", DEFINITION_CACHE_ENGINE))
                 .setLoggingAdapter(loggingAdapter)
                 .setMaximumSize(size)
                 .setRecordStats(true)
                 .setName("depsCache")
+                .setEvictionListener(this::onDependencyEntryEvicted)
+                .setSoftValues(true).build();
+
+        size = getCacheSize("aura.cache.failedDepsCacheSize", FAILED_DEPENDENCY_CACHE_SIZE);
+        failedDepsCache = this.<String, DependencyEntry> getCacheBuilder()
+                .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.failedDepsCacheEngine", DEFINITION_CACHE_ENGINE))
+                .setLoggingAdapter(loggingAdapter)
+                .setMaximumSize(size)
+                .setExpireAfterWrite(getIntProperty("aura.cache.failedDepsCacheTTLSeconds",
+                        "aura.cache.defaultCacheTTLSeconds", FAILED_DEPENDENCY_CACHE_TTL_SECONDS), TimeUnit.SECONDS)
+                .setRecordStats(true)
+                .setName("failedDepsCache")
+                .setSoftValues(false).build();
+
+        size = getCacheSize("aura.cache.uidTreeCacheSize", UID_TREE_CACHE_SIZE);
+        uidTreeCache = this.<String, HashTree<DefDescriptor<?>>> getCacheBuilder()
+                .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.uidTreeCacheEngine", DEFINITION_CACHE_ENGINE))
+                .setLoggingAdapter(loggingAdapter)
+                .setMaximumSize(size)
+                .setRecordStats(true)
+                .setName("uidTreeCache")
                 .setSoftValues(true).build();
 
         size = getCacheSize("aura.cache.clientLibraryOutputCacheSize", CLIENT_LIB_CACHE_SIZE);
         clientLibraryOutputCache = this.<String, String> getCacheBuilder()
                 .setInitialSize(size)
+                .setEngine(getCacheEngine("aura.cache.clientLibraryOutputCacheEngine", CLIENT_LIB_CACHE_ENGINE))
                 .setLoggingAdapter(loggingAdapter)
                 .setMaximumSize(size)
                 .setSoftValues(true)
+                .setUseSecondaryStorage(useSecondaryStorage())
+                .setSecondaryStorageLocation(getSecondaryStorageLocation("clientLibraryOutputCache"))
+                .setSecondaryStorageMaximumSize(getCacheWeight("aura.cache.secondaryStorageSizeMB", SECONDARY_STORAGE_SIZE_MB))
                 .setName("clientLibraryOutputCache")
                 .setRecordStats(true).build();
 
@@ -167,6 +310,7 @@ public class CachingServiceImpl implements CachingService {
         defDescriptorByNameCache =
                 this.<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getCacheBuilder()
                         .setInitialSize(size)
+                        .setEngine(getCacheEngine("aura.cache.defDescByNameCacheEngine", DEFINITION_CACHE_ENGINE))
                         .setLoggingAdapter(loggingAdapter)
                         .setMaximumSize(size)
                         .setConcurrencyLevel(20)
@@ -194,6 +338,21 @@ public class CachingServiceImpl implements CachingService {
         return altStringsCache;
     }
 
+    @Override
+    public final Cache<String, EncodedContent> getEncodedContentCache() {
+        return encodedContentCache;
+    }
+
+    @Override
+    public final Cache<String, String> getDefinitionFragmentCache() {
+        return definitionFragmentCache;
+    }
+
+    @Override
+    public final Cache<String, String> getActionResultCache() {
+        return actionResultCache;
+    }
+
     @Override
     public final Cache<String, Set<DefDescriptor<?>>> getDescriptorFilterCache() {
         return descriptorFilterCache;
@@ -204,6 +363,16 @@ public class CachingServiceImpl implements CachingService {
         return depsCache;
     }
 
+    @Override
+    public final Cache<String, DependencyEntry> getFailedDepsCache() {
+        return failedDepsCache;
+    }
+
+    @Override
+    public final Cache<String, HashTree<DefDescriptor<?>>> getUidTreeCache() {
+        return uidTreeCache;
+    }
+
     @Override
     public final Cache<String, String> getClientLibraryOutputCache() {
         return clientLibraryOutputCache;
@@ -215,24 +384,72 @@ public class CachingServiceImpl implements CachingService {
     }
 
     @Override
-    public Lock getReadLock() {
-        return rwLock.readLock();
+    public Lock getWriteLock() {
+        return wLock;
     }
 
     @Override
-    public Lock getWriteLock() {
-        return rwLock.writeLock();
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Put a value if the epoch is unchanged.
+     *
+     * The epoch is checked again after the put, as an invalidation may have started in between. In that case the
+     * invalidation may already have passed over the key, so the value we just put is removed again.
+     */
+    @Override
+    public <K, T> boolean putIfCurrent(Cache<K, T> cache, K key, T value, long expected) {
+        if (!isCurrent(expected)) {
+            return false;
+        }
+        cache.put(key, value);
+        if (!isCurrent(expected)) {
+            cache.invalidate(key);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean putDependencyEntry(String key, DependencyEntry de, long expected) {
+        if (!isCurrent(expected)) {
+            return false;
+        }
+        depsCache.put(key, de);
+        dependencyIndex.add(key, de);
+        if (!isCurrent(expected)) {
+            depsCache.invalidate(key);
+            dependencyIndex.remove(key, de);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forget an entry the deps cache let go of, unless it has been put back since.
+     */
+    private void onDependencyEntryEvicted(String key, DependencyEntry de) {
+        if (key != null && depsCache.getIfPresent(key) == null) {
+            dependencyIndex.remove(key, de);
+        }
+    }
+
+    private boolean isCurrent(long expected) {
+        return (expected & 1) == 0 && epoch.get() == expected;
     }
 
     /**
      * The driver for cache-consistency management in response to source changes. MDR drives the process, will notify
-     * all registered listeners while write blocking, then invalidate it's own caches. If this routine can't acquire the
-     * lock , it will log it as an non-fatal error, as it only results in staleness.
+     * all registered listeners while holding the invalidation lock, then invalidate it's own caches. Readers are not
+     * blocked, instead the epoch is bumped around the invalidation so that nothing computed from the old sources is
+     * cached afterwards. If this routine can't acquire the lock , it will log it as an non-fatal error, as it only
+     * results in staleness.
      *
      * @param listeners - collections of listeners to notify of source changes
-     * @param source - DefDescriptor that changed - for granular cache clear (currently not considered here, but other
-     *            listeners may make use of it)
-     * @param event - what type of event triggered the change
+     * @param source - DefDescriptor that changed - for granular cache clear, null to clear everything
+     * @param event - what type of event triggered the change, null if unknown
      */
     @Override
     public void notifyDependentSourceChange(
@@ -254,7 +471,8 @@ public class CachingServiceImpl implements CachingService {
             }
 
             // successfully acquired the lock, start clearing caches
-            invalidateSourceRelatedCaches(source);
+            epoch.incrementAndGet();
+            invalidateSourceRelatedCaches(source, event);
 
             // notify provided listeners, presumably to clear caches
             for (WeakReference<SourceListener> i : listeners) {
@@ -267,40 +485,110 @@ public class CachingServiceImpl implements CachingService {
         } catch (InterruptedException e) {
         } finally {
             if (haveLock) {
+                if ((epoch.get() & 1) != 0) {
+                    epoch.incrementAndGet();
+                }
                 wLock.unlock();
             }
         }
     }
 
-    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor) {
+    /**
+     * Invalidate the caches affected by a source change.
+     *
+     * Definitions are invalidated for the changed descriptor and its markup relatives. Derived caches (dependency
+     * entries and the strings built from them) are invalidated through the dependency index, so only entries that
+     * depend on the change are dropped. A created source may match a wildcard dependency that no entry records, so
+     * creation, like an unknown event or descriptor, still empties the derived caches.
+     */
+    private void invalidateSourceRelatedCaches(DefDescriptor<?> descriptor, SourceListener.SourceMonitorEvent event) {
+        Set<DefDescriptor<?>> changed = Sets.newHashSet();
+
+        // failures do not record what they depend on, any change may fix them.
+        failedDepsCache.invalidateAll();
+        // fragments are keyed by their own hash, but also serialize what they inherit.
+        definitionFragmentCache.invalidateAll();
+        // action results do not record what they depend on either.
+        actionResultCache.invalidateAll();
+
+        if (descriptor == null || !addChangedDescriptors(descriptor, changed)) {
+            defsCache.invalidateAll();
+            existsCache.invalidateAll();
+            invalidateDerivedCaches();
+            return;
+        }
+
+        for (DefDescriptor<?> dd : changed) {
+            defsCache.invalidate(dd);
+            existsCache.invalidate(dd);
+        }
+
+        if (event == null || event == SourceListener.SourceMonitorEvent.CREATED) {
+            invalidateDerivedCaches();
+            return;
+        }
+
+        if (event == SourceListener.SourceMonitorEvent.DELETED) {
+            descriptorFilterCache.invalidateAll();
+        }
+        Map<String, Set<String>> stale = dependencyIndex.remove(changed);
+        if (!stale.isEmpty()) {
+            for (Set<String> keys : stale.values()) {
+                depsCache.invalidate(keys);
+            }
+            invalidateByUid(stringsCache, stale.keySet());
+            invalidateByUid(altStringsCache, stale.keySet());
+            invalidateByUid(encodedContentCache, stale.keySet());
+        }
+        // keys in this cache do not carry a uid, so there is nothing finer to go on.
+        clientLibraryOutputCache.invalidateAll();
+    }
+
+    /**
+     * Add a changed descriptor and the descriptors whose definitions it affects.
+     *
+     * @return false if the change cannot be narrowed to a set of descriptors.
+     */
+    private boolean addChangedDescriptors(DefDescriptor<?> descriptor, Set<DefDescriptor<?>> changed) {
+        changed.add(descriptor);
+        changed.add(new DefDescriptorImpl<>(descriptor, ComponentDef.class, "markup"));
+        changed.add(new DefDescriptorImpl<>(descriptor, ApplicationDef.class, "markup"));
+
+        switch (descriptor.getDefType()) {
+        case INCLUDE:
+            DefDescriptor<?> bundle = descriptor.getBundle();
+            return bundle != null && addChangedDescriptors(bundle, changed);
+        default:
+            return true;
+        }
+    }
 
+    private void invalidateDerivedCaches() {
         depsCache.invalidateAll();
+        dependencyIndex.clear();
         descriptorFilterCache.invalidateAll();
         stringsCache.invalidateAll();
         altStringsCache.invalidateAll();
+        encodedContentCache.invalidateAll();
         clientLibraryOutputCache.invalidateAll();
+    }
 
-        if (descriptor == null) {
-            defsCache.invalidateAll();
-            existsCache.invalidateAll();
-        } else {
-            DefDescriptor<ComponentDef> cdesc = new DefDescriptorImpl<>(descriptor, ComponentDef.class, "markup");
-            DefDescriptor<ApplicationDef> adesc = new DefDescriptorImpl<>(descriptor, ApplicationDef.class, "markup");
-
-            defsCache.invalidate(descriptor);
-            existsCache.invalidate(descriptor);
-            defsCache.invalidate(cdesc);
-            existsCache.invalidate(cdesc);
-            defsCache.invalidate(adesc);
-            existsCache.invalidate(adesc);
-
-            switch (descriptor.getDefType()) {
-            case INCLUDE:
-                invalidateSourceRelatedCaches(descriptor.getBundle());
-                break;
-            default:
+    /**
+     * Invalidate string cache entries built for any of the given uids.
+     *
+     * String cache keys are of the form uid@descriptor@key.
+     */
+    private void invalidateByUid(Cache<String, ?> cache, Set<String> uids) {
+        List<String> keys = Lists.newArrayList();
+        for (String key : cache.getKeySet()) {
+            int index = key.indexOf('@');
+            if (index > 0 && uids.contains(key.substring(0, index))) {
+                keys.add(key);
             }
         }
+        if (!keys.isEmpty()) {
+            cache.invalidate(keys);
+        }
     }
 
     @Inject
@@ -313,9 +601,33 @@ public class CachingServiceImpl implements CachingService {
      * with system properties.
      */
     private int getCacheSize(String propName, int defaultSize) {
+        return getIntProperty(propName, "aura.cache.defaultCacheSize", defaultSize);
+    }
+
+    /**
+     * Computes the initial size of a cache that used to be bounded by a number of entries, and is now bounded by
+     * weight. Setting the old property no longer bounds the cache, so say so rather than silently ignore the bound.
+     */
+    private int getWeighedCacheSize(String propName, String weightPropName, int defaultSize) {
+        if (System.getProperty(propName) != null) {
+            logger.warn(propName + " is deprecated as a bound, it now only sets the initial size of the cache. Use "
+                    + weightPropName + " to bound the cache, in megabytes.");
+        }
+        return getCacheSize(propName, defaultSize);
+    }
+
+    /**
+     * Computes a maximum weight, in bytes, for a given weighed cache.  The defaults are in
+     * megabytes, and can be overridden with system properties, also in megabytes.
+     */
+    private long getCacheWeight(String propName, int defaultMegabytes) {
+        return getIntProperty(propName, "aura.cache.defaultCacheSizeMB", defaultMegabytes) * 1024L * 1024L;
+    }
+
+    private int getIntProperty(String propName, String fallbackPropName, int defaultValue) {
         String prop = System.getProperty(propName);
         if (prop == null) {
-            prop = System.getProperty("aura.cache.defaultCacheSize");
+            prop = System.getProperty(fallbackPropName);
         }
         if (prop != null && !prop.isEmpty()) {
             try {
@@ -324,6 +636,46 @@ public class CachingServiceImpl implements CachingService {
                 // ne'ermind, use the default
             }
         }
-        return defaultSize;
+        return defaultValue;
+    }
+
+    /**
+     * Whether the large string caches should spill to memory-mapped secondary storage.
+     * Off by default, and can be turned on with a system property.
+     */
+    private boolean useSecondaryStorage() {
+        return Boolean.getBoolean("aura.cache.useSecondaryStorage");
+    }
+
+    /**
+     * The secondary storage directory for a given cache, under the directory named by a system
+     * property. Null, so that the cache uses a temporary directory that is deleted on exit, if that
+     * is not set.
+     */
+    private File getSecondaryStorageLocation(String cacheName) {
+        String prop = System.getProperty("aura.cache.secondaryStorageDir");
+        if (prop == null || prop.isEmpty()) {
+            return null;
+        }
+        return new File(prop, cacheName);
+    }
+
+    /**
+     * Computes the engine for a given cache.  The defaults can be overridden
+     * with system properties.
+     */
+    private CacheEngine getCacheEngine(String propName, CacheEngine defaultEngine) {
+        String prop = System.getProperty(propName);
+        if (prop == null) {
+            prop = System.getProperty("aura.cache.defaultCacheEngine");
+        }
+        if (prop != null && !prop.isEmpty()) {
+            try {
+                return CacheEngine.valueOf(prop.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // ne'ermind, use the default
+            }
+        }
+        return defaultEngine;
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auraframework.def.DefDescriptor;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Walks the dependency tree of a descriptor on a few worker threads, so that independent subtrees are parsed
+ * concurrently ahead of a compile.
+ *
+ * Each worker sets itself up once per walk, with {@link Fetcher#start()}, and then takes descriptors off a shared
+ * queue until the whole tree has been seen. A walk started from a worker, as a nested compile would, does nothing:
+ * the worker may be holding a lock that the other workers are waiting on.
+ */
+class DefinitionPrefetcher {
+    /**
+     * How long an idle worker waits for more of the tree before checking whether the walk is over.
+     */
+    private static final long POLL_MILLIS = 5;
+
+    /**
+     * What a walk does on each worker.
+     */
+    interface Fetcher {
+        /**
+         * Set up the current worker, before it fetches anything.
+         */
+        void start();
+
+        /**
+         * Fetch a descriptor.
+         *
+         * @return the dependencies to walk next, empty if there are none or the fetch failed.
+         */
+        Collection<DefDescriptor<?>> fetch(DefDescriptor<?> descriptor);
+
+        /**
+         * Tear down the current worker, after it has fetched all it will.
+         */
+        void end();
+    }
+
+    private final int parallelism;
+
+    private final ThreadLocal<Boolean> worker = new ThreadLocal<>();
+
+    private volatile ThreadPoolExecutor executor;
+
+    /**
+     * @param parallelism the number of workers, 1 or less to never walk.
+     */
+    DefinitionPrefetcher(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return true if walks are done at all.
+     */
+    boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    /**
+     * @return true if the current thread is a worker in a walk.
+     */
+    boolean isWorker() {
+        return worker.get() != null;
+    }
+
+    /**
+     * Walk the tree of a descriptor, returning once every worker is done.
+     *
+     * @param descriptor the root of the tree.
+     * @param fetcher what to do on each worker.
+     */
+    void prefetch(DefDescriptor<?> descriptor, Fetcher fetcher) {
+        if (!isEnabled() || isWorker()) {
+            return;
+        }
+        Walk walk = new Walk(fetcher);
+        walk.offer(descriptor);
+        List<Future<?>> workers = Lists.newArrayListWithCapacity(parallelism);
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                workers.add(getExecutor().submit(() -> work(walk)));
+            }
+        } catch (RejectedExecutionException ree) {
+            // shutting down, those that did start will finish the walk.
+        }
+        for (Future<?> future : workers) {
+            try {
+                future.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ee) {
+                // a worker's failure only stops it, the compile will hit it again and report it.
+            }
+        }
+    }
+
+    private void work(Walk walk) {
+        worker.set(Boolean.TRUE);
+        try {
+            walk.fetcher.start();
+            try {
+                while (true) {
+                    DefDescriptor<?> descriptor = walk.queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (descriptor == null) {
+                        if (walk.pending.get() == 0) {
+                            return;
+                        }
+                        continue;
+                    }
+                    try {
+                        for (DefDescriptor<?> dependency : walk.fetcher.fetch(descriptor)) {
+                            walk.offer(dependency);
+                        }
+                    } catch (RuntimeException re) {
+                        // as for a failed fetch, the walk just stops here.
+                    } finally {
+                        walk.pending.decrementAndGet();
+                    }
+                }
+            } finally {
+                walk.fetcher.end();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            worker.remove();
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor result = executor;
+        if (result == null) {
+            synchronized (this) {
+                result = executor;
+                if (result == null) {
+                    AtomicInteger count = new AtomicInteger();
+                    result = new ThreadPoolExecutor(parallelism, parallelism, 10, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), r -> {
+                                Thread thread = new Thread(r, "aura-compile-prefetch-" + count.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    result.allowCoreThreadTimeOut(true);
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The state of one walk, shared by its workers.
+     */
+    private static class Walk {
+        private final Fetcher fetcher;
+        private final BlockingQueue<DefDescriptor<?>> queue = new LinkedBlockingQueue<>();
+        private final ConcurrentMap<DefDescriptor<?>, Boolean> seen = new ConcurrentHashMap<>();
+
+        /**
+         * The descriptors queued or being fetched. A descriptor is counted before it is queued, and uncounted only
+         * after its dependencies are, so the walk is over when this reaches zero.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private Walk(Fetcher fetcher) {
+            this.fetcher = fetcher;
+        }
+
+        private void offer(DefDescriptor<?> descriptor) {
+            if (seen.putIfAbsent(descriptor, Boolean.TRUE) == null) {
+                pending.incrementAndGet();
+                queue.add(descriptor);
+            }
+        }
+    }
+}
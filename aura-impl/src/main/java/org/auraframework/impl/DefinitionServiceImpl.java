@@ -15,11 +15,15 @@
  */
 package org.auraframework.impl;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -43,6 +47,7 @@ import org.auraframework.def.ParentedDef;
 import org.auraframework.def.RootDefinition;
 import org.auraframework.def.TypeDef;
 import org.auraframework.impl.controller.AuraStaticControllerDefRegistry;
+import org.auraframework.impl.system.CompilingDefRegistry;
 import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.impl.system.SubDefDescriptorImpl;
 import org.auraframework.impl.type.AuraStaticTypeDefRegistry;
@@ -65,7 +70,7 @@ import org.auraframework.throwable.quickfix.DefinitionNotFoundException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.text.GlobMatcher;
-import org.auraframework.util.text.Hash;
+import org.auraframework.util.text.HashTree;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
@@ -89,6 +94,23 @@ public class DefinitionServiceImpl implements DefinitionService {
     private LoggingService loggingService;
     
     private ConfigAdapter configAdapter;
+
+    /**
+     * Parses definitions ahead of a compile, on the number of threads given by the aura.compile.parallelism system
+     * property. Off by default, 1 or less parses on the calling thread only.
+     */
+    private final DefinitionPrefetcher prefetcher = new DefinitionPrefetcher(getCompileParallelism());
+
+    /**
+     * Compiles in progress, by non-uid global key, so that concurrent compiles of a descriptor wait for one another.
+     */
+    private final ConcurrentMap<String, CompileFlight> compileFlights = new ConcurrentHashMap<>();
+
+    private final AtomicLong compileCount = new AtomicLong();
+
+    private final AtomicLong coalescedCompileCount = new AtomicLong();
+
+    private final AtomicLong failedCompileHitCount = new AtomicLong();
     
     @Override
     public <T extends Definition> DefDescriptor<T> getDefDescriptor(String qualifiedName, Class<T> defClass) {
@@ -218,37 +240,33 @@ public class DefinitionServiceImpl implements DefinitionService {
             }
         } else {
             // Case 3: Have to find the def.
-            Lock rLock = cachingService.getReadLock();
-            rLock.lock();
-            try {
-                DependencyEntry de = getDE(null, descriptor);
-                if (de == null) {
-                    de = context.findLocalDependencyEntry(descriptor);
-                }
-                if (de == null) {
-                    compileDE(descriptor);
+            // No lock is taken here. Anything compiled is only published to the global caches if no source
+            // changed while compiling, see CachingService.putIfCurrent.
+            DependencyEntry de = getDE(null, descriptor);
+            if (de == null) {
+                de = context.findLocalDependencyEntry(descriptor);
+            }
+            if (de == null) {
+                compileDE(descriptor);
 
-                    Optional<T> optionalDef = context.getLocalDef(descriptor);
-                    def = (optionalDef != null)? context.getLocalDef(descriptor).orNull() : null;
-                } else {
-                    //
-                    // found an entry.
-                    // In this case, throw a QFE if we have one.
-                    //
-                    if (de.qfe != null) {
-                        throw de.qfe;
-                    }
+                Optional<T> optionalDef = context.getLocalDef(descriptor);
+                def = (optionalDef != null)? context.getLocalDef(descriptor).orNull() : null;
+            } else {
+                //
+                // found an entry.
+                // In this case, throw a QFE if we have one.
+                //
+                if (de.qfe != null) {
+                    throw de.qfe;
+                }
 
-                    //
-                    // Now we need to actually do the build..
-                    //
-                    buildDE(de, descriptor);
+                //
+                // Now we need to actually do the build..
+                //
+                buildDE(de, descriptor);
 
-                    Optional<T> optionalDef = context.getLocalDef(descriptor);
-                    def = (optionalDef != null)? context.getLocalDef(descriptor).orNull() : null;
-                }
-            } finally {
-                rLock.unlock();
+                Optional<T> optionalDef = context.getLocalDef(descriptor);
+                def = (optionalDef != null)? context.getLocalDef(descriptor).orNull() : null;
             }
         }
         if (def != null && descriptor.getDefType() == DefType.APPLICATION
@@ -329,34 +347,29 @@ public class DefinitionServiceImpl implements DefinitionService {
             return true;
         }
 
-        Lock rLock = cachingService.getReadLock();
+        long epoch = cachingService.getEpoch();
         Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache = cachingService.getDefsCache();
-        rLock.lock();
-        try {
-            Optional<?> opt = defsCache.getIfPresent(descriptor);
-            if (opt != null) {
-                //
-                // We cache here.
-                //
-                if (opt.isPresent()) {
-                    existsCache.put(descriptor, Boolean.TRUE);
-                    return true;
-                } else {
-                    existsCache.put(descriptor, Boolean.FALSE);
-                    return false;
-                }
-            }
-            DefRegistry reg = context.getRegistries().getRegistryFor(descriptor);
-            if (reg == null) {
+        Optional<?> opt = defsCache.getIfPresent(descriptor);
+        if (opt != null) {
+            //
+            // We cache here.
+            //
+            if (opt.isPresent()) {
+                cachingService.putIfCurrent(existsCache, descriptor, Boolean.TRUE, epoch);
+                return true;
+            } else {
+                cachingService.putIfCurrent(existsCache, descriptor, Boolean.FALSE, epoch);
                 return false;
             }
-            regExists = reg.exists(descriptor);
-            if (configAdapter.isCacheable(reg, descriptor)) {
-                Boolean cacheVal = Boolean.valueOf(regExists);
-                existsCache.put(descriptor, cacheVal);
-            }
-        } finally {
-            rLock.unlock();
+        }
+        DefRegistry reg = context.getRegistries().getRegistryFor(descriptor);
+        if (reg == null) {
+            return false;
+        }
+        regExists = reg.exists(descriptor);
+        if (configAdapter.isCacheable(reg, descriptor)) {
+            Boolean cacheVal = Boolean.valueOf(regExists);
+            cachingService.putIfCurrent(existsCache, descriptor, cacheVal, epoch);
         }
         if (regExists == false) {
             // Cache negatives to avoid excessive lookups.
@@ -383,7 +396,7 @@ public class DefinitionServiceImpl implements DefinitionService {
         String namespace = namespaceMatcher.isConstant()?namespaceMatcher.toString():null;
         AuraContext context = contextService.getCurrentContext();
         Cache<String, Set<DefDescriptor<?>>> descriptorFilterCache = cachingService.getDescriptorFilterCache();
-        Lock rLock = cachingService.getReadLock();
+        long epoch = cachingService.getEpoch();
 
         if (matcher.isConstant()) {
             //
@@ -411,67 +424,61 @@ public class DefinitionServiceImpl implements DefinitionService {
             // If we have somthing that is non-constant, we'll have to muck with caches and do some funky
             // running around.
             //
-            rLock.lock();
-            try {
-                //
-                // We _never_ cache non-constant namespaces. We'd like to make them illegal, but for the moment
-                // we will make them undesirable.
-                //
-                boolean cacheable = configAdapter.isCacheable(matcher) && namespaceMatcher.isConstant();
-                for (DefRegistry reg : context.getRegistries().getRegistries(matcher)) {
-                    if (reg.hasFind()) {
-                        //
-                        // Now we walk then entire set of registries, and check to see if our namespace
-                        // matches them. In the case of a constant namespace, this is easy, otherwise
-                        // we have to do a double walk.
+            // We _never_ cache non-constant namespaces. We'd like to make them illegal, but for the moment
+            // we will make them undesirable.
+            //
+            boolean cacheable = configAdapter.isCacheable(matcher) && namespaceMatcher.isConstant();
+            for (DefRegistry reg : context.getRegistries().getRegistries(matcher)) {
+                if (reg.hasFind()) {
+                    //
+                    // Now we walk then entire set of registries, and check to see if our namespace
+                    // matches them. In the case of a constant namespace, this is easy, otherwise
+                    // we have to do a double walk.
+                    //
+                    // We could theoretically do the cache lookup first, but that seems overly complicated
+                    //
+                    Set<String> namespaces = reg.getNamespaces();
+                    boolean nsm = namespaces.contains("*");
+                    if (!nsm) {
                         //
-                        // We could theoretically do the cache lookup first, but that seems overly complicated
+                        // Careful here. namespaces is case sensitive. If we fail to find the
+                        // namespace by lookup, go ahead and walk the entire namespace set
+                        // matching with our insensitive matcher. Not pretty, and not great for
+                        // perf. The only way to fix this is to be case sensitive. Note that the
+                        // perf penalty is paid by everyone. not just the bad case matching.
                         //
-                        Set<String> namespaces = reg.getNamespaces();
-                        boolean nsm = namespaces.contains("*");
+                        nsm = namespaces.contains(namespace);
                         if (!nsm) {
-                            //
-                            // Careful here. namespaces is case sensitive. If we fail to find the
-                            // namespace by lookup, go ahead and walk the entire namespace set
-                            // matching with our insensitive matcher. Not pretty, and not great for
-                            // perf. The only way to fix this is to be case sensitive. Note that the
-                            // perf penalty is paid by everyone. not just the bad case matching.
-                            //
-                            nsm = namespaces.contains(namespace);
-                            if (!nsm) {
-                                for (String ns : namespaces) {
-                                    if (namespaceMatcher.match(ns)) {
-                                        nsm = true;
-                                    }
+                            for (String ns : namespaces) {
+                                if (namespaceMatcher.match(ns)) {
+                                    nsm = true;
                                 }
                             }
                         }
-                        //
-                        // Only look up results if we have a match.
-                        //
-                        if (nsm) {
-                            Set<DefDescriptor<?>> registryResults = null;
-
-                            if (cacheable && reg.isCacheable()) {
-                                // cache results per registry
-                                String cacheKey = filterKey + "|" + reg.toString();
-                                registryResults = descriptorFilterCache.getIfPresent(cacheKey);
-                                if (registryResults == null) {
-                                    registryResults = reg.find(matcher);
-                                    descriptorFilterCache.put(cacheKey, registryResults);
-                                }
-                            } else {
+                    }
+                    //
+                    // Only look up results if we have a match.
+                    //
+                    if (nsm) {
+                        Set<DefDescriptor<?>> registryResults = null;
+
+                        if (cacheable && reg.isCacheable()) {
+                            // cache results per registry
+                            String cacheKey = filterKey + "|" + reg.toString();
+                            registryResults = descriptorFilterCache.getIfPresent(cacheKey);
+                            if (registryResults == null) {
                                 registryResults = reg.find(matcher);
+                                cachingService.putIfCurrent(descriptorFilterCache, cacheKey, registryResults, epoch);
                             }
-
-                            matched.addAll(registryResults);
+                        } else {
+                            registryResults = reg.find(matcher);
                         }
+
+                        matched.addAll(registryResults);
                     }
                 }
-                context.addDynamicMatches(matched, matcher);
-            } finally {
-                rLock.unlock();
             }
+            context.addDynamicMatches(matched, matcher);
         }
 
         return matched;
@@ -695,22 +702,14 @@ public class DefinitionServiceImpl implements DefinitionService {
             return null;
         }
 
-        DependencyEntry de = null;
-        Lock rLock = cachingService.getReadLock();
-
-        rLock.lock();
-        try {
-            de = getDE(uid, descriptor);
+        DependencyEntry de = getDE(uid, descriptor);
+        if (de == null) {
+            de = compileDE(descriptor);
+            //
+            // If we can't find our descriptor, we just give back a null.
             if (de == null) {
-                de = compileDE(descriptor);
-                //
-                // If we can't find our descriptor, we just give back a null.
-                if (de == null) {
-                    return null;
-                }
+                return null;
             }
-        } finally {
-            rLock.unlock();
         }
         if (de.qfe != null) {
             throw de.qfe;
@@ -927,6 +926,9 @@ public class DefinitionServiceImpl implements DefinitionService {
      * This routine always compiles the definition, even if it is in the caches. If the incoming descriptor does not
      * correspond to a definition, it will return null, otherwise, on failure it will throw a QuickFixException.
      *
+     * Concurrent compiles of the same descriptor are coalesced: the first thread compiles, and the others wait for it
+     * and build its result, if it is globally cacheable, rather than compile the same tree again.
+     *
      * Please look at {@link #localDependencies} if you are mucking in here.
      *
      * Side Effects:
@@ -944,6 +946,124 @@ public class DefinitionServiceImpl implements DefinitionService {
      */
     @CheckForNull
     protected <T extends Definition> DependencyEntry compileDE(@Nonnull DefDescriptor<T> descriptor) throws QuickFixException{
+        //
+        // Prefetch workers never wait on a compile, as the compile may well be waiting on them.
+        //
+        if (threadContext.get() != null || prefetcher.isWorker()) {
+            return doCompileDE(descriptor);
+        }
+        String flightKey = makeNonUidGlobalKey(descriptor);
+        throwIfFailed(flightKey, descriptor);
+        CompileFlight flight = new CompileFlight();
+        CompileFlight leader = compileFlights.putIfAbsent(flightKey, flight);
+        if (leader != null) {
+            DependencyEntry de = awaitCompile(leader, descriptor);
+            if (de != null) {
+                return de;
+            }
+            throwIfFailed(flightKey, descriptor);
+            return doCompileDE(descriptor);
+        }
+        compileCount.incrementAndGet();
+        try {
+            DependencyEntry de = doCompileDE(descriptor);
+            //
+            // Only share what went in the global cache, anything else depends on our context.
+            //
+            if (de != null && de.qfe == null && cachingService.getDepsCache().getIfPresent(flightKey) == de) {
+                flight.shared = de;
+            }
+            return de;
+        } finally {
+            compileFlights.remove(flightKey, flight);
+            flight.done.countDown();
+        }
+    }
+
+    /**
+     * Throw the exception of a remembered failed compile, if there is one.
+     */
+    private void throwIfFailed(String key, DefDescriptor<?> descriptor) throws QuickFixException {
+        DependencyEntry failed = cachingService.getFailedDepsCache().getIfPresent(key);
+        if (failed != null) {
+            failedCompileHitCount.incrementAndGet();
+            // See localDependencies comment
+            contextService.getCurrentContext().addLocalDependencyEntry(makeLocalKey(descriptor), failed);
+            throw failed.qfe;
+        }
+    }
+
+    /**
+     * A compile in progress, which other threads compiling the same descriptor wait for.
+     */
+    private static class CompileFlight {
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * The result, if the compile succeeded and can be used in any context.
+         */
+        private volatile DependencyEntry shared;
+    }
+
+    /**
+     * Wait for another thread to compile a descriptor, and build its result in our context.
+     *
+     * @return the dependency entry, or null if we have to compile it ourselves.
+     */
+    private DependencyEntry awaitCompile(CompileFlight flight, DefDescriptor<?> descriptor)
+            throws QuickFixException {
+        coalescedCompileCount.incrementAndGet();
+        loggingService.incrementNum(LoggingService.COALESCED_COMPILE_COUNT);
+        try {
+            flight.done.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        DependencyEntry de = flight.shared;
+        if (de == null) {
+            return null;
+        }
+        // See localDependencies comment
+        contextService.getCurrentContext().addLocalDependencyEntry(makeLocalKey(descriptor), de);
+        buildDE(de, descriptor);
+        return de;
+    }
+
+    /**
+     * @return the number of compiles done for requests, excluding those that waited on another.
+     */
+    public long getCompileCount() {
+        return compileCount.get();
+    }
+
+    /**
+     * @return the number of requests for a compile that waited on the same compile in another thread.
+     */
+    public long getCoalescedCompileCount() {
+        return coalescedCompileCount.get();
+    }
+
+    /**
+     * @return the number of failed compiles currently remembered.
+     */
+    public int getFailedCompileCount() {
+        return cachingService.getFailedDepsCache().getKeySet().size();
+    }
+
+    /**
+     * @return the number of requests for a compile that were answered with a remembered failure.
+     */
+    public long getFailedCompileHitCount() {
+        return failedCompileHitCount.get();
+    }
+
+    /**
+     * Do the actual compile for {@link #compileDE}.
+     */
+    @CheckForNull
+    private <T extends Definition> DependencyEntry doCompileDE(@Nonnull DefDescriptor<T> descriptor)
+            throws QuickFixException {
         // See localDependencies commentcurrentCC
         String key = makeLocalKey(descriptor);
         CompileContext currentCC = threadContext.get();
@@ -956,7 +1076,7 @@ public class DefinitionServiceImpl implements DefinitionService {
         }
 
         List<ClientLibraryDef> clientLibs = Lists.newArrayList();
-        currentCC = new CompileContext(descriptor, context, defsCache, clientLibs);
+        currentCC = new CompileContext(descriptor, context, defsCache, clientLibs, cachingService.getEpoch());
         threadContext.set(currentCC);
         try {
             currentCC.addMap(AuraStaticControllerDefRegistry.getInstance(this).getAll());
@@ -970,27 +1090,18 @@ public class DefinitionServiceImpl implements DefinitionService {
 
             List<CompilingDef<?>> compiled = Lists.newArrayList(currentCC.compiled.values());
 
-            // Sort based on descriptor only (not level) for uid calculation.
-            // There are situations where components dependencies are read at different
-            // levels where affected the ordering of dependencies creating different uid.
-            //
-            // Using descriptor only produces a more consistent UID
-            Collections.sort(compiled, (cd1, cd2) -> cd1.descriptor.compareTo(cd2.descriptor));
-
             //
-            // Now walk the sorted list, building up our dependencies, and uid
+            // The uid is the root of a hash tree with a leaf per dependency. Recompiling after a source change
+            // usually yields the same dependency set with a few own hashes changed, so update the tree we had
+            // for this descriptor, which rehashes just those leaves and their ancestors.
             //
+            Map<DefDescriptor<?>, String> leaves = Maps.newHashMapWithExpectedSize(compiled.size());
             StringBuilder sb = new StringBuilder(256);
-            Hash.StringBuilder globalBuilder = new Hash.StringBuilder();
             for (CompilingDef<?> cd : compiled) {
                 if (cd.def == null) {
                     // actually, this should never happen.
                     throw new DefinitionNotFoundException(cd.descriptor);
                 }
-
-                //
-                // Now update our hash.
-                //
                 sb.setLength(0);
                 sb.append(cd.descriptor.getQualifiedName().toLowerCase());
                 sb.append("|");
@@ -999,9 +1110,28 @@ public class DefinitionServiceImpl implements DefinitionService {
                     sb.append(hash);
                 }
                 sb.append(",");
-                globalBuilder.addString(sb.toString());
+                leaves.put(cd.descriptor, sb.toString());
+            }
+            Cache<String, HashTree<DefDescriptor<?>>> uidTreeCache = cachingService.getUidTreeCache();
+            String treeKey = makeNonUidGlobalKey(descriptor);
+            HashTree<DefDescriptor<?>> previous = uidTreeCache.getIfPresent(treeKey);
+            HashTree<DefDescriptor<?>> uidTree = previous != null ? previous.update(leaves) : null;
+            if (uidTree == null) {
+                // Sort based on descriptor only (not level) for uid calculation.
+                // There are situations where components dependencies are read at different
+                // levels where affected the ordering of dependencies creating different uid.
+                //
+                // Using descriptor only produces a more consistent UID
+                Collections.sort(compiled, (cd1, cd2) -> cd1.descriptor.compareTo(cd2.descriptor));
+                List<DefDescriptor<?>> keys = Lists.newArrayListWithCapacity(compiled.size());
+                List<String> contents = Lists.newArrayListWithCapacity(compiled.size());
+                for (CompilingDef<?> cd : compiled) {
+                    keys.add(cd.descriptor);
+                    contents.add(leaves.get(cd.descriptor));
+                }
+                uidTree = HashTree.build(keys, contents);
             }
-            uid = globalBuilder.build().toString();
+            uid = uidTree.getRoot().toString();
 
             //
             // Now try a re-lookup. This may catch existing cached
@@ -1023,14 +1153,17 @@ public class DefinitionServiceImpl implements DefinitionService {
             CompilingDef<T> cd = currentCC.getCompiling(descriptor);
 
             de = new DependencyEntry(uid, Collections.unmodifiableSet(deps), clientLibs);
-            Cache<String, DependencyEntry> depsCache = cachingService.getDepsCache();
             if (cd.cacheable) {
+                if (uidTree != previous) {
+                    cachingService.putIfCurrent(uidTreeCache, treeKey, uidTree, currentCC.epoch);
+                }
+
                 // put UID-qualified descriptor key for dependency
-                depsCache.put(makeGlobalKey(de.uid, descriptor), de);
+                cachingService.putDependencyEntry(makeGlobalKey(de.uid, descriptor), de, currentCC.epoch);
 
                 // put unqualified descriptor key for dependency
                 if (currentCC.shouldCacheDependencies) {
-                    depsCache.put(makeNonUidGlobalKey(descriptor), de);
+                    cachingService.putDependencyEntry(makeNonUidGlobalKey(descriptor), de, currentCC.epoch);
                 }
             }
             // See localDependencies comment
@@ -1040,6 +1173,15 @@ public class DefinitionServiceImpl implements DefinitionService {
             DependencyEntry de = new DependencyEntry(qfe);
             // See localDependencies comment
             context.addLocalDependencyEntry(key, de);
+            //
+            // Remember the failure globally if the result would have been cached, so that we don't recompile a
+            // broken definition on every request. Any source change forgets it.
+            //
+            CompilingDef<?> cd = currentCC.compiled.get(descriptor);
+            if (cd != null && cd.cacheable && currentCC.shouldCacheDependencies) {
+                cachingService.putIfCurrent(cachingService.getFailedDepsCache(), makeNonUidGlobalKey(descriptor), de,
+                        currentCC.epoch);
+            }
             throw qfe;
         } finally {
             threadContext.set(null);
@@ -1097,7 +1239,7 @@ public class DefinitionServiceImpl implements DefinitionService {
             throws QuickFixException {
         CompileContext currentCC;
         currentCC = new CompileContext(descriptor, contextService.getCurrentContext(),
-                cachingService.getDefsCache(), null);
+                cachingService.getDefsCache(), null, cachingService.getEpoch());
         threadContext.set(currentCC);
         try {
             validateHelper(currentCC, descriptor);
@@ -1226,13 +1368,17 @@ public class DefinitionServiceImpl implements DefinitionService {
         public final boolean compiling;
         public int level;
 
+        /** The cache epoch when this compile started, see {@link CachingService#putIfCurrent}. */
+        public final long epoch;
+
         /** Is this def's dependencies cacheable? */
         public boolean shouldCacheDependencies;
 
         public CompileContext(DefDescriptor<? extends Definition> topLevel, AuraContext context,
                 Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache,
-                List<ClientLibraryDef> clientLibs) {
+                List<ClientLibraryDef> clientLibs, long epoch) {
             this.defsCache = defsCache;
+            this.epoch = epoch;
             this.context = context;
             this.registries = context.getRegistries();
             this.clientLibs = clientLibs;
@@ -1366,6 +1512,93 @@ public class DefinitionServiceImpl implements DefinitionService {
         return true;
     }
 
+    /**
+     * Parse the dependency tree of a descriptor in parallel, ahead of the compile.
+     *
+     * Static registries parse and call validateDefinition() on a definition exactly once, holding on to the result
+     * for later calls. This walks the tree on the prefetch workers, calling getDef() on every
+     * static registry it can reach, so that independent subtrees are parsed concurrently. Nothing here touches the
+     * compile context, so the serial walk in {@link #getHelper} that follows still computes levels, client libraries,
+     * access checks and the uid exactly as before, it just finds every definition already parsed.
+     *
+     * Any failure simply stops the walk below that point, the serial walk will hit it again and report it. The
+     * workers do not run under the compiling context, so a compiling registry does not keep a failure they hit.
+     */
+    private void prefetchDefinitions(@Nonnull DefDescriptor<?> descriptor, @Nonnull CompileContext currentCC) {
+        prefetcher.prefetch(descriptor, new PrefetchFetcher(currentCC));
+    }
+
+    private static int getCompileParallelism() {
+        String prop = System.getProperty("aura.compile.parallelism");
+        if (prop != null && !prop.isEmpty()) {
+            try {
+                return Integer.parseInt(prop);
+            } catch (NumberFormatException e) {
+                // ne'ermind, use the default
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Parse definitions on the prefetch workers.
+     *
+     * Parsers use the current context, so each worker establishes a minimal context of its own for the walk, matching
+     * the compiling one, rather than share the (single threaded) compiling context.
+     */
+    private class PrefetchFetcher implements DefinitionPrefetcher.Fetcher {
+        private final CompileContext currentCC;
+
+        public PrefetchFetcher(CompileContext currentCC) {
+            this.currentCC = currentCC;
+        }
+
+        @Override
+        public void start() {
+            AuraContext context = currentCC.context;
+            contextService.startContextNoGVP(context.getMode(), context.getFormat(), context.getAccess(),
+                    context.getApplicationDescriptor());
+        }
+
+        @Override
+        public Collection<DefDescriptor<?>> fetch(DefDescriptor<?> descriptor) {
+            Set<DefDescriptor<?>> dependencies = Sets.newHashSet();
+            try {
+                Definition def = prefetch(descriptor);
+                if (def != null) {
+                    def.appendDependencies(dependencies);
+                }
+            } catch (QuickFixException | RuntimeException e) {
+                // Reported by the serial walk.
+            }
+            return dependencies;
+        }
+
+        @Override
+        public void end() {
+            contextService.endContext();
+        }
+
+        private Definition prefetch(DefDescriptor<?> descriptor) throws QuickFixException {
+            if (currentCC.compiled.containsKey(descriptor) || currentCC.context.getLocalDef(descriptor) != null) {
+                return null;
+            }
+            Optional<? extends Definition> opt = currentCC.defsCache.getIfPresent(descriptor);
+            if (opt != null) {
+                return opt.orNull();
+            }
+            DefRegistry registry = currentCC.registries.getRegistryFor(descriptor);
+            if (registry == null || !registry.isStatic()) {
+                // non-static registries validate in fillCompilingDef, on the compiling thread.
+                return null;
+            }
+            if (registry instanceof CompilingDefRegistry) {
+                return ((CompilingDefRegistry) registry).prefetchDef(descriptor);
+            }
+            return registry.getDef(descriptor);
+        }
+    }
+
     /**
      * A private helper routine to make the compiler code more sane.
      *
@@ -1491,7 +1724,8 @@ public class DefinitionServiceImpl implements DefinitionService {
                 currentCC.context.addLocalDef(cd.descriptor, cd.def);
                 if (cd.built) {
                     if (cd.cacheable) { // false for non-internal namespaces, or non-cacheable registries
-                        currentCC.defsCache.put(cd.descriptor, Optional.of(cd.def));
+                        cachingService.putIfCurrent(currentCC.defsCache, cd.descriptor, Optional.of(cd.def),
+                                currentCC.epoch);
                     }
                     cd.def.markValid();
                 }
@@ -1519,9 +1753,8 @@ public class DefinitionServiceImpl implements DefinitionService {
      * dependencies and walk the tree. Circular dependencies are handled gracefully, and no other thread can interfere
      * because everything is local.
      *
-     * FIXME: this should really cache invalid definitions and make sure that we don't bother re-compiling until there
-     * is some change of state. However, that is rather more complex than it sounds.... and shouldn't really manifest
-     * much in a released system.
+     * Invalid definitions are remembered by compileDE for a while, in the failed dependency cache, so that we don't
+     * bother re-compiling until there is some change of state.
      *
      * @param descriptor the descriptor that we wish to compile.
      */
@@ -1534,6 +1767,9 @@ public class DefinitionServiceImpl implements DefinitionService {
             loggingService.startTimer(LoggingService.TIMER_DEFINITION_CREATION);
         }
         try {
+            if (!nested) {
+                prefetchDefinitions(descriptor, currentCC);
+            }
             Set<DefDescriptor<?>> stack = Sets.newLinkedHashSet();
             def = getHelper(descriptor, currentCC, stack, null);
             if (!nested) {
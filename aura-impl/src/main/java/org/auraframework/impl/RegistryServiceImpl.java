@@ -15,11 +15,12 @@
  */
 package org.auraframework.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -28,8 +29,16 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import org.apache.log4j.Logger;
@@ -58,8 +67,10 @@ import org.auraframework.impl.system.CachingDefRegistryImpl;
 import org.auraframework.impl.system.CompilingDefRegistry;
 import org.auraframework.impl.system.NonCachingDefRegistryImpl;
 import org.auraframework.impl.system.PassThroughDefRegistry;
+import org.auraframework.impl.system.PersistentDefStore;
 import org.auraframework.impl.system.RegistryTrie;
 import org.auraframework.impl.system.StaticDefRegistryImpl;
+import org.auraframework.impl.system.StaticRegistryFile;
 import org.auraframework.impl.type.AuraStaticTypeDefRegistry;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.RegistryService;
@@ -71,9 +82,11 @@ import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceLoader;
 import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.util.FileMonitor;
+import org.auraframework.util.text.Hash;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 
 @ServiceComponent
 public class RegistryServiceImpl implements RegistryService, SourceListener {
@@ -96,6 +109,12 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
 
     private ConcurrentHashMap<ComponentLocationAdapter, SourceLocationInfo> locationMap = new ConcurrentHashMap<>();
 
+    private final List<PersistentDefStore> defStores = new CopyOnWriteArrayList<>();
+
+    private final boolean prewarm = Boolean.getBoolean("aura.registry.prewarm");
+
+    private ExecutorService prewarmExecutor;
+
     private static final Set<String> markupPrefixes = ImmutableSet.of(
             DefDescriptor.MARKUP_PREFIX,
             DefDescriptor.CSS_PREFIX,
@@ -170,44 +189,121 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
     }
 
     /**
-     * Get an input stream from a file name.
+     * Stop indexing in the background, and write the persistent definition stores, so that the next start is warm.
+     */
+    @PreDestroy
+    public void saveDefStores() {
+        synchronized (this) {
+            if (prewarmExecutor != null) {
+                prewarmExecutor.shutdownNow();
+            }
+        }
+        for (PersistentDefStore store : defStores) {
+            store.save();
+            _log.info("Saved definitions " + store);
+        }
+    }
+
+    /**
+     * Create a registry compiling the sources of a loader.
+     *
+     * If the aura.defStore.dir system property names a directory, what the registry parses is kept there, in a
+     * persistent store named after the location of the sources, so that a restart does not parse unchanged sources.
+     * If the aura.registry.prewarm system property is set, the namespaces of the registry are indexed in the
+     * background rather than on first use, here and after each reset.
      *
-     * @param path the path to open.
+     * @param loader the loader for the sources.
+     * @param location a stable name for the location of the sources.
      */
-    private InputStream getFileInputStream(String path) {
-        File file = new File(path);
-        FileInputStream fis = null;
+    private CompilingDefRegistry createCompilingRegistry(SourceLoader loader, String location) {
+        PersistentDefStore store = null;
+        String dir = System.getProperty("aura.defStore.dir");
+        if (dir != null && !dir.isEmpty()) {
+            Hash.StringBuilder name = new Hash.StringBuilder();
+            name.addString(location);
+            store = new PersistentDefStore(new File(dir, name.build() + ".defs"),
+                    configAdapter.getAuraVersion() + "@" + configAdapter.getBuildTimestamp());
+            defStores.add(store);
+        }
+        CompilingDefRegistry registry = new CompilingDefRegistry(loader, markupPrefixes, markupDefTypes,
+                parserFactory, store);
+        prewarm(registry);
+        return registry;
+    }
 
-        try {
-            fis = new FileInputStream(file);
-        } catch (Throwable t) {
-            // don't die.
-            // This can occur because the file is unreadable, or doesn't exist. We only
-            // log an error if the file exists.
-            if (file.exists()) {
-                _log.error("Unable to open registries file", t);
+    /**
+     * Index the namespaces of a registry in the background, if the aura.registry.prewarm system property is set.
+     */
+    private void prewarm(CompilingDefRegistry registry) {
+        if (prewarm) {
+            try {
+                registry.prewarm(getPrewarmExecutor());
+            } catch (RejectedExecutionException ree) {
+                // shutting down, they will be indexed on first use if at all.
             }
         }
-        return fis;
     }
 
-    private DefRegistry[] getStaticRegistries(ComponentLocationAdapter location) {
-        InputStream ris = null;
+    /**
+     * Get the executor that indexes namespaces in the background, one thread per processor.
+     *
+     * Its threads go away once there is nothing left to index.
+     */
+    private synchronized ExecutorService getPrewarmExecutor() {
+        if (prewarmExecutor == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), r -> {
+                        Thread thread = new Thread(r, "aura-registry-prewarm-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            prewarmExecutor = executor;
+        }
+        return prewarmExecutor;
+    }
 
+    /**
+     * Read the precompiled static registries of a location, if it has a .registries file.
+     *
+     * A file in the binary format of {@link StaticRegistryFile} is mapped, or read whole from the classpath, and its
+     * definitions are only deserialized when asked for. A file in the previous format, a serialized list of
+     * registries, is still read in full.
+     */
+    private DefRegistry[] getStaticRegistries(ComponentLocationAdapter location) {
         String pkg = location.getComponentSourcePackage();
-        if (pkg != null) {
-            ris = location.getClass().getResourceAsStream(pkg + "/.registries");
-        } else {
-            File compSource = location.getComponentSourceDir();
-            if (compSource != null && compSource.canRead()) {
-                ris = getFileInputStream(compSource + "/.registries");
+        String name = null;
+        ByteBuffer buffer = null;
+        try {
+            if (pkg != null) {
+                name = pkg + "/.registries";
+                try (InputStream ris = location.getClass().getResourceAsStream(name)) {
+                    if (ris != null) {
+                        buffer = ByteBuffer.wrap(ByteStreams.toByteArray(ris));
+                    }
+                }
+            } else {
+                File compSource = location.getComponentSourceDir();
+                if (compSource != null && compSource.canRead()) {
+                    File file = new File(compSource, ".registries");
+                    name = file.getPath();
+                    if (file.exists()) {
+                        buffer = StaticRegistryFile.map(file);
+                    }
+                }
             }
-        }
-        if (ris != null) {
-            ObjectInputStream ois = null;
-
-            try {
-                ois = new ObjectInputStream(ris);
+            if (buffer == null) {
+                return null;
+            }
+            if (StaticRegistryFile.isStaticRegistryFile(buffer)) {
+                List<StaticDefRegistryImpl> l = StaticRegistryFile.read(buffer);
+                return l.toArray(new DefRegistry[l.size()]);
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
                 Object o = ois.readObject();
                 if (o instanceof List) {
                     @SuppressWarnings("unchecked")
@@ -215,24 +311,11 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
                     return l.toArray(new DefRegistry[l.size()]);
                 }
                 return (DefRegistry[]) ois.readObject();
-            } catch (Exception e) {
-                // Do not fail here, just act as if we don't have a registries file.
-                // You'd have to create a bad registries file...
-                _log.error("Unable to read registries file", e);
-            } finally {
-                try {
-                    ris.close();
-                } catch (IOException e) {
-                    throw new AuraRuntimeException(e);
-                }
-                if (ois != null) {
-                    try {
-                        ois.close();
-                    } catch (IOException e) {
-                        throw new AuraRuntimeException(e);
-                    }
-                }
             }
+        } catch (Exception e) {
+            // Do not fail here, just act as if we don't have a registries file.
+            // You'd have to create a bad registries file...
+            _log.error("Unable to read registries file " + name, e);
         }
         return null;
     }
@@ -248,7 +331,7 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
             ResourceSourceLoader rsl = new ResourceSourceLoader(pkg);
             markupLoaders.add(rsl);
             javaLoaders.add(rsl);
-            markupRegistries.add(new CompilingDefRegistry(rsl, markupPrefixes, markupDefTypes, parserFactory));
+            markupRegistries.add(createCompilingRegistry(rsl, pkg));
         } else if (location.getComponentSourceDir() != null) {
             File components = location.getComponentSourceDir();
             if (!components.canRead() || !components.canExecute() || !components.isDirectory()) {
@@ -256,7 +339,7 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
             } else {
                 FileSourceLoader fsl = new FileSourceLoader(components, fileMonitor);
                 markupLoaders.add(fsl);
-                markupRegistries.add(new CompilingDefRegistry(fsl, markupPrefixes, markupDefTypes, parserFactory));
+                markupRegistries.add(createCompilingRegistry(fsl, components.getAbsolutePath()));
                 File javaBase = new File(components.getParent(), "java");
                 if (javaBase.exists()) {
                     javaLoaders.add(new FileSourceLoader(javaBase, fileMonitor));
@@ -265,7 +348,7 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
                 if (generatedJavaBase != null && generatedJavaBase.exists()) {
                     fsl = new FileSourceLoader(generatedJavaBase, fileMonitor);
                     markupLoaders.add(fsl);
-                    markupRegistries.add(new CompilingDefRegistry(fsl, markupPrefixes, markupDefTypes, parserFactory));
+                    markupRegistries.add(createCompilingRegistry(fsl, generatedJavaBase.getAbsolutePath()));
                     javaLoaders.add(fsl);
                 }
                 try {
@@ -411,6 +494,9 @@ public class RegistryServiceImpl implements RegistryService, SourceListener {
                             sli.setChanged(true);
                             for (DefRegistry registry : sli.markupRegistries) {
                                 registry.reset();
+                                if (registry instanceof CompilingDefRegistry) {
+                                    prewarm((CompilingDefRegistry) registry);
+                                }
                             }
                         }
                     }
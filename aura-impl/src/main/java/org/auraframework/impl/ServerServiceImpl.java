@@ -16,6 +16,7 @@
 package org.auraframework.impl;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Collection;
 import java.util.List;
@@ -29,6 +30,7 @@ import javax.inject.Inject;
 
 import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ExceptionAdapter;
+import org.auraframework.adapter.LocalizationAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.cache.Cache;
@@ -46,6 +48,10 @@ import org.auraframework.def.LibraryDef;
 import org.auraframework.def.SVGDef;
 import org.auraframework.def.StyleDef;
 import org.auraframework.http.ManifestUtil;
+import org.auraframework.impl.cache.EncodedContentWeigher;
+import org.auraframework.impl.cache.StringWeigher;
+import org.auraframework.impl.java.controller.JavaAction;
+import org.auraframework.impl.java.controller.JavaActionDef;
 import org.auraframework.impl.util.TemplateUtil;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.BaseComponent;
@@ -67,11 +73,14 @@ import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.AuraLocale;
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.EncodedContent.Encoding;
 import org.auraframework.util.javascript.Literal;
 import org.auraframework.util.json.JsonEncoder;
 import org.auraframework.util.json.JsonSerializationContext;
+import org.auraframework.util.text.Hash;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
@@ -80,6 +89,8 @@ import com.google.common.collect.Sets;
 
 @ServiceComponent
 public class ServerServiceImpl implements ServerService {
+    private static final String APPJS_PREPEND = "\"undefined\"===typeof Aura&&(Aura={});Aura.bootstrap||(Aura.bootstrap={});Aura.frameworkJsReady||(Aura.ApplicationDefs={cmpExporter:{},libExporter:{}},$A={componentService:{addComponent:function(a,b){Aura.ApplicationDefs.cmpExporter[a]=b},addLibraryExporter:function(a,b){Aura.ApplicationDefs.libExporter[a]=b},initEventDefs:function(a){Aura.ApplicationDefs.eventDefs=a},initLibraryDefs:function(a){Aura.ApplicationDefs.libraryDefs=a},initControllerDefs:function(a){Aura.ApplicationDefs.controllerDefs=a}}});\n";
+    private static final String APPJS_APPEND = "\nAura.appJsReady = true;Aura.appDefsReady&&Aura.appDefsReady();";
 
     @Inject
     private LoggingService loggingService;
@@ -110,6 +121,9 @@ public class ServerServiceImpl implements ServerService {
     
     @Inject
     private InstanceService instanceService;
+
+    @Inject
+    private LocalizationAdapter localizationAdapter;
     
     private ManifestUtil manifestUtil;
 
@@ -124,10 +138,16 @@ public class ServerServiceImpl implements ServerService {
 
     private Cache<String, String> altStringsCache;
 
+    private Cache<String, EncodedContent> encodedContentCache;
+
+    private Cache<String, String> actionResultCache;
+
     @PostConstruct
     private void setCaches() {
         this.stringsCache = cachingService.getStringsCache();
         this.altStringsCache = cachingService.getAltStringsCache();
+        this.encodedContentCache = cachingService.getEncodedContentCache();
+        this.actionResultCache = cachingService.getActionResultCache();
     }
 
     @Override
@@ -190,44 +210,149 @@ public class ServerServiceImpl implements ServerService {
     private int run(List<Action> actions, JsonEncoder json, int idx) throws IOException {
         AuraContext context = contextService.getCurrentContext();
         for (Action action : actions) {
-            StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
-            KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
-            if (logger != null) {
-                action.logParams(logger);
-            }
-            String aap = String.valueOf(++idx)+"$"+actionAndParams.toString();
-            loggingService.startAction(aap);
+            String aap = startAction(action, ++idx);
+            long epoch = cachingService.getEpoch();
+            String resultKey = getResultCacheKey(action, context);
+            boolean cached = useCachedResult(action, resultKey);
             Action oldAction = context.setCurrentAction(action);
             try {
-                action.run();
+                if (!cached) {
+                    action.run();
+                }
             } catch (AuraExecutionException x) {
                 exceptionAdapter.handleException(x, action);
             } finally {
                 context.setCurrentAction(oldAction);
                 loggingService.stopAction(aap);
             }
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
-            try {
-                json.writeArrayEntry(action);
-            } finally {
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+            if (!cached) {
+                cacheResult(action, resultKey, epoch);
             }
+            idx = write(action, json, idx);
+        }
+        return idx;
+    }
 
-            List<Action> additionalActions = action.getActions();
-
-            // Recursively process any additional actions created by the
-            // action
-            if (additionalActions != null && !additionalActions.isEmpty()) {
-                idx = run(additionalActions, json, idx);
+    /**
+     * Get the key under which the result of an action is cached, or null if its result is not cacheable.
+     *
+     * Unless the action opts out, the key holds the session of the caller, so that one user is never sent a result
+     * computed for another. Without a session, the result is not cached.
+     *
+     * @see org.auraframework.system.Annotations.CacheableAction
+     */
+    private String getResultCacheKey(Action action, AuraContext context) {
+        if (!(action instanceof JavaAction)) {
+            return null;
+        }
+        JavaActionDef def = ((JavaAction) action).getActionDef();
+        if (def == null || !def.isResultCacheable()) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(def.getDescriptor().getQualifiedName());
+        key.append('@').append(context.getMode()).append('@').append(context.getAccess());
+        key.append('@').append(action.getCallingDescriptor());
+        if (def.isResultCacheKeyAppUid()) {
+            DefDescriptor<?> appDesc = context.getApplicationDescriptor();
+            key.append('@').append(appDesc).append('=').append(appDesc != null ? context.getUid(appDesc) : null);
+        }
+        if (def.isResultCacheKeyUser()) {
+            // the CSRF token is per session, and is hashed to keep it out of the key.
+            String token = configAdapter.getCSRFToken();
+            if (token == null) {
+                return null;
             }
+            Hash.StringBuilder user = new Hash.StringBuilder();
+            user.addString(token);
+            key.append('@').append(user.build());
+        }
+        if (def.isResultCacheKeyLocale()) {
+            AuraLocale locale = localizationAdapter.getAuraLocale();
+            key.append('@').append(locale.getDefaultLocale()).append('/').append(locale.getLanguageLocale());
+        }
+        for (String param : def.getResultCacheKeyParams()) {
+            key.append('@').append(param).append('=').append(JsonEncoder.serialize(action.getParams().get(param)));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Complete an action with its cached result, if there is one.
+     *
+     * @return true if the action was completed, and must not be run.
+     */
+    private boolean useCachedResult(Action action, String key) {
+        String result = key != null ? actionResultCache.getIfPresent(key) : null;
+        if (result == null) {
+            return false;
+        }
+        ((JavaAction) action).setSerializedReturnValue(result);
+        return true;
+    }
+
+    /**
+     * Serialize and cache the result of an action that ran cleanly, and have the action write the same result.
+     */
+    private void cacheResult(Action action, String key, long epoch) {
+        if (key == null || action.getState() != Action.State.SUCCESS || !action.getErrors().isEmpty()) {
+            return;
+        }
+        List<Action> additionalActions = action.getActions();
+        if (additionalActions != null && !additionalActions.isEmpty()) {
+            return;
+        }
+        String result = JsonEncoder.serialize(action.getReturnValue(),
+                contextService.getCurrentContext().getJsonSerializationContext());
+        cachingService.putIfCurrent(actionResultCache, key, result, epoch);
+        ((JavaAction) action).setSerializedReturnValue(result);
+    }
+
+    private String startAction(Action action, int idx) {
+        StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
+        KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
+        if (logger != null) {
+            action.logParams(logger);
+        }
+        String aap = String.valueOf(idx)+"$"+actionAndParams.toString();
+        loggingService.startAction(aap);
+        return aap;
+    }
+
+    /**
+     * Write an action that has run, then run and write any additional actions it created.
+     */
+    private int write(Action action, JsonEncoder json, int idx) throws IOException {
+        loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
+        loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+        try {
+            json.writeArrayEntry(action);
+        } finally {
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+        }
+
+        List<Action> additionalActions = action.getActions();
+
+        // Recursively process any additional actions created by the
+        // action
+        if (additionalActions != null && !additionalActions.isEmpty()) {
+            idx = run(additionalActions, json, idx);
         }
         return idx;
     }
 
     @Override
     public void writeAppCss(final Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException {
+        EncodedContent content = getAppCssContent(dependencies);
+
+        if (out != null) {
+            out.append(content.getText());
+        }
+    }
+
+    @Override
+    public EncodedContent getAppCssContent(final Set<DefDescriptor<?>> dependencies)
+            throws IOException, QuickFixException {
         AuraContext context = contextService.getCurrentContext();
         boolean minify = context.getMode().minify();
 
@@ -237,23 +362,8 @@ public class ServerServiceImpl implements ServerService {
         final StringBuilder keyBuilder = new StringBuilder(64);
         keyBuilder.append("CSS:");
 
-        // browser type
-        keyBuilder.append(styleContext.getClientType());
-
-        // other "true" conditions from style adapter (e.g., isDesktop)
-        String trueConditionsKey = Joiner.on("-").skipNulls().join(styleContext.getExtraTrueConditionsOnly());
-        if (!trueConditionsKey.isEmpty()) {
-            keyBuilder.append(":");
-            keyBuilder.append(trueConditionsKey);
-        }
-
-        // tokens uid. The app tokens are in the app dependencies and thus part of appuid, however we need
-        // a distinct uid because one of the descriptors may be provided. this can be further optimized by only adding
-        // a uid for provided descriptors only though.
-        Optional<String> tokensUid = styleContext.getTokens().getDescriptorsUid();
-        if (tokensUid.isPresent()) {
-            keyBuilder.append(":").append(tokensUid.get());
-        }
+        // browser type, other "true" conditions from style adapter (e.g., isDesktop), and tokens uid.
+        keyBuilder.append(styleContext.getKey());
 
         // TODONM: If a tokens def uses a map-provider it will affect the css key too. Current idea is to cache a
         // "pre-evaluated" version of the CSS (but still ordered and concatenated). Another idea is to defer cache to
@@ -274,24 +384,18 @@ public class ServerServiceImpl implements ServerService {
         final String key = keyBuilder.toString();
         context.setPreloading(true);
 
-        String cached = null;
         final boolean skipCache = styleContext.getTokens().hasDynamicTokens(); // TODONM undo this cache skipping
         if (skipCache) {
-            cached = getAppCssString(dependencies);
-        } else {
-            cached = getAltCachedString(uid, appDesc, key,
-                new Callable<String>() {
-                    @Override
-                    public String call() throws Exception {
-                        return getAppCssString(dependencies);
-                    }
-                }
-            );
-        }
-
-        if (out != null) {
-            out.append(cached);
+            return EncodedContent.encode(getAppCssString(dependencies));
         }
+        return getCachedContent(uid, appDesc, key,
+            new Callable<EncodedContent>() {
+                @Override
+                public EncodedContent call() throws Exception {
+                    return EncodedContent.encode(getAppCssString(dependencies));
+                }
+            }
+        );
     }
 
     private String getAppCssString(Set<DefDescriptor<?>> dependencies) throws QuickFixException, IOException {
@@ -350,15 +454,12 @@ public class ServerServiceImpl implements ServerService {
     public void writeDefinitions(final Set<DefDescriptor<?>> dependencies, Writer out)
             throws IOException, QuickFixException {
         AuraContext context = contextService.getCurrentContext();
-        final boolean minify = context.getMode().minify();
 
         context.setPreloading(true);
         DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
 
-        final String mKey = minify ? "MIN:" : "DEV:";
         final String uid = context.getUid(appDesc);
-        final String lockerServiceCacheBuster  = configAdapter.getLockerServiceCacheBuster();
-        final String key = "JS:" + mKey + uid + ":" + lockerServiceCacheBuster;
+        final String key = getAppJsKey(context, uid);
                 
         String cached = getAltCachedString(uid, appDesc, key,
                new Callable<String>() {
@@ -366,7 +467,8 @@ public class ServerServiceImpl implements ServerService {
                    public String call() throws Exception {
                        String res = getDefinitionsString(dependencies, key);
                        //log the cache miss here
-                       cachingService.getAltStringsCache().logCacheStatus("cache miss for key: "+key+";");
+                       cachingService.getAltStringsCache().logCacheStatus("cache miss for key: "+key
+                               +"; entry weight="+StringWeigher.INSTANCE.weigh(key, res)+";");
                        return res;
                    }
                });
@@ -376,24 +478,120 @@ public class ServerServiceImpl implements ServerService {
         }
     }
 
+    @Override
+    public EncodedContent getCachedAppJsContent() throws QuickFixException {
+        AuraContext context = contextService.getCurrentContext();
+
+        context.setPreloading(true);
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        String uid = context.getUid(appDesc);
+        String cacheKey = getCacheKey(uid, appDesc, getAppJsKey(context, uid));
+
+        return cacheKey != null ? encodedContentCache.getIfPresent(cacheKey) : null;
+    }
+
+    @Override
+    public void writeAppJs(Set<DefDescriptor<?>> dependencies, Encoding encoding, OutputStream out)
+            throws IOException, QuickFixException {
+        AuraContext context = contextService.getCurrentContext();
+
+        context.setPreloading(true);
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        String uid = context.getUid(appDesc);
+        String key = getAppJsKey(context, uid);
+        String cacheKey = getCacheKey(uid, appDesc, key);
+        long epoch = cachingService.getEpoch();
+
+        EncodedContent content = cacheKey != null ? encodedContentCache.getIfPresent(cacheKey) : null;
+        if (content != null) {
+            out.write(content.getBytes(encoding));
+            return;
+        }
+
+        //
+        // Load everything before writing anything, so that a failure to load is reported
+        // before the response is started.
+        //
+        LoadedDefinitions defs = loadDefinitions(dependencies);
+        if (cacheKey == null) {
+            // nothing will be kept, so only the encoding asked for is built.
+            try (Writer writer = EncodedContent.newWriter(out, encoding)) {
+                writer.append(APPJS_PREPEND);
+                appendDefinitions(defs, writer);
+                writer.append(APPJS_APPEND);
+            }
+            return;
+        }
+        try (EncodedContent.Builder builder = new EncodedContent.Builder(out, encoding)) {
+            builder.append(APPJS_PREPEND);
+            appendDefinitions(defs, builder);
+            builder.append(APPJS_APPEND);
+            content = builder.build();
+        }
+
+        // a source change while building would leave this stale, it is still written out, but not kept.
+        cachingService.putIfCurrent(encodedContentCache, cacheKey, content, epoch);
+        //log the cache miss here
+        encodedContentCache.logCacheStatus("cache miss for key: "+key
+                +"; entry weight="+EncodedContentWeigher.INSTANCE.weigh(cacheKey, content)+";");
+    }
+
+    private String getAppJsKey(AuraContext context, String uid) {
+        final String mKey = context.getMode().minify() ? "MIN:" : "DEV:";
+        final String lockerServiceCacheBuster  = configAdapter.getLockerServiceCacheBuster();
+        return "JS:" + mKey + uid + ":" + lockerServiceCacheBuster;
+    }
 
     private String getDefinitionsString (Set<DefDescriptor<?>> dependencies, String key)
             throws QuickFixException, IOException {
+        StringBuilder sb = new StringBuilder();
+        appendDefinitions(loadDefinitions(dependencies), sb);
+        return sb.toString();
+    }
 
+    /**
+     * The definitions that make up an app's JS, loaded before any of it is written.
+     */
+    private static class LoadedDefinitions {
+        private final Collection<LibraryDef> libraryDefs;
+        private final Collection<BaseComponentDef> componentDefs;
+        private final Collection<EventDef> events;
+        private final Collection<ControllerDef> controllers;
+
+        private LoadedDefinitions(Collection<LibraryDef> libraryDefs, Collection<BaseComponentDef> componentDefs,
+                Collection<EventDef> events, Collection<ControllerDef> controllers) {
+            this.libraryDefs = libraryDefs;
+            this.componentDefs = componentDefs;
+            this.events = events;
+            this.controllers = controllers;
+        }
+    }
+
+    private LoadedDefinitions loadDefinitions(Set<DefDescriptor<?>> dependencies) {
+        // Dunno how this got to be this way. The code in the Format adaptor was twisted and stupid,
+        // as it walked the namespaces looking up the same descriptor, with a string.format that had
+        // the namespace but did not use it. This ends up just getting a single controller.
+        return new LoadedDefinitions(filterAndLoad(LibraryDef.class, dependencies, null),
+                filterAndLoad(BaseComponentDef.class, dependencies, null),
+                filterAndLoad(EventDef.class, dependencies, null),
+                filterAndLoad(ControllerDef.class, dependencies, ACF));
+    }
+
+    /**
+     * Write the definitions of an app's JS, one segment at a time.
+     */
+    private void appendDefinitions(LoadedDefinitions defs, Appendable sb) throws QuickFixException, IOException {
         AuraContext context = contextService.getCurrentContext();
         boolean minify = context.getMode().minify();
         
         JsonSerializationContext serializationContext = context.getJsonSerializationContext();
         serializationContext.pushFormatRootItems();
         
-        StringBuilder sb = new StringBuilder();
-        
         // Process Libraries with a lower granularity level, to prevent duplication of external includes.
-        Collection<LibraryDef> libraryDefs = filterAndLoad(LibraryDef.class, dependencies, null);
-        for (LibraryDef libraryDef : libraryDefs) {
+        for (LibraryDef libraryDef : defs.libraryDefs) {
             List<IncludeDefRef> includeDefs = libraryDef.getIncludes();
             for (IncludeDefRef defRef : includeDefs) {
-            	sb.append("$A.componentService.addLibraryExporter(\"" + defRef.getClientDescriptor() + "\", function (){/*");
+            	sb.append("$A.componentService.addLibraryExporter(\"").append(defRef.getClientDescriptor()).append("\", function (){/*");
                 sb.append(defRef.getCode(minify));
                 sb.append("*/});");
                 	
@@ -401,46 +599,64 @@ public class ServerServiceImpl implements ServerService {
             }
         }
         
-        // Append component classes.
-        Collection<BaseComponentDef> componentDefs = filterAndLoad(BaseComponentDef.class, dependencies, null);
-        for (BaseComponentDef def : componentDefs) {
-            sb.append("$A.componentService.addComponent(\"" + def.getDescriptor() + "\", function (){/*");
-            
-            	// Mark class as loaded in the client
-            	context.setClientClassLoaded(def.getDescriptor(), true);
-            	
-            	// Component Class
-            	sb.append(def.getCode(minify));
-            	
-            	// Component definition
-            	sb.append("return ");
-            	serializationService.write(def, null, BaseComponentDef.class, sb, "JSON");
-            	sb.append(";");
-
-            sb.append("*/});\n");
+        // Append component classes, reusing the segments already serialized for other apps.
+        Cache<String, String> fragmentCache = cachingService.getDefinitionFragmentCache();
+        String fragmentSuffix = "@" + context.getMode().name() + "@" + configAdapter.getLockerServiceCacheBuster();
+        long epoch = cachingService.getEpoch();
+        for (BaseComponentDef def : defs.componentDefs) {
+            // Mark class as loaded in the client
+            context.setClientClassLoaded(def.getDescriptor(), true);
+
+            String ownHash = def.getOwnHash();
+            String fragmentKey = ownHash != null ? def.getDescriptor().getQualifiedName() + "@" + ownHash
+                    + fragmentSuffix : null;
+            String fragment = fragmentKey != null ? fragmentCache.getIfPresent(fragmentKey) : null;
+            if (fragment == null) {
+                StringBuilder fb = new StringBuilder();
+                appendComponent(def, minify, fb);
+                fragment = fb.toString();
+                if (fragmentKey != null) {
+                    cachingService.putIfCurrent(fragmentCache, fragmentKey, fragment, epoch);
+                }
+            }
+            sb.append(fragment);
         }
 
         // Append event definitions
         sb.append("$A.componentService.initEventDefs(");
-        Collection<EventDef> events = filterAndLoad(EventDef.class, dependencies, null);
-        serializationService.writeCollection(events, EventDef.class, sb, "JSON");
+        serializationService.writeCollection(defs.events, EventDef.class, sb, "JSON");
         sb.append(");\n");
 
         // Append library definitions
         sb.append("$A.componentService.initLibraryDefs(");
-        serializationService.writeCollection(libraryDefs, LibraryDef.class, sb, "JSON");
+        serializationService.writeCollection(defs.libraryDefs, LibraryDef.class, sb, "JSON");
         sb.append(");\n");
 
         // Append controller definitions
-        // Dunno how this got to be this way. The code in the Format adaptor was twisted and stupid,
-        // as it walked the namespaces looking up the same descriptor, with a string.format that had
-        // the namespace but did not use it. This ends up just getting a single controller.
         sb.append("$A.componentService.initControllerDefs(");
-        Collection<ControllerDef> controllers = filterAndLoad(ControllerDef.class, dependencies, ACF);
-        serializationService.writeCollection(controllers, ControllerDef.class, sb, "JSON");
+        serializationService.writeCollection(defs.controllers, ControllerDef.class, sb, "JSON");
         sb.append(");\n");
+    }
 
-        return sb.toString();
+    /**
+     * Write the addComponent segment of a single component.
+     *
+     * The segment only depends on the definition, the mode and the locker configuration, as long as the context is
+     * preloading and the component class is marked loaded, which is always the case for app.js.
+     */
+    private void appendComponent(BaseComponentDef def, boolean minify, Appendable sb)
+            throws QuickFixException, IOException {
+        sb.append("$A.componentService.addComponent(\"").append(def.getDescriptor().toString()).append("\", function (){/*");
+
+        // Component Class
+        sb.append(def.getCode(minify));
+
+        // Component definition
+        sb.append("return ");
+        serializationService.write(def, null, BaseComponentDef.class, sb, "JSON");
+        sb.append(";");
+
+        sb.append("*/});\n");
     }
 
     @Override
@@ -521,7 +737,7 @@ public class ServerServiceImpl implements ServerService {
      */
     private String getCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader)
             throws QuickFixException, IOException {
-        return getCachedString(stringsCache, uid, descriptor, key, loader);
+        return getCached(stringsCache, uid, descriptor, key, loader);
     }
 
     /**
@@ -536,24 +752,35 @@ public class ServerServiceImpl implements ServerService {
      */
     private String getAltCachedString(String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader)
             throws QuickFixException, IOException {
-        return getCachedString(altStringsCache, uid, descriptor, key, loader);
+        return getCached(altStringsCache, uid, descriptor, key, loader);
     }
 
-    private String getCachedString(Cache<String, String> cache, String uid, DefDescriptor<?> descriptor, String key, Callable<String> loader) throws QuickFixException, IOException {
-        if (uid != null) {
-            AuraContext context = contextService.getCurrentContext();
-            DependencyEntry de = context.getLocalDependencyEntry(uid);
+    /**
+     * Get named, encoded content from the cache for a cacheable definition.
+     *
+     * @param uid the UID for the definition (must have called {@link #getUid(String, DefDescriptor<?>)}).
+     * @param descriptor the descriptor.
+     * @param key the key.
+     * @param loader the loader for the content
+     * @throws QuickFixException
+     * @throws IOException 
+     */
+    private EncodedContent getCachedContent(String uid, DefDescriptor<?> descriptor, String key,
+            Callable<EncodedContent> loader) throws QuickFixException, IOException {
+        return getCached(encodedContentCache, uid, descriptor, key, loader);
+    }
 
-            if (de != null) {
-                try {
-                    return cache.get(getKey(de, descriptor, key), loader);
-                } catch (ExecutionException e) {
-                    // Don't interfere if the callable caused these exceptions.
-                    Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
-                    Throwables.propagateIfInstanceOf(e.getCause(), QuickFixException.class);
-                    // Propagates as-is if RuntimeException, or wraps with a RuntimeException.
-                    Throwables.propagate(e);
-                }
+    private <V> V getCached(Cache<String, V> cache, String uid, DefDescriptor<?> descriptor, String key, Callable<V> loader) throws QuickFixException, IOException {
+        String cacheKey = getCacheKey(uid, descriptor, key);
+        if (cacheKey != null) {
+            try {
+                return cache.get(cacheKey, loader);
+            } catch (ExecutionException e) {
+                // Don't interfere if the callable caused these exceptions.
+                Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                Throwables.propagateIfInstanceOf(e.getCause(), QuickFixException.class);
+                // Propagates as-is if RuntimeException, or wraps with a RuntimeException.
+                Throwables.propagate(e);
             }
         }
 
@@ -571,6 +798,22 @@ public class ServerServiceImpl implements ServerService {
         return null;
     }
 
+    /**
+     * Get the key to cache a named string or content under for a definition.
+     *
+     * @return the key, or null if the definition is not cacheable.
+     */
+    private String getCacheKey(String uid, DefDescriptor<?> descriptor, String key) {
+        if (uid == null) {
+            return null;
+        }
+        DependencyEntry de = contextService.getCurrentContext().getLocalDependencyEntry(uid);
+        if (de == null) {
+            return null;
+        }
+        return getKey(de, descriptor, key);
+    }
+
     private String getKey(DependencyEntry de, DefDescriptor<?> descriptor, String key) {
         return String.format("%s@%s@%s", de.uid, descriptor.getQualifiedName().toLowerCase(), key);
     }
@@ -753,6 +753,40 @@ public class ServletUtilAdapterImpl implements ServletUtilAdapter {
         return definitionService.getDependencies(uid);
     }
 
+    @Override
+    public boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String etag) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        // set on the full response and the 304 alike, caches must see the same Vary on both.
+        response.setHeader(HttpHeaders.VARY, "Accept-Encoding");
+        String ifNoneMatch = request != null ? request.getHeader(HttpHeaders.IF_NONE_MATCH) : null;
+        if (ifNoneMatch == null || !matchesEntityTag(ifNoneMatch, etag)) {
+            return false;
+        }
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    /**
+     * Does an If-None-Match header match a tag.
+     *
+     * If-None-Match uses the weak comparison, so a W/ prefix on a listed tag is ignored.
+     */
+    private boolean matchesEntityTag(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * get the manifest URL.
      *
@@ -19,7 +19,6 @@ import com.google.common.collect.Lists;
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.def.ActionDef;
 import org.auraframework.def.ComponentDef;
-import org.auraframework.def.DefDescriptor;
 import org.auraframework.instance.Action;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
@@ -28,7 +27,11 @@ import org.auraframework.system.AuraContext;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.JsonEncoder;
-import org.auraframework.util.json.JsonReader;
+import org.auraframework.util.json.JsonHandler.JsonValidationException;
+import org.auraframework.util.json.JsonHandlerProvider;
+import org.auraframework.util.json.JsonHandlerProviderImpl;
+import org.auraframework.util.json.JsonObjectHandler;
+import org.auraframework.util.json.JsonStreamReader;
 
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
@@ -44,44 +47,57 @@ public class MessageJSONFormatAdapter extends JSONFormatAdapter<Message> {
     @Inject
     private ContextService contextService;
 
-    @Inject
     private InstanceService instanceService;
 
-    @Inject
     private DefinitionService definitionService;
-    
+
+    /**
+     * Injection override.
+     */
+    @Inject
+    public void setInstanceService(InstanceService instanceService) {
+        this.instanceService = instanceService;
+    }
+
+    /**
+     * Injection override.
+     */
+    @Inject
+    public void setDefinitionService(DefinitionService definitionService) {
+        this.definitionService = definitionService;
+    }
+
     @Override
     public Class<Message> getType() {
         return Message.class;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Read a message, creating each action as soon as its object is closed.
+     *
+     * Only the actions are kept, the JSON of an action is dropped once the action is created, so a large message
+     * never exists as a tree of maps and lists in addition to its actions. This does nothing for the text of the
+     * message, which callers still hold in full.
+     *
+     * Parameters keep the types the JSON reader gives them (numbers are BigDecimals), and are converted to the types
+     * the action declares when it runs.
+     */
     @Override
     public Message read(Reader in) throws IOException, QuickFixException {
-        Map<?, ?> message = (Map<?, ?>) new JsonReader().read(in);
+        JsonStreamReader reader = new JsonStreamReader(in, messageHandlerProvider);
+        Object message;
+        try {
+            reader.next();
+            message = reader.getValue();
+        } catch (ActionInstanceException aie) {
+            throw aie.getCause();
+        }
 
-        List<?> actions = (List<?>) message.get("actions");
         List<Action> actionList = Lists.newArrayList();
+        Object actions = ((Map<?, ?>) message).get("actions");
         if (actions != null) {
-            for (Object action : actions) {
-                Map<?, ?> map = (Map<?, ?>) action;
-
-                // FIXME: ints are getting translated into BigDecimals here.
-                Map<String, Object> params = (Map<String, Object>) map.get("params");
-
-                Action instance = (Action) instanceService.getInstance((String) map.get("descriptor"),
-                        ActionDef.class, params);
-                instance.setId((String) map.get("id"));
-                String cd = (String) map.get("callingDescriptor");
-                if (cd != null && !cd.equals("UNKNOWN")) {
-                    DefDescriptor<ComponentDef> callingDescriptor = definitionService.getDefDescriptor(cd, ComponentDef.class);
-                    instance.setCallingDescriptor(callingDescriptor);
-                }
-                String v = (String) map.get("version");
-                if (v != null) {
-                    instance.setCallerVersion(v);
-                }
-                actionList.add(instance);
+            for (Object action : (List<?>) actions) {
+                actionList.add((Action) action);
             }
         }
 
@@ -100,4 +116,98 @@ public class MessageJSONFormatAdapter extends JSONFormatAdapter<Message> {
         m.put("context", c);
         JsonEncoder.serialize(m, out, c.getJsonSerializationContext());
     }
+
+    /**
+     * Provides the handlers for the top level message object, only the actions are read specially.
+     */
+    private final JsonHandlerProvider messageHandlerProvider = new JsonHandlerProviderImpl() {
+        @Override
+        public JsonHandlerProvider getObjectEntryHandlerProvider(String key) {
+            return "actions".equals(key) ? actionsHandlerProvider : null;
+        }
+    };
+
+    private final JsonHandlerProvider actionsHandlerProvider = new JsonHandlerProviderImpl() {
+        @Override
+        public JsonHandlerProvider getArrayEntryHandlerProvider() {
+            return actionHandlerProvider;
+        }
+    };
+
+    private final JsonHandlerProvider actionHandlerProvider = new JsonHandlerProviderImpl() {
+        @Override
+        public JsonObjectHandler getObjectHandler() {
+            return new ActionHandler();
+        }
+    };
+
+    /**
+     * Collects the entries of a single action, and creates the action when the object is closed.
+     */
+    private class ActionHandler extends JsonObjectHandler {
+        private String descriptor;
+        private String id;
+        private String callingDescriptor;
+        private String version;
+        private Map<String, Object> params;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void put(String key, Object value) throws JsonValidationException {
+            switch (key) {
+            case "descriptor":
+                descriptor = (String) value;
+                break;
+            case "id":
+                id = (String) value;
+                break;
+            case "callingDescriptor":
+                callingDescriptor = (String) value;
+                break;
+            case "version":
+                version = (String) value;
+                break;
+            case "params":
+                // converted to the declared types when the action runs.
+                params = (Map<String, Object>) value;
+                break;
+            default:
+            }
+        }
+
+        @Override
+        public Object getValue() {
+            Action instance;
+            try {
+                instance = (Action) instanceService.getInstance(descriptor, ActionDef.class, params);
+            } catch (QuickFixException qfe) {
+                throw new ActionInstanceException(qfe);
+            }
+            instance.setId(id);
+            if (callingDescriptor != null && !callingDescriptor.equals("UNKNOWN")) {
+                instance.setCallingDescriptor(definitionService.getDefDescriptor(callingDescriptor,
+                        ComponentDef.class));
+            }
+            if (version != null) {
+                instance.setCallerVersion(version);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Carries a failure to create an action out of the json reader, which only lets unchecked exceptions through.
+     */
+    private static class ActionInstanceException extends RuntimeException {
+        private static final long serialVersionUID = 4118402573941742541L;
+
+        private ActionInstanceException(QuickFixException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized QuickFixException getCause() {
+            return (QuickFixException) super.getCause();
+        }
+    }
 }
@@ -15,6 +15,10 @@
  */
 package org.auraframework.impl.cache;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.system.LoggingContext;
 
@@ -33,8 +37,19 @@ import com.google.common.cache.RemovalNotification;
  * throttling. The upper bound causes a log line to be logged every N milliseconds, even
  * without activity. The interval defines how many evictions to consider as "pressure". It
  * will log at the eviction interval regardless of other activity.
+ *
+ * Removals are also counted by cause, so that size evictions can be told apart from
+ * collected (soft reference), expired and explicit removals. The counts are appended to
+ * the log lines, and are available from {@link #getRemovalCounts()}.
+ *
+ * Entries dropped by the cache itself, rather than invalidated or replaced, are passed on to
+ * the eviction listener given to the cache builder, if there is one.
+ *
+ * The listener can be attached to either cache engine: it listens to Guava removals for
+ * {@link CacheImpl} and Caffeine removals for {@link FrequencyCacheImpl}.
  */
-public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T> {
+public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T>,
+        com.github.benmanes.caffeine.cache.RemovalListener<K, T> {
 
     /** A name for the cache being listened to, to clarifiy in logs which one evicted */
     private final String name;
@@ -44,6 +59,15 @@ public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T> {
     /** The cache for this listener, to fetch statistics. */
     private com.google.common.cache.Cache<K, T> cache;
 
+    /** The frequency cache for this listener, if it is listening to that engine instead. */
+    private com.github.benmanes.caffeine.cache.Cache<K, T> frequencyCache;
+
+    /** Told of entries the cache dropped on its own, may be null. */
+    private BiConsumer<? super K, ? super T> evictionListener;
+
+    /** Count of removals, indexed by the ordinal of their cause. */
+    private final long[] removals = new long[RemovalCause.values().length];
+
     /** Count of log-worth evictions, to avoid spamming the log*/
     private long evictions = 0;
 
@@ -84,6 +108,62 @@ public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T> {
         this.cache = cache;
     }
 
+    public void setCache(com.github.benmanes.caffeine.cache.Cache<K, T> frequencyCache) {
+        this.frequencyCache = frequencyCache;
+    }
+
+    public void setEvictionListener(BiConsumer<? super K, ? super T> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Get the number of removals seen so far, by cause.
+     *
+     * Causes that have not been seen are not present in the map.
+     */
+    public Map<RemovalCause, Long> getRemovalCounts() {
+        Map<RemovalCause, Long> counts = new EnumMap<>(RemovalCause.class);
+        synchronized (this) {
+            for (RemovalCause cause : RemovalCause.values()) {
+                if (removals[cause.ordinal()] > 0) {
+                    counts.put(cause, removals[cause.ordinal()]);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * A suffix for log messages describing removals by cause, empty if nothing was recorded.
+     */
+    String getRemovalSummary() {
+        Map<RemovalCause, Long> counts = getRemovalCounts();
+        if (counts.isEmpty()) {
+            return "";
+        }
+        return ", removals=" + counts;
+    }
+
+    private void recordRemoval(RemovalCause cause) {
+        synchronized (this) {
+            removals[cause.ordinal()]++;
+        }
+    }
+
+    private CacheStats getStats() {
+        if (frequencyCache != null) {
+            return FrequencyCacheImpl.toCacheStats(frequencyCache.stats());
+        }
+        return cache.stats();
+    }
+
+    private long getSize() {
+        if (frequencyCache != null) {
+            return frequencyCache.estimatedSize();
+        }
+        return cache.size();
+    }
+
     public void onRemoval(boolean isSize) {
         long current = System.currentTimeMillis();
         boolean haveLogging = (loggingAdapter != null && loggingAdapter.isEstablished());
@@ -116,18 +196,19 @@ public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T> {
         if (haveLogging) {
             if (emitForPressure) {
                 LoggingContext loggingCtx = loggingAdapter.getLoggingContext();
-                CacheStats stats = cache.stats();
+                CacheStats stats = getStats();
                 loggingCtx.logCacheInfo(name,
                         String.format("evicted %d entries for size pressure, hit rate=%.3f",
-                                evictions, stats.hitRate()),
-                                cache.size(), stats);
+                                evictions, stats.hitRate()) + getRemovalSummary(),
+                                getSize(), stats);
             } else if (maxTimeHasPassed) {
                 // Even without size pressure, we want to log occasionally
                 LoggingContext loggingCtx = loggingAdapter.getLoggingContext();
-                CacheStats stats = cache.stats();
+                CacheStats stats = getStats();
                 loggingCtx.logCacheInfo(name,
-                        String.format("cache has little size pressure, hit rate=%.3f", stats.hitRate()),
-                        cache.size(), stats);
+                        String.format("cache has little size pressure, hit rate=%.3f", stats.hitRate())
+                                + getRemovalSummary(),
+                        getSize(), stats);
             }
         }
     }
@@ -137,6 +218,31 @@ public class CacheEvictionListenerImpl<K, T> implements RemovalListener<K, T> {
      */
     @Override
     public void onRemoval(RemovalNotification<K, T> notification) {
+        recordRemoval(notification.getCause());
+        if (notification.wasEvicted()) {
+            notifyEvicted(notification.getKey(), notification.getValue());
+        }
         onRemoval(notification.getCause() == RemovalCause.SIZE);
     }
+
+    /**
+     * Removals from the frequency engine. The Caffeine causes share their names with Guava's.
+     */
+    @Override
+    public void onRemoval(K key, T value, com.github.benmanes.caffeine.cache.RemovalCause cause) {
+        recordRemoval(RemovalCause.valueOf(cause.name()));
+        if (cause.wasEvicted()) {
+            notifyEvicted(key, value);
+        }
+        onRemoval(cause == com.github.benmanes.caffeine.cache.RemovalCause.SIZE);
+    }
+
+    /**
+     * Pass on an eviction. Collected entries may have lost their key or value, and are passed on with what is left.
+     */
+    private void notifyEvicted(K key, T value) {
+        if (evictionListener != null) {
+            evictionListener.accept(key, value);
+        }
+    }
 }
@@ -15,17 +15,33 @@
  */
 package org.auraframework.impl.cache;
 
+import com.google.common.cache.CacheLoader;
 import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheEngine;
 import org.auraframework.system.LoggingContext;
+import org.auraframework.throwable.AuraRuntimeException;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 @ServiceComponent
 public class CacheImpl<K, T> implements Cache<K, T> {
@@ -35,13 +51,16 @@ public class CacheImpl<K, T> implements Cache<K, T> {
     private static final String UNNAMED = "(unnamed)";
 
     /** Longest interval at which to log cache stats in "normal" operation */
-    private static final long ONE_HOUR = 1000 * 60 * 60;
+    static final long ONE_HOUR = 1000 * 60 * 60;
 
     /** Shortest interval at which to log cache stats in "normal" operation */
-    private static final long ONE_MINUTE = 1000 * 60;
+    static final long ONE_MINUTE = 1000 * 60;
 
     private com.google.common.cache.Cache<K, T> cache;
     private String name;
+    private CacheEvictionListenerImpl<K, T> listener;
+    private Weigher<? super K, ? super T> weigher;
+    private long maximumWeight;
 
     CacheImpl(com.google.common.cache.Cache<K, T> cache) {
         this.cache = cache;
@@ -53,25 +72,77 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         LoggingContext loggingCtx = this.loggingAdapter.getLoggingContext();
         CacheStats stats = cache.stats();
         loggingCtx.logCacheInfo(name,
-                String.format(extraMessage+"hit rate=%.3f", stats.hitRate()),
+                String.format(extraMessage+"hit rate=%.3f", stats.hitRate()) + getWeightSummary()
+                        + (listener != null ? listener.getRemovalSummary() : ""),
                 cache.size(), stats);
     }
 
+    /**
+     * A suffix for log messages describing the weight of the cache, empty if it is not weighed.
+     */
+    private String getWeightSummary() {
+        if (weigher == null) {
+            return "";
+        }
+        return summarizeWeights(cache.asMap(), weigher, maximumWeight);
+    }
+
+    /**
+     * The number of the heaviest entries named in a weight summary.
+     */
+    static final int HEAVIEST_ENTRY_COUNT = 3;
+
+    /**
+     * Describe the weight of a weighed cache: the total against the maximum, the average, and the heaviest entries
+     * with their keys, so that a few oversized entries stand out from many small ones.
+     *
+     * Neither engine tracks the weight of each entry for us, so this walks the entries. It is only meant for weighed
+     * caches, which hold few, large entries.
+     */
+    static <K, T> String summarizeWeights(Map<K, T> entries, Weigher<? super K, ? super T> weigher,
+            long maximumWeight) {
+        long total = 0;
+        long count = 0;
+        PriorityQueue<Map.Entry<K, Integer>> heaviest = new PriorityQueue<>(HEAVIEST_ENTRY_COUNT + 1,
+                (a, b) -> Integer.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<K, T> entry : entries.entrySet()) {
+            int weight = weigher.weigh(entry.getKey(), entry.getValue());
+            total += weight;
+            count++;
+            heaviest.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), weight));
+            if (heaviest.size() > HEAVIEST_ENTRY_COUNT) {
+                heaviest.poll();
+            }
+        }
+        List<Map.Entry<K, Integer>> sorted = new ArrayList<>(heaviest);
+        sorted.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        return String.format(", weight=%d of %d, average entry weight=%d, heaviest entries=%s",
+                total, maximumWeight, count > 0 ? total / count : 0, sorted);
+    }
+
     public CacheImpl(Builder<K, T> builder) {
         this.loggingAdapter = builder.loggingAdapter;
-        
-        // if builder.useSecondaryStorage is true, we should try to use a
-        // non-quava secondary-storage cache with streaming ability
 
         com.google.common.cache.CacheBuilder<Object, Object> cb = com.google.common.cache.CacheBuilder
                 .newBuilder().initialCapacity(builder.initialCapacity)
-                .maximumSize(builder.maximumSize)
                 .concurrencyLevel(builder.concurrencyLevel);
 
+        if (builder.weigher != null) {
+            weigher = builder.weigher;
+            maximumWeight = builder.maximumWeight;
+            cb.maximumWeight(builder.maximumWeight).weigher(builder.weigher);
+        } else {
+            cb.maximumSize(builder.maximumSize);
+        }
+
         if (builder.recordStats) {
             cb = cb.recordStats();
         }
 
+        if (builder.expireAfterWriteNanos > 0) {
+            cb = cb.expireAfterWrite(builder.expireAfterWriteNanos, TimeUnit.NANOSECONDS);
+        }
+
         if (builder.softValues) {
             cb = cb.softValues();
         }
@@ -81,14 +152,43 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             name = builder.name;
         }
 
-        CacheEvictionListenerImpl<K, T> listener;
-       
         listener = new CacheEvictionListenerImpl<>(name, this.loggingAdapter, ONE_MINUTE, ONE_HOUR, 1000);
+        listener.setEvictionListener(builder.evictionListener);
         cb.removalListener(listener);
-        cache = cb.build();
+
+        if (builder.reloader != null && builder.refreshAfterWriteNanos > 0) {
+            cb.refreshAfterWrite(builder.refreshAfterWriteNanos, TimeUnit.NANOSECONDS);
+            cache = cb.build(new Reloader<K, T>(builder.reloader));
+        } else {
+            cache = cb.build();
+        }
         listener.setCache(cache);
     }
 
+    /**
+     * Loads entries through the builder's reloader, reloading in the background so the stale value is served
+     * meanwhile, as the frequency engine does.
+     */
+    private static class Reloader<K, T> extends CacheLoader<K, T> {
+        private final Function<? super K, ? extends T> reloader;
+
+        private Reloader(Function<? super K, ? extends T> reloader) {
+            this.reloader = reloader;
+        }
+
+        @Override
+        public T load(K key) {
+            return reloader.apply(key);
+        }
+
+        @Override
+        public ListenableFuture<T> reload(K key, T oldValue) {
+            ListenableFutureTask<T> task = ListenableFutureTask.create(() -> load(key));
+            ForkJoinPool.commonPool().execute(task);
+            return task;
+        }
+    }
+
     @Override
     public T getIfPresent(K key) {
         return cache.getIfPresent(key);
@@ -164,9 +264,18 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         int initialCapacity = 128;
         int concurrencyLevel = 4;
         long maximumSize = 1024;
+        long maximumWeight = -1;
+        Weigher<? super K, ? super T> weigher;
+        CacheEngine engine = CacheEngine.LRU;
+        long refreshAfterWriteNanos = -1;
+        Function<? super K, ? extends T> reloader;
+        long expireAfterWriteNanos = -1;
+        BiConsumer<? super K, ? super T> evictionListener;
         boolean recordStats = false;
         boolean softValues = true;
         boolean useSecondaryStorage = false;
+        File secondaryStorageLocation;
+        long secondaryStorageMaximumSize = 1024L * 1024L * 1024L;
         String name;
 
         public Builder() {
@@ -198,6 +307,18 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             return this;
         }
 
+        @Override
+        public Builder<K, T> setSecondaryStorageLocation(File secondaryStorageLocation) {
+            this.secondaryStorageLocation = secondaryStorageLocation;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setSecondaryStorageMaximumSize(long secondaryStorageMaximumSize) {
+            this.secondaryStorageMaximumSize = secondaryStorageMaximumSize;
+            return this;
+        }
+
         @Override
         public Builder<K, T> setRecordStats(boolean recordStats) {
             this.recordStats = recordStats;
@@ -223,8 +344,70 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         }
 
         @Override
-        public CacheImpl<K, T> build() {
-            return new CacheImpl<>(this);
+        public Builder<K, T> setEngine(CacheEngine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setWeigher(Weigher<? super K, ? super T> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setMaximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setRefreshAfterWrite(long duration, TimeUnit unit,
+                Function<? super K, ? extends T> reloader) {
+            this.refreshAfterWriteNanos = unit.toNanos(duration);
+            this.reloader = reloader;
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setExpireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        @Override
+        public Builder<K, T> setEvictionListener(BiConsumer<? super K, ? super T> evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        @Override
+        public Cache<K, T> build() {
+            Cache<K, T> cache;
+            if (engine == CacheEngine.FREQUENCY) {
+                cache = new FrequencyCacheImpl<>(this);
+            } else {
+                cache = new CacheImpl<>(this);
+            }
+            if (useSecondaryStorage) {
+                cache = new TieredCacheImpl<>(cache, createSecondaryStorage());
+            }
+            return cache;
+        }
+
+        /**
+         * A store in the configured location, or in a directory of our own under the temporary directory,
+         * which is deleted when the process exits.
+         */
+        private MappedStringStore<K> createSecondaryStorage() {
+            if (secondaryStorageLocation != null) {
+                return new MappedStringStore<>(secondaryStorageLocation, secondaryStorageMaximumSize);
+            }
+            try {
+                return MappedStringStore.createTemporary(name == null ? "unnamed" : name, secondaryStorageMaximumSize);
+            } catch (IOException ioe) {
+                throw new AuraRuntimeException("Unable to create secondary storage for cache " + name, ioe);
+            }
         }
     }
 }
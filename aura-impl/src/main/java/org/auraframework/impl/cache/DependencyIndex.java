@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.system.DependencyEntry;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A reverse index from descriptors to the dependency entries that include them.
+ *
+ * Each dependency entry put in the global deps cache is recorded here with the keys it was
+ * cached under. When a source changes, the entries that depend on it can then be removed
+ * along with everything cached under their uid, rather than emptying every cache.
+ *
+ * Entries are dropped from the index when one of their dependencies changes, when the index is
+ * cleared, and when the deps cache lets go of the last key they were cached under.
+ */
+public class DependencyIndex {
+    private static class IndexedEntry {
+        private final DependencyEntry entry;
+        private final Set<String> keys = Sets.newHashSet();
+
+        private IndexedEntry(DependencyEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    /** descriptor to the uids of the entries that include it. Guarded by this. */
+    private final Map<DefDescriptor<?>, Set<String>> dependents = Maps.newHashMap();
+
+    /** uid to the entry and its deps cache keys. Guarded by this. */
+    private final Map<String, IndexedEntry> entries = Maps.newHashMap();
+
+    /** deps cache key to the uid of the entry cached under it. Guarded by this. */
+    private final Map<String, String> uids = Maps.newHashMap();
+
+    /**
+     * Record a dependency entry cached under the given key.
+     *
+     * Entries that failed to compile are never cached globally, and are ignored.
+     *
+     * @param key the deps cache key.
+     * @param de the entry.
+     */
+    public synchronized void add(String key, DependencyEntry de) {
+        if (de.uid == null || de.dependencies == null) {
+            return;
+        }
+        IndexedEntry indexed = entries.get(de.uid);
+        if (indexed == null) {
+            indexed = new IndexedEntry(de);
+            entries.put(de.uid, indexed);
+            for (DefDescriptor<?> dependency : de.dependencies) {
+                Set<String> uids = dependents.get(dependency);
+                if (uids == null) {
+                    uids = Sets.newHashSet();
+                    dependents.put(dependency, uids);
+                }
+                uids.add(de.uid);
+            }
+        }
+        indexed.keys.add(key);
+        uids.put(key, de.uid);
+    }
+
+    /**
+     * Forget a deps cache key, and the entry cached under it once it has no keys left.
+     *
+     * @param key the deps cache key that was removed.
+     * @param de the entry that was cached under it, or null if it is no longer known.
+     */
+    public synchronized void remove(String key, DependencyEntry de) {
+        String uid = (de != null && de.uid != null) ? de.uid : uids.get(key);
+        if (uid == null) {
+            return;
+        }
+        IndexedEntry indexed = entries.get(uid);
+        if (indexed == null) {
+            return;
+        }
+        indexed.keys.remove(key);
+        uids.remove(key, uid);
+        if (indexed.keys.isEmpty()) {
+            entries.remove(uid);
+            unlink(uid, indexed);
+        }
+    }
+
+    /**
+     * Remove every entry that depends on one of the given descriptors.
+     *
+     * @param changed the descriptors that changed.
+     * @return the removed uids, each with the deps cache keys it was cached under.
+     */
+    public synchronized Map<String, Set<String>> remove(Collection<DefDescriptor<?>> changed) {
+        Map<String, Set<String>> removed = Maps.newHashMap();
+        for (DefDescriptor<?> descriptor : changed) {
+            Set<String> dependentUids = dependents.remove(descriptor);
+            if (dependentUids == null) {
+                continue;
+            }
+            for (String uid : dependentUids) {
+                IndexedEntry indexed = entries.remove(uid);
+                if (indexed == null) {
+                    continue;
+                }
+                removed.put(uid, indexed.keys);
+                for (String key : indexed.keys) {
+                    uids.remove(key, uid);
+                }
+                unlink(uid, indexed);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove a uid from the dependents of everything its entry depends on.
+     */
+    private void unlink(String uid, IndexedEntry indexed) {
+        for (DefDescriptor<?> dependency : indexed.entry.dependencies) {
+            Set<String> others = dependents.get(dependency);
+            if (others != null) {
+                others.remove(uid);
+                if (others.isEmpty()) {
+                    dependents.remove(dependency);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        dependents.clear();
+        entries.clear();
+        uids.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import org.auraframework.util.EncodedContent;
+
+import com.google.common.cache.Weigher;
+
+/**
+ * Weighs encoded content cache entries by their approximate heap size in bytes.
+ *
+ * The key is counted at two bytes per character, the content at the bytes of all of its encodings.
+ */
+public class EncodedContentWeigher implements Weigher<String, EncodedContent> {
+    public static final EncodedContentWeigher INSTANCE = new EncodedContentWeigher();
+
+    private EncodedContentWeigher() {
+    }
+
+    @Override
+    public int weigh(String key, EncodedContent value) {
+        long bytes = 2L * key.length() + value.size();
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.auraframework.adapter.LoggingAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.system.LoggingContext;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A cache built on Caffeine, for {@link org.auraframework.cache.CacheEngine#FREQUENCY}.
+ *
+ * Admission is decided by W-TinyLFU, so a burst of one-off keys cannot flush the
+ * frequently used entries, and values are held strongly rather than through soft
+ * references, so the garbage collector cannot empty the cache all at once. The cache
+ * may be bounded by weight, and may refresh entries in the background after write.
+ */
+public class FrequencyCacheImpl<K, T> implements Cache<K, T> {
+    /** A default name string */
+    private static final String UNNAMED = "(unnamed)";
+
+    private final LoggingAdapter loggingAdapter;
+    private final com.github.benmanes.caffeine.cache.Cache<K, T> cache;
+    private final String name;
+    private final CacheEvictionListenerImpl<K, T> listener;
+    private final com.google.common.cache.Weigher<? super K, ? super T> weigher;
+    private final long maximumWeight;
+
+    FrequencyCacheImpl(CacheImpl.Builder<K, T> builder) {
+        this.loggingAdapter = builder.loggingAdapter;
+        this.name = (builder.name == null) ? UNNAMED : builder.name;
+
+        Caffeine<Object, Object> cb = Caffeine.newBuilder().initialCapacity(builder.initialCapacity);
+
+        this.weigher = builder.weigher;
+        this.maximumWeight = builder.maximumWeight;
+        if (weigher != null) {
+            Weigher<K, T> adapter = (key, value) -> weigher.weigh(key, value);
+            cb.maximumWeight(maximumWeight).weigher(adapter);
+        } else {
+            cb.maximumSize(builder.maximumSize);
+        }
+
+        if (builder.recordStats) {
+            cb.recordStats();
+        }
+
+        if (builder.expireAfterWriteNanos > 0) {
+            cb.expireAfterWrite(builder.expireAfterWriteNanos, TimeUnit.NANOSECONDS);
+        }
+
+        listener = new CacheEvictionListenerImpl<>(name, this.loggingAdapter,
+                CacheImpl.ONE_MINUTE, CacheImpl.ONE_HOUR, 1000);
+        listener.setEvictionListener(builder.evictionListener);
+        cb.removalListener(listener);
+
+        if (builder.reloader != null && builder.refreshAfterWriteNanos > 0) {
+            cb.refreshAfterWrite(builder.refreshAfterWriteNanos, TimeUnit.NANOSECONDS);
+            final java.util.function.Function<? super K, ? extends T> reloader = builder.reloader;
+            cache = cb.build(key -> reloader.apply(key));
+        } else {
+            cache = cb.build();
+        }
+        listener.setCache(cache);
+    }
+
+    /**
+     * Convert Caffeine statistics to the form expected by {@link LoggingContext}.
+     */
+    static CacheStats toCacheStats(com.github.benmanes.caffeine.cache.stats.CacheStats stats) {
+        return new CacheStats(stats.hitCount(), stats.missCount(), stats.loadSuccessCount(),
+                stats.loadFailureCount(), stats.totalLoadTime(), stats.evictionCount());
+    }
+
+    @Override
+    public void logCacheStatus(String extraMessage) {
+        LoggingContext loggingCtx = this.loggingAdapter.getLoggingContext();
+        CacheStats stats = toCacheStats(cache.stats());
+        loggingCtx.logCacheInfo(name,
+                String.format(extraMessage+"hit rate=%.3f", stats.hitRate()) + getWeightSummary()
+                        + listener.getRemovalSummary(),
+                cache.estimatedSize(), stats);
+    }
+
+    /**
+     * A suffix for log messages describing the weight of the cache, empty if it is not weighed.
+     */
+    private String getWeightSummary() {
+        if (weigher == null) {
+            return "";
+        }
+        return CacheImpl.summarizeWeights(cache.asMap(), weigher, maximumWeight);
+    }
+
+    @Override
+    public T getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Get a value, loading it if absent.
+     *
+     * Failures are reported the same way as the Guava engine: checked exceptions are wrapped
+     * in an {@link ExecutionException} and unchecked ones in an {@link UncheckedExecutionException}.
+     */
+    @Override
+    public T get(K key, Callable<T> loader) throws ExecutionException {
+        try {
+            return cache.get(key, k -> {
+                try {
+                    return loader.call();
+                } catch (Error | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new LoaderException(e);
+                }
+            });
+        } catch (LoaderException le) {
+            throw new ExecutionException(le.getCause());
+        } catch (RuntimeException re) {
+            throw new UncheckedExecutionException(re);
+        }
+    }
+
+    @Override
+    public void put(K key, T data) {
+        cache.put(key, data);
+    }
+
+    @Override
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidate(Iterable<K> keys) {
+        cache.invalidateAll(keys);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        return cache.asMap().keySet();
+    }
+
+    @Override
+    public void invalidatePartial(String keyBeginsWith) {
+        // everything is a match if the match length is zero
+        if (keyBeginsWith == null || keyBeginsWith.length() == 0) {
+            invalidateAll();
+            return;
+        }
+
+        ArrayList<K> invalidItems = new ArrayList<>();
+        for (K key : getKeySet()) {
+            if (key.toString().startsWith(keyBeginsWith)) {
+                invalidItems.add(key);
+            }
+        }
+
+        if (!invalidItems.isEmpty()) {
+            cache.invalidateAll(invalidItems);
+        }
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return cache;
+    }
+
+    /**
+     * Carries a checked exception from a loader out through Caffeine's mapping function.
+     */
+    private static class LoaderException extends RuntimeException {
+        private static final long serialVersionUID = -2036924453391962466L;
+
+        LoaderException(Exception cause) {
+            super(cause);
+        }
+    }
+}
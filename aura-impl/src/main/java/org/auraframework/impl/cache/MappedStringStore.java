@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Sets;
+
+/**
+ * A store of strings held outside the heap, in memory-mapped files.
+ *
+ * Each string is written once, as UTF-8, to its own file in the store directory, and the file
+ * is mapped read-only. The operating system decides what stays resident, so cold entries cost
+ * no heap and reading one back is a decode from the page cache rather than a regeneration.
+ *
+ * Files are written on a background thread, so that a put does not wait for the disk. Until its
+ * file is mapped, a value is held on the heap and read from there.
+ *
+ * The store is bounded by the total number of bytes written, and evicts the least recently
+ * read entries first. Failures to write are logged and otherwise ignored, as this is only a
+ * second tier behind an in-memory cache.
+ */
+public class MappedStringStore<K> {
+    private static final Logger logger = Logger.getLogger(MappedStringStore.class);
+
+    /** Writes the files of every store, one at a time, off the threads that put the values. */
+    private static final Executor defaultWriter = createDefaultWriter();
+
+    /** The most writes that may wait for the writer; values beyond this are not stored. */
+    private static final int MAX_PENDING_WRITES = 1024;
+
+    private final File directory;
+    private final long maximumBytes;
+    private final Executor writer;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Entries in access order, so the eldest is the least recently read. Guarded by this. */
+    private final LinkedHashMap<K, MappedEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Values waiting to be written, by key. Only the latest put for a key is installed. Guarded by this. */
+    private final Map<K, PendingWrite> pending = new HashMap<>();
+
+    /** Total bytes of all mapped entries. Guarded by this. */
+    private long totalBytes = 0;
+
+    /** Set once the store is closed, after which nothing more is written. Guarded by this. */
+    private boolean closed = false;
+
+    private static class PendingWrite {
+        private final long id;
+        private final String value;
+
+        private PendingWrite(long id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    private static class MappedEntry {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final int length;
+
+        private MappedEntry(Path path, MappedByteBuffer buffer, int length) {
+            this.path = path;
+            this.buffer = buffer;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Create a store in the given directory.
+     *
+     * Anything already in the directory is left over from a previous process and is deleted,
+     * as the mapping from keys to files only lives in memory.
+     *
+     * @param directory the directory to hold the mapped files.
+     * @param maximumBytes the most bytes to keep mapped before evicting.
+     */
+    public MappedStringStore(File directory, long maximumBytes) {
+        this(directory, maximumBytes, defaultWriter);
+    }
+
+    /**
+     * Create a store in the given directory, writing files on the given executor.
+     */
+    MappedStringStore(File directory, long maximumBytes, Executor writer) {
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        this.writer = writer;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.error("Unable to create secondary storage directory " + directory);
+        }
+        File[] stale = directory.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                if (!file.delete()) {
+                    logger.warn("Unable to delete stale secondary storage file " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a store in a new temporary directory, which is deleted along with its files when the
+     * process exits.
+     *
+     * @param name a name for the directory.
+     * @param maximumBytes the most bytes to keep mapped before evicting.
+     */
+    public static <K> MappedStringStore<K> createTemporary(String name, long maximumBytes) throws IOException {
+        final MappedStringStore<K> store = new MappedStringStore<>(
+                Files.createTempDirectory("aura-cache-" + name).toFile(), maximumBytes);
+        Runtime.getRuntime().addShutdownHook(new Thread("aura-cache-cleanup-" + name) {
+            @Override
+            public void run() {
+                store.close();
+                if (!store.directory.delete()) {
+                    logger.warn("Unable to delete secondary storage directory " + store.directory);
+                }
+            }
+        });
+        return store;
+    }
+
+    private static Executor createDefaultWriter() {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING_WRITES), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "aura-cache-writer-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Get a string from the store.
+     *
+     * @param key the key for the string.
+     * @return the string, or null if it is not in the store.
+     */
+    public String get(K key) {
+        ByteBuffer buffer;
+        synchronized (this) {
+            PendingWrite write = pending.get(key);
+            if (write != null) {
+                return write.value;
+            }
+            MappedEntry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            buffer = entry.buffer.duplicate();
+        }
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    /**
+     * Put a string in the store, replacing any previous value.
+     *
+     * The file is written later, on the store's writer. Strings larger than the whole store are not
+     * stored, nor are strings put while the writer is too far behind.
+     *
+     * @param key the key for the string.
+     * @param value the string.
+     */
+    public void put(final K key, final String value) {
+        // a character takes at least one byte, so anything longer can never fit.
+        if (value.length() > maximumBytes) {
+            return;
+        }
+        final PendingWrite write = new PendingWrite(sequence.incrementAndGet(), value);
+        List<MappedEntry> removed = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            pending.put(key, write);
+            // the previous value is superseded now, not when the new one is written.
+            MappedEntry previous = entries.remove(key);
+            if (previous != null) {
+                totalBytes -= previous.length;
+                removed.add(previous);
+            }
+        }
+        deleteFiles(removed);
+        try {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(key, write);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            synchronized (this) {
+                pending.remove(key, write);
+            }
+        }
+    }
+
+    /**
+     * Write and map the file for a put, unless the put was superseded or removed in the meantime.
+     */
+    private void write(K key, PendingWrite write) {
+        synchronized (this) {
+            if (pending.get(key) != write) {
+                return;
+            }
+        }
+        byte[] bytes = write.value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maximumBytes) {
+            synchronized (this) {
+                pending.remove(key, write);
+            }
+            return;
+        }
+        Path path = new File(directory, "entry-" + write.id + ".bin").toPath();
+        MappedEntry entry;
+        try {
+            Files.write(path, bytes);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                entry = new MappedEntry(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes.length),
+                        bytes.length);
+            }
+        } catch (IOException ioe) {
+            logger.error("Unable to write secondary storage for " + key, ioe);
+            synchronized (this) {
+                pending.remove(key, write);
+            }
+            deleteFile(path);
+            return;
+        }
+        List<MappedEntry> removed = new ArrayList<>();
+        synchronized (this) {
+            if (!pending.remove(key, write)) {
+                // removed, replaced or closed while the file was written.
+                removed.add(entry);
+            } else {
+                installEntry(key, entry, removed);
+            }
+        }
+        deleteFiles(removed);
+    }
+
+    /**
+     * Map an entry that has been written, collecting the entries it replaces or evicts.
+     */
+    private void installEntry(K key, MappedEntry entry, List<MappedEntry> removed) {
+        MappedEntry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.length;
+            removed.add(previous);
+        }
+        totalBytes += entry.length;
+        Iterator<MappedEntry> eldest = entries.values().iterator();
+        while (totalBytes > maximumBytes && eldest.hasNext()) {
+            MappedEntry evicted = eldest.next();
+            eldest.remove();
+            totalBytes -= evicted.length;
+            removed.add(evicted);
+        }
+    }
+
+    /**
+     * Remove the given keys from the store.
+     */
+    public void remove(Iterable<K> keys) {
+        List<MappedEntry> removed = new ArrayList<>();
+        synchronized (this) {
+            for (K key : keys) {
+                pending.remove(key);
+                MappedEntry entry = entries.remove(key);
+                if (entry != null) {
+                    totalBytes -= entry.length;
+                    removed.add(entry);
+                }
+            }
+        }
+        deleteFiles(removed);
+    }
+
+    /**
+     * Remove the keys whose toString begins with the given prefix.
+     */
+    public void removePartial(String keyBeginsWith) {
+        List<K> matches = new ArrayList<>();
+        for (K key : getKeySet()) {
+            if (key.toString().startsWith(keyBeginsWith)) {
+                matches.add(key);
+            }
+        }
+        remove(matches);
+    }
+
+    /**
+     * Remove everything from the store.
+     */
+    public void clear() {
+        List<MappedEntry> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(entries.values());
+            entries.clear();
+            pending.clear();
+            totalBytes = 0;
+        }
+        deleteFiles(removed);
+    }
+
+    /**
+     * Remove everything from the store, and stop writing to it.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        clear();
+    }
+
+    public synchronized Set<K> getKeySet() {
+        Set<K> keys = Sets.newHashSet(entries.keySet());
+        keys.addAll(pending.keySet());
+        return keys;
+    }
+
+    public synchronized int size() {
+        return entries.size() + pending.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Delete the files behind removed entries.
+     *
+     * The mapping itself is released when the buffer is collected. Readers that duplicated the
+     * buffer before removal can still finish, as an unlinked file stays mapped.
+     */
+    private void deleteFiles(List<MappedEntry> removed) {
+        for (MappedEntry entry : removed) {
+            deleteFile(entry.path);
+        }
+    }
+
+    private void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ioe) {
+            logger.warn("Unable to delete secondary storage file " + path, ioe);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("secondary entries=%d, bytes=%d of %d", size(), getTotalBytes(), maximumBytes);
+    }
+}
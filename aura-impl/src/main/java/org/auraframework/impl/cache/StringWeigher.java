@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import com.google.common.cache.Weigher;
+
+/**
+ * Weighs string cache entries by their approximate heap size in bytes.
+ *
+ * Strings are counted at two bytes per character, for both the key and the value. Object
+ * headers are ignored, as the caches weighed this way hold few, very large values.
+ */
+public class StringWeigher implements Weigher<String, String> {
+    public static final StringWeigher INSTANCE = new StringWeigher();
+
+    private StringWeigher() {
+    }
+
+    @Override
+    public int weigh(String key, String value) {
+        long bytes = 2L * (key.length() + value.length());
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.auraframework.cache.Cache;
+
+import com.google.common.collect.Sets;
+
+/**
+ * A cache with an in-memory first tier and a memory-mapped second tier.
+ *
+ * String values are written through to a {@link MappedStringStore} as they enter the cache.
+ * When the first tier drops an entry, whether to size pressure or to soft reference collection,
+ * reads are answered from the mapped file instead of regenerating the value. Such a value is
+ * decoded from the mapped bytes on each read and is not put back in the first tier, so that the
+ * second tier does not refill the heap the first tier was bounded to. Values that are not
+ * strings are kept in the first tier only.
+ */
+public class TieredCacheImpl<K, T> implements Cache<K, T> {
+    private final Cache<K, T> primary;
+    private final MappedStringStore<K> secondary;
+
+    TieredCacheImpl(Cache<K, T> primary, MappedStringStore<K> secondary) {
+        this.primary = primary;
+        this.secondary = secondary;
+    }
+
+    @Override
+    public T getIfPresent(K key) {
+        T value = primary.getIfPresent(key);
+        if (value == null) {
+            value = getSecondary(key);
+        }
+        return value;
+    }
+
+    @Override
+    public T get(final K key, final Callable<T> loader) throws ExecutionException {
+        T value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        return primary.get(key, new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                T value = loader.call();
+                putSecondary(key, value);
+                return value;
+            }
+        });
+    }
+
+    @Override
+    public void put(K key, T data) {
+        primary.put(key, data);
+        putSecondary(key, data);
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        return Sets.union(primary.getKeySet(), secondary.getKeySet());
+    }
+
+    @Override
+    public void invalidate(K key) {
+        primary.invalidate(key);
+        secondary.remove(Collections.singleton(key));
+    }
+
+    @Override
+    public void invalidate(Iterable<K> keys) {
+        primary.invalidate(keys);
+        secondary.remove(keys);
+    }
+
+    @Override
+    public void invalidateAll() {
+        primary.invalidateAll();
+        secondary.clear();
+    }
+
+    @Override
+    public void invalidatePartial(String keyBeginsWith) {
+        primary.invalidatePartial(keyBeginsWith);
+        if (keyBeginsWith == null || keyBeginsWith.length() == 0) {
+            secondary.clear();
+        } else {
+            secondary.removePartial(keyBeginsWith);
+        }
+    }
+
+    @Override
+    public Object getPrivateUnderlyingCache() {
+        return primary.getPrivateUnderlyingCache();
+    }
+
+    @Override
+    public void logCacheStatus(String extraMessage) {
+        primary.logCacheStatus(extraMessage + secondary + ";");
+    }
+
+    /**
+     * Only strings are ever written to the second tier, so a value read back is a T.
+     */
+    @SuppressWarnings("unchecked")
+    private T getSecondary(K key) {
+        return (T) secondary.get(key);
+    }
+
+    private void putSecondary(K key, T value) {
+        if (value instanceof String) {
+            secondary.put(key, (String) value);
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
@@ -91,6 +92,25 @@ public final class StyleContextImpl implements StyleContext {
         return tokens;
     }
 
+    @Override
+    public String getKey() {
+        StringBuilder key = new StringBuilder(client);
+
+        // other "true" conditions from style adapter (e.g., isDesktop)
+        if (!extraTrueConditions.isEmpty()) {
+            key.append(":");
+            Joiner.on("-").skipNulls().appendTo(key, extraTrueConditions);
+        }
+
+        // tokens uid. The app tokens are in the app dependencies and thus part of appuid, however we need
+        // a distinct uid because one of the descriptors may be provided.
+        Optional<String> tokensUid = tokens.getDescriptorsUid();
+        if (tokensUid.isPresent()) {
+            key.append(":").append(tokensUid.get());
+        }
+        return key.toString();
+    }
+
     @Override
     public void serialize(Json json) throws IOException {
         json.writeMapBegin();
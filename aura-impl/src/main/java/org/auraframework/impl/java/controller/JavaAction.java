@@ -33,6 +33,7 @@ import org.auraframework.throwable.AuraHandledException;
 import org.auraframework.throwable.AuraUnhandledException;
 import org.auraframework.throwable.quickfix.InvalidDefinitionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.javascript.Literal;
 import org.auraframework.util.json.Json;
 
 import com.google.common.collect.Lists;
@@ -174,6 +175,23 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         }
     }
 
+    /**
+     * @return the definition of this action, or null if none was found.
+     */
+    public JavaActionDef getActionDef() {
+        return actionDef;
+    }
+
+    /**
+     * Complete this action with its result already serialized, so that it is written as is.
+     *
+     * @param json the serialized return value.
+     */
+    public void setSerializedReturnValue(String json) {
+        this.returnValue = new Literal(json);
+        this.state = State.SUCCESS;
+    }
+
     @Override
     public Object getReturnValue() {
         return returnValue;
@@ -39,6 +39,10 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     private final Method method;
     private final boolean background;
     private final boolean caboose;
+    private final List<String> resultCacheKeyParams;
+    private final boolean resultCacheKeyAppUid;
+    private final boolean resultCacheKeyLocale;
+    private final boolean resultCacheKeyUser;
 
     protected JavaActionDef(Builder builder) {
         super(builder);
@@ -49,6 +53,10 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         this.method = builder.method;
         this.background = builder.background;
         this.caboose = builder.caboose;
+        this.resultCacheKeyParams = builder.resultCacheKeyParams;
+        this.resultCacheKeyAppUid = builder.resultCacheKeyAppUid;
+        this.resultCacheKeyLocale = builder.resultCacheKeyLocale;
+        this.resultCacheKeyUser = builder.resultCacheKeyUser;
     }
 
     @Override
@@ -92,6 +100,41 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     	return caboose;
     }
 
+    /**
+     * @return true if the serialized result of this action may be kept and sent again to calls with the same key.
+     */
+    public boolean isResultCacheable() {
+        return resultCacheKeyParams != null;
+    }
+
+    /**
+     * @return the names of the parameters whose values are part of the result cache key.
+     */
+    public List<String> getResultCacheKeyParams() {
+        return resultCacheKeyParams;
+    }
+
+    /**
+     * @return true if the uid of the calling application is part of the result cache key.
+     */
+    public boolean isResultCacheKeyAppUid() {
+        return resultCacheKeyAppUid;
+    }
+
+    /**
+     * @return true if the locale of the request is part of the result cache key.
+     */
+    public boolean isResultCacheKeyLocale() {
+        return resultCacheKeyLocale;
+    }
+
+    /**
+     * @return true if the session of the caller is part of the result cache key.
+     */
+    public boolean isResultCacheKeyUser() {
+        return resultCacheKeyUser;
+    }
+
     @Override
     public void serialize(Json json) throws IOException {
         json.writeMapBegin();
@@ -118,6 +161,10 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         private Method method;
         private boolean background = false;
         private boolean caboose = false;
+        private List<String> resultCacheKeyParams;
+        private boolean resultCacheKeyAppUid;
+        private boolean resultCacheKeyLocale;
+        private boolean resultCacheKeyUser;
 
         @Override
         public JavaActionDef build() {
@@ -171,5 +218,20 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         public void setCaboose(boolean caboose) {
             this.caboose = caboose;
         }
+
+        /**
+         * Makes the result of this action cacheable, under a key made of the given parts.
+         *
+         * @param params the names of the parameters whose values are part of the key.
+         * @param appUid whether the uid of the calling application is part of the key.
+         * @param locale whether the locale of the request is part of the key.
+         * @param user whether the session of the caller is part of the key.
+         */
+        public void setResultCacheKey(List<String> params, boolean appUid, boolean locale, boolean user) {
+            this.resultCacheKeyParams = params;
+            this.resultCacheKeyAppUid = appUid;
+            this.resultCacheKeyLocale = locale;
+            this.resultCacheKeyUser = user;
+        }
     }
 }
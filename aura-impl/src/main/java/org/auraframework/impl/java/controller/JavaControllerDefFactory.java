@@ -33,6 +33,7 @@ import org.auraframework.service.DefinitionService;
 import org.auraframework.system.Annotations.AuraEnabled;
 import org.auraframework.system.Annotations.BackgroundAction;
 import org.auraframework.system.Annotations.CabooseAction;
+import org.auraframework.system.Annotations.CacheableAction;
 import org.auraframework.system.Annotations.Key;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Access;
@@ -181,6 +182,23 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
     	actionBuilder.setBackground(method.isAnnotationPresent(BackgroundAction.class));
     	actionBuilder.setCaboose(method.isAnnotationPresent(CabooseAction.class));
 
+        CacheableAction cacheable = method.getAnnotation(CacheableAction.class);
+        if (cacheable != null) {
+            List<String> keyParams = Lists.newArrayList(cacheable.params());
+            for (String keyParam : keyParams) {
+                boolean found = false;
+                for (ValueDef param : params) {
+                    found |= param.getName().equals(keyParam);
+                }
+                if (!found) {
+                    throw new InvalidDefinitionException("@CacheableAction key parameter " + keyParam
+                            + " is not a parameter of the action",
+                            new Location(controllerClass.getName() + "." + name, 0));
+                }
+            }
+            actionBuilder.setResultCacheKey(keyParams, cacheable.appUid(), cacheable.locale(), cacheable.user());
+        }
+
         actionBuilder.setAccess(new DefinitionAccessImpl(Access.INTERNAL));
 
         return actionBuilder.build();
@@ -15,10 +15,10 @@
  */
 package org.auraframework.impl.root.parser;
 
+import java.io.CharArrayReader;
 import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 
 /**
  * prepends a mini dtd that has common html entity references in it to the real
@@ -29,6 +29,10 @@ import java.io.StringReader;
  * 
  * This includes an arbitrarily shortened list of entities from html -- the ones
  * webdevs use often.
+ *
+ * StAX parses the prelude again for every reader, which costs far more than
+ * parsing a typical component, so {@link #create(char[], int)} leaves it out of
+ * contents that refer to no entity beyond the ones XML predefines.
  */
 public class HTMLReader extends FilterReader {
 
@@ -529,41 +533,128 @@ public class HTMLReader extends FilterReader {
                                                // ISOpub
             "]>\n";
 
-    private final Reader realReader;
-    boolean finishedDtd = false;
+    /**
+     * The prelude as characters, so that each reader only has to copy it out.
+     */
+    private static final char[] dtdChars = dtd.toCharArray();
+
+    /**
+     * Stands in for the prelude when it is not needed, keeping line numbers where they would be with it.
+     */
+    private static final char[] blankChars = { '\n' };
+
+    private static final String[] predefinedEntities = { "amp", "lt", "gt", "quot", "apos" };
+
+    private static final String doctype = "<!DOCTYPE";
+
+    private final char[] prelude;
+
+    private int preludePosition = 0;
 
     /**
      * @param in
      */
     protected HTMLReader(Reader in) {
-        super(createDtdReader());
-        realReader = in;
+        this(in, true);
     }
 
-    private static Reader createDtdReader() {
-        return new StringReader(dtd);
+    private HTMLReader(Reader in, boolean declareEntities) {
+        super(in);
+        this.prelude = declareEntities ? dtdChars : blankChars;
+    }
+
+    /**
+     * Create a reader over contents already read, declaring the html entities only if the contents need them.
+     *
+     * @param contents the characters to read.
+     * @param length the number of characters in use.
+     */
+    public static HTMLReader create(char[] contents, int length) {
+        return new HTMLReader(new CharArrayReader(contents, 0, length), needsEntities(contents, length));
+    }
+
+    /**
+     * Check for anything that reads differently without the prelude: a reference to an entity that XML does
+     * not predefine, or a doctype of its own. Anything unusual counts, so that errors stay the same.
+     */
+    static boolean needsEntities(char[] contents, int length) {
+        for (int i = 0; i < length; i++) {
+            char c = contents[i];
+            if (c == '&') {
+                if (i + 1 < length && contents[i + 1] == '#') {
+                    continue;
+                }
+                if (!isPredefinedEntity(contents, i + 1, length)) {
+                    return true;
+                }
+            } else if (c == '<' && i + doctype.length() <= length && contents[i + 1] == '!') {
+                if (new String(contents, i, doctype.length()).equals(doctype)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPredefinedEntity(char[] contents, int start, int length) {
+        for (String entity : predefinedEntities) {
+            int end = start + entity.length();
+            if (end < length && contents[end] == ';' && entity.equals(new String(contents, start, entity.length()))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public int read() throws IOException {
-        int ret = in.read();
-        if (ret == -1 && !finishedDtd) {
-            in = realReader;
-            ret = in.read();
-            finishedDtd = true;
+        if (preludePosition < prelude.length) {
+            return prelude[preludePosition++];
         }
-        return ret;
+        return in.read();
     }
 
     @Override
     public int read(char cbuf[], int off, int len) throws IOException {
-        int ret = in.read(cbuf, off, len);
-        if (ret == -1 && !finishedDtd) {
-            in = realReader;
-            ret = in.read(cbuf, off, len);
-            finishedDtd = true;
+        if (preludePosition < prelude.length) {
+            if (len == 0) {
+                return 0;
+            }
+            int count = Math.min(len, prelude.length - preludePosition);
+            System.arraycopy(prelude, preludePosition, cbuf, off, count);
+            preludePosition += count;
+            return count;
         }
-        return ret;
+        return in.read(cbuf, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (preludePosition < prelude.length) {
+            int count = (int) Math.min(Math.max(n, 0), prelude.length - preludePosition);
+            preludePosition += count;
+            return count;
+        }
+        return in.skip(n);
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return preludePosition < prelude.length || in.ready();
     }
 
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
 }
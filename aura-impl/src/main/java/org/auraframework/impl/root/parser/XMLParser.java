@@ -37,8 +37,8 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 import java.net.URL;
+import java.util.Arrays;
 
 /**
  * Implementation of Parser. Parses XML Formatted Source to produce
@@ -59,10 +59,17 @@ public abstract class XMLParser<D extends RootDefinition> implements Parser<D> {
     private DefinitionParserAdapter definitionParserAdapter;
 
 
-    private static final XMLInputFactory xmlInputFactory;
+    private static final XMLInputFactory xmlInputFactory = createXMLInputFactory(false);
 
-    static {
-        xmlInputFactory = XMLInputFactory.newInstance();
+    /**
+     * A factory per thread for {@link #parse}, allowed to hand back its last reader once that is closed, so
+     * that parsing many small files does not build a new reader each time.
+     */
+    private static final ThreadLocal<XMLInputFactory> parseInputFactory =
+            ThreadLocal.withInitial(() -> createXMLInputFactory(true));
+
+    private static XMLInputFactory createXMLInputFactory(boolean reuseInstance) {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
 
         try {
 
@@ -76,14 +83,16 @@ public abstract class XMLParser<D extends RootDefinition> implements Parser<D> {
 
             // sjsxp does not currently have a thread-safe XMLInputFactory, as that implementation
             // tries to cache and reuse theXMLStreamReader. Setting the parser-specific "reuse-instance"
-            // property to false prevents this.
+            // property to false prevents this. Factories confined to one thread may keep it on, as
+            // sjsxp only reuses a reader once it has been closed.
             // All other known open-source stax parsers (and the bea ref impl) have thread-safe factories.
             // W-2316503: remove compatibility code for both SJSXP and Woodstox
-            xmlInputFactory.setProperty("reuse-instance", false);
+            xmlInputFactory.setProperty("reuse-instance", reuseInstance);
         } catch (IllegalArgumentException ex) {
             // Other implementations will likely throw this exception since "reuse-instance"
             // is implementation specific. NO-OP
         }
+        return xmlInputFactory;
     }
 
     protected abstract RootTagHandler<D> getHandler(DefDescriptor<D>defDescriptor, Source<D> source,
@@ -101,10 +110,9 @@ public abstract class XMLParser<D extends RootDefinition> implements Parser<D> {
         D ret = null;
         try {
             if (source.exists()) {
-                String contents = source.getContents();
-                reader = new HTMLReader(new StringReader(contents));
+                reader = createHTMLReader(source);
 
-                xmlReader = xmlInputFactory.createXMLStreamReader(reader);
+                xmlReader = parseInputFactory.get().createXMLStreamReader(reader);
             }
             handler = getHandler(descriptor, source, xmlReader, isInInternalNamespace(descriptor),
                     definitionService, configAdapter, definitionParserAdapter);
@@ -166,23 +174,24 @@ public abstract class XMLParser<D extends RootDefinition> implements Parser<D> {
             }
         } finally {
             try {
-                if (reader != null) {
-                    reader.close();
+                if (xmlReader != null) {
+                    // Closing hands the reader back to this thread's factory.
+                    xmlReader.close();
                 }
-            } catch (IOException e) {
-                // Throwing this seems wrong, if there was already an error, it
-                // should pass through,
+            } catch (XMLStreamException e) {
+                // Throwing this seems wrong, if there was already an error,
+                // it should pass through,
                 // and if not, well, something went wrong with the close...
                 // throw new AuraUnhandledException("parse error",
                 // getLocation(xmlReader, source), e);
             } finally {
                 try {
-                    if (xmlReader != null) {
-                        xmlReader.close();
+                    if (reader != null) {
+                        reader.close();
                     }
-                } catch (XMLStreamException e) {
-                    // Throwing this seems wrong, if there was already an error,
-                    // it should pass through,
+                } catch (IOException e) {
+                    // Throwing this seems wrong, if there was already an error, it
+                    // should pass through,
                     // and if not, well, something went wrong with the close...
                     // throw new AuraUnhandledException("parse error",
                     // getLocation(xmlReader, source), e);
@@ -193,6 +202,25 @@ public abstract class XMLParser<D extends RootDefinition> implements Parser<D> {
         return ret;
     }
 
+    /**
+     * Read the source, hashing it on the way, into a reader that only declares the html entities if the source
+     * uses them.
+     */
+    private static Reader createHTMLReader(Source<?> source) throws IOException {
+        char[] contents = new char[4096];
+        int length = 0;
+        try (Reader in = source.getHashingReader()) {
+            int count;
+            while ((count = in.read(contents, length, contents.length - length)) != -1) {
+                length += count;
+                if (length == contents.length) {
+                    contents = Arrays.copyOf(contents, contents.length * 2);
+                }
+            }
+        }
+        return HTMLReader.create(contents, length);
+    }
+
     /**
      * Returns a location for the reader and source provided. When
      * {@code xmlReader} is provided, its location will be used for the
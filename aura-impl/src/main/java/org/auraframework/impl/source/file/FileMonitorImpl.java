@@ -222,6 +222,12 @@ public final class FileMonitorImpl implements FileMonitor, Runnable {
                     } catch (IOException x) {
                         // if we can't monitor it for some reason, it is not an error
                     }
+                    // files that arrived with the directory (copy, move, checkout) have no events of their own.
+                    try {
+                        listener.fileCreated(new FileChangeEvent(child));
+                    } catch (Exception ex) {
+                        LOG.info("Unable to signal source change due to exception: " + ex.getMessage());
+                    }
                 }
             }
 
@@ -33,20 +33,18 @@ import org.auraframework.system.InternalNamespaceSourceLoader;
 import org.auraframework.system.SourceListener;
 import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.util.FileMonitor;
-import org.auraframework.util.IOUtil;
 
 public class FileSourceLoader extends BaseSourceLoader implements InternalNamespaceSourceLoader, SourceListener {
 
     protected final File base;
     protected final int baseLen;
-    private Set<String> namespaces;
+    private final String monitoredPath;
 
-    private static final FileFilter directoryFilter = new FileFilter() {
-        @Override
-        public boolean accept(File file) {
-            return file.isDirectory();
-        }
-    };
+    /**
+     * Whether a file monitor keeps the index current, so that a file the index does not have is not there.
+     */
+    private final boolean monitored;
+    private volatile SourceFileIndex index;
 
     public FileSourceLoader(File base, FileMonitor fileMonitor) {
         super();
@@ -61,6 +59,8 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
                     base.getAbsolutePath()), ioe);
         }
         this.baseLen = base.getPath().length();
+        this.monitoredPath = base.getPath();
+        this.monitored = fileMonitor != null;
 
         // add the namespace root to the file monitor
         if (fileMonitor != null) {
@@ -84,19 +84,51 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
         return false;
     }
 
+    /**
+     * Get the index of the files under the base, scanning them the first time.
+     */
+    private SourceFileIndex getIndex() {
+        SourceFileIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new SourceFileIndex(base);
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public <D extends Definition> FileSource<D> getSource(DefDescriptor<D> descriptor) {
 
         String filename = getPath(descriptor);
 
-        File file = new File(base, filename);
+        File file = getIndex().get(filename);
 
-        if (!isFilePresent(file)) {
-            file = caseInsensitiveLookup(file);
-            if (file.exists()) {
+        if (file != null) {
+            if (!file.getPath().equals(new File(base, filename).getPath())) {
                 descriptor = updateDescriptorName(descriptor, file.getParentFile().getParentFile().getName(),
                         file.getName());
             }
+        } else if (monitored) {
+            // not indexed, and the monitor would have told us of it.
+            file = new File(base, filename);
+        } else {
+            // not indexed, most likely not there, but without a monitor the index may not have heard of it yet.
+            file = new File(base, filename);
+            if (!isFilePresent(file)) {
+                file = caseInsensitiveLookup(file);
+                if (file.exists()) {
+                    descriptor = updateDescriptorName(descriptor, file.getParentFile().getParentFile().getName(),
+                            file.getName());
+                }
+            }
+            if (file.exists()) {
+                getIndex().add(file);
+            }
         }
 
         String id = (file.exists()) ? FileSource.getFilePath(file) : filename;
@@ -112,34 +144,28 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
      */
     @Override
     public Set<String> getNamespaces() {
-        synchronized(this) {
-            if (namespaces == null) {
-                namespaces = new HashSet<>();
-                for (File dir : base.listFiles(directoryFilter)) {
-                    File[] files = IOUtil.listFiles(dir, true, true);
-                    if (files != null && files.length > 0) {
-                        namespaces.add(dir.getName());
-                    }
-                }
-            }
-            return namespaces;
-        }
+        return getIndex().getNamespaces();
     }
 
     @Override
     public Set<DefDescriptor<?>> find(DescriptorFilter matcher) {
         Set<DefDescriptor<?>> ret = new HashSet<>();
         AnyTypeFilter af = new AnyTypeFilter(ret, matcher);
+        SourceFileIndex index = getIndex();
         if (matcher.getNamespaceMatch().isConstant() && matcher.getNameMatch().isConstant()) {
             String ns = matcher.getNamespaceMatch().toString();
             String name = matcher.getNameMatch().toString();
             af.setNamespace(ns);
-            findFiles(new File(new File(base, ns), name), null, af);
+            for (File file : index.getFiles(ns, ns + File.separator + name)) {
+                af.addDescriptors(file);
+            }
         } else {
-            for (String ns : getNamespaces()) {
+            for (String ns : index.getNamespaces()) {
                 if (matcher.matchNamespace(ns)) {
                     af.setNamespace(ns);
-                    findFiles(new File(base, ns), null, af);
+                    for (File file : index.getFiles(ns)) {
+                        af.addDescriptors(file);
+                    }
                 }
             }
         }
@@ -151,7 +177,9 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
         Set<DefDescriptor<T>> ret = new HashSet<>();
         DefType defType = DefType.getDefType(primaryInterface);
         OneTypeFilter<T> otf = new OneTypeFilter<>(ret, defType);
-        findFiles(new File(base, namespace), null, otf);
+        for (File file : getIndex().getFiles(namespace)) {
+            otf.addDescriptors(file);
+        }
         return ret;
     }
 
@@ -227,9 +255,20 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
             if (file.isDirectory()) {
                 return true;
             }
+            addDescriptors(file);
+            // We don't need to accept this, as we've already either included or
+            // excluded the
+            // descriptor above.
+            return false;
+        }
+
+        /**
+         * Add the descriptors of a file, which must not be a directory.
+         */
+        protected void addDescriptors(File file) {
             List<DefDescriptor<?>> dds = getAllDescriptors(file.getPath());
             if (dds == null) {
-                return false;
+                return;
             }
             for (DefDescriptor<?> dd : dds) {
                 if (dd.getDefType() == dt) {
@@ -238,10 +277,6 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
                     dset.add(ddt);
                 }
             }
-            // We don't need to accept this, as we've already either included or
-            // excluded the
-            // descriptor above.
-            return false;
         }
     }
 
@@ -285,19 +320,26 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
             if (file.isDirectory()) {
                 return true;
             }
+            addDescriptors(file);
+            // We don't need to accept this, as we've already either included or
+            // excluded the
+            // descriptor above.
+            return false;
+        }
+
+        /**
+         * Add the matching descriptors of a file, which must not be a directory.
+         */
+        protected void addDescriptors(File file) {
             List<DefDescriptor<?>> dds = getAllDescriptors(file.getPath());
             if (dds == null) {
-                return false;
+                return;
             }
             for (DefDescriptor<?> dd : dds) {
                 if (dm.matchDescriptor(dd)) {
                     this.dset.add(dd);
                 }
             }
-            // We don't need to accept this, as we've already either included or
-            // excluded the
-            // descriptor above.
-            return false;
         }
     }
 
@@ -328,14 +370,34 @@ public class FileSourceLoader extends BaseSourceLoader implements InternalNamesp
 
     @Override
     public void onSourceChanged(DefDescriptor<?> source, SourceMonitorEvent event, String filePath) {
-        // rip out namespace cache if need be.
-        // Note that this is a little more aggressive than it has to be, but, well, it does only do it
-        // for creation/deletion. There is a race condition whereby this will cause odd failures if files
-        // are added/removed while something is running. caveat emptor
-        if (filePath != null && filePath.startsWith(base.getPath()) && event != SourceMonitorEvent.CHANGED) {
-            synchronized (this) {
-                namespaces = null;
+        // keep the index in step with files being added and removed. Changed files are still where they were.
+        // There is a race condition whereby this will cause odd failures if files are added/removed while
+        // something is running. caveat emptor
+        SourceFileIndex index = this.index;
+        if (filePath == null || index == null || event == SourceMonitorEvent.CHANGED) {
+            return;
+        }
+        String path = filePath;
+        if (!path.startsWith(base.getPath()) && path.startsWith(monitoredPath)) {
+            // the monitor reports under the directory it was given, which may not be canonical.
+            path = base.getPath() + path.substring(monitoredPath.length());
+        }
+        if (!path.startsWith(base.getPath())) {
+            return;
+        }
+        if (event == SourceMonitorEvent.CREATED) {
+            File file = new File(path);
+            File parent = file.getParentFile();
+            if (file.isDirectory()) {
+                index.addAll(file);
+            } else if (parent != null && !index.contains(parent)) {
+                // the first we have heard of the directory, pick up whatever arrived with it.
+                index.addAll(parent);
+            } else {
+                index.add(file);
             }
+        } else if (event == SourceMonitorEvent.DELETED) {
+            index.remove(new File(path));
         }
     }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.source.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.auraframework.throwable.AuraRuntimeException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * An in memory index of the files under a source directory, by namespace directory.
+ *
+ * Each namespace directory is walked once with NIO, which hands over the attributes of every file as it goes rather
+ * than having them asked for file by file, and the namespaces are walked in parallel. Afterwards, the index is kept
+ * current with {@link #add(File)}, {@link #addAll(File)} and {@link #remove(File)}. Paths are looked up in the case
+ * given first, and then without regard to case.
+ */
+final class SourceFileIndex {
+    private final String basePath;
+
+    /**
+     * The files by path relative to the base.
+     */
+    private final ConcurrentMap<String, File> files = new ConcurrentHashMap<>();
+
+    /**
+     * The files by lower case path relative to the base, several if their paths differ only in case.
+     */
+    private final ConcurrentMap<String, Set<File>> filesIgnoreCase = new ConcurrentHashMap<>();
+
+    /**
+     * The namespaces by lower case name.
+     */
+    private final ConcurrentMap<String, Namespace> namespaces = new ConcurrentHashMap<>();
+
+    private static final class Namespace {
+        private final String name;
+        private final Set<File> files = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+        private Namespace(String name) {
+            this.name = name;
+        }
+    }
+
+    SourceFileIndex(File base) {
+        this.basePath = base.getPath() + File.separator;
+        List<Path> namespaceDirs = Lists.newArrayList();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(base.toPath())) {
+            for (Path dir : stream) {
+                if (Files.isDirectory(dir)) {
+                    namespaceDirs.add(dir);
+                }
+            }
+        } catch (IOException ioe) {
+            throw new AuraRuntimeException(String.format("IOException listing base directory %s",
+                    base.getAbsolutePath()), ioe);
+        }
+        namespaceDirs.parallelStream().forEach(this::scan);
+    }
+
+    /**
+     * Walk a directory, following links as File.listFiles would.
+     */
+    private void scan(Path dir) {
+        try {
+            Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (!attrs.isDirectory()) {
+                                add(file.toFile());
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            // unreadable, as if it were not there.
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException ioe) {
+            throw new AuraRuntimeException(String.format("IOException scanning directory %s", dir), ioe);
+        }
+    }
+
+    /**
+     * @return the names of the namespace directories holding at least one file.
+     */
+    Set<String> getNamespaces() {
+        Set<String> names = Sets.newHashSet();
+        for (Namespace namespace : namespaces.values()) {
+            if (!namespace.files.isEmpty()) {
+                names.add(namespace.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param namespace the namespace, in any case.
+     * @return the files of the namespace, empty if it has none.
+     */
+    Collection<File> getFiles(String namespace) {
+        Namespace ns = namespaces.get(namespace.toLowerCase());
+        return ns != null ? ns.files : Collections.<File> emptySet();
+    }
+
+    /**
+     * @param namespace the namespace, in any case.
+     * @param relativeDir a path relative to the base, in any case.
+     * @return the files of the namespace at or under that path.
+     */
+    List<File> getFiles(String namespace, String relativeDir) {
+        String key = relativeDir.toLowerCase();
+        String under = key + File.separator;
+        List<File> found = Lists.newArrayList();
+        for (File file : getFiles(namespace)) {
+            String fileKey = getRelativePath(file).toLowerCase();
+            if (fileKey.equals(key) || fileKey.startsWith(under)) {
+                found.add(file);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param relativePath a path relative to the base, in any case.
+     * @return the file with that path, in the case it has on disk, or null if it is not indexed.
+     */
+    File get(String relativePath) {
+        File file = files.get(relativePath);
+        if (file == null) {
+            Set<File> found = filesIgnoreCase.get(relativePath.toLowerCase());
+            if (found != null) {
+                Iterator<File> iterator = found.iterator();
+                file = iterator.hasNext() ? iterator.next() : null;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Add a file, if it is inside a namespace directory.
+     */
+    void add(File file) {
+        String relativePath = getRelativePath(file);
+        int separator = relativePath != null ? relativePath.indexOf(File.separatorChar) : -1;
+        if (separator <= 0) {
+            return;
+        }
+        String namespace = relativePath.substring(0, separator);
+        files.put(relativePath, file);
+        filesIgnoreCase.compute(relativePath.toLowerCase(), (k, same) -> {
+            Set<File> result = same != null ? same : Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+            result.add(file);
+            return result;
+        });
+        namespaces.computeIfAbsent(namespace.toLowerCase(), k -> new Namespace(namespace)).files.add(file);
+    }
+
+    /**
+     * Add everything under a directory, for directories that arrive whole, by copy, move or checkout.
+     */
+    void addAll(File dir) {
+        if (getRelativePath(dir) != null) {
+            scan(dir.toPath());
+        }
+    }
+
+    /**
+     * @param dir a directory under the base.
+     * @return true if any file at or under the directory is indexed.
+     */
+    boolean contains(File dir) {
+        String relativePath = getRelativePath(dir);
+        if (relativePath == null) {
+            return false;
+        }
+        String under = relativePath + File.separator;
+        for (String fileKey : files.keySet()) {
+            if (fileKey.equals(relativePath) || fileKey.startsWith(under)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove a file, or a directory with everything that was under it.
+     */
+    void remove(File file) {
+        String relativePath = getRelativePath(file);
+        if (relativePath == null) {
+            return;
+        }
+        String under = relativePath + File.separator;
+        for (Map.Entry<String, File> entry : files.entrySet()) {
+            String entryKey = entry.getKey();
+            if (entryKey.equals(relativePath) || entryKey.startsWith(under)) {
+                File removed = entry.getValue();
+                files.remove(entryKey);
+                String keyIgnoreCase = entryKey.toLowerCase();
+                filesIgnoreCase.computeIfPresent(keyIgnoreCase, (k, same) -> {
+                    same.remove(removed);
+                    return same.isEmpty() ? null : same;
+                });
+                String namespaceKey = keyIgnoreCase.substring(0, keyIgnoreCase.indexOf(File.separatorChar));
+                Namespace namespace = namespaces.get(namespaceKey);
+                if (namespace != null) {
+                    namespace.files.remove(removed);
+                }
+            }
+        }
+    }
+
+    private String getRelativePath(File file) {
+        String path = file.getPath();
+        return path.startsWith(basePath) ? path.substring(basePath.length()) : null;
+    }
+}
@@ -15,8 +15,15 @@
  */
 package org.auraframework.impl.system;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
@@ -27,11 +34,18 @@ import org.auraframework.system.DefRegistry;
 import org.auraframework.system.Parser;
 import org.auraframework.system.Source;
 import org.auraframework.system.SourceLoader;
+import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.text.Hash;
 
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+/**
+ * A registry that parses the sources of a loader when their definitions are first asked for.
+ *
+ * The sources are indexed one namespace at a time, the first time that namespace is touched, so a large tree is not
+ * walked up front. Namespaces can also be indexed ahead of time in the background, see {@link #prewarm(Executor)}.
+ */
 public class CompilingDefRegistry implements DefRegistry {
     private static final long serialVersionUID = -4852130888436267039L;
 
@@ -39,8 +53,16 @@ public class CompilingDefRegistry implements DefRegistry {
     private final Set<DefType> defTypes;
     private final Set<String> prefixes;
     private final Set<String> namespaces;
-    private final Map<DefDescriptor<?>, DefHolder> registry;
+    /**
+     * The holders of each namespace, by lower case namespace, for the namespaces indexed so far.
+     */
+    private final ConcurrentMap<String, Map<DefDescriptor<?>, DefHolder>> registry;
+    /**
+     * The lower case names of all namespaces of the loader.
+     */
+    private final Set<String> namespaceKeys;
     private final ParserFactory parserFactory;
+    private final transient PersistentDefStore store;
     private String name;
 
     private static class DefHolder {
@@ -55,9 +77,24 @@ public class CompilingDefRegistry implements DefRegistry {
 
     public CompilingDefRegistry(SourceLoader sourceLoader, Set<String> prefixes, Set<DefType> defTypes,
                                 ParserFactory parserFactory) {
+        this(sourceLoader, prefixes, defTypes, parserFactory, null);
+    }
+
+    /**
+     * Create a registry that keeps what it parses in a persistent store.
+     *
+     * Sources are read, and so hashed, before parsing, and a definition stored for the same hash is used instead of
+     * parsing. Otherwise the parser is handed what was read, so a source is only read once either way.
+     *
+     * @param store the store, or null to always parse.
+     */
+    public CompilingDefRegistry(SourceLoader sourceLoader, Set<String> prefixes, Set<DefType> defTypes,
+                                ParserFactory parserFactory, PersistentDefStore store) {
+        this.store = store;
         this.sourceLoader = sourceLoader;
         this.namespaces = Sets.newHashSet();
-        this.registry = Maps.newHashMap();
+        this.registry = new ConcurrentHashMap<>();
+        this.namespaceKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
         this.prefixes = Sets.newHashSet();
         for (String prefix : prefixes) {
             this.prefixes.add(prefix.toLowerCase());
@@ -70,23 +107,72 @@ public class CompilingDefRegistry implements DefRegistry {
     @Override
     public void reset() {
         namespaces.clear();
+        namespaceKeys.clear();
         registry.clear();
 
         namespaces.addAll(sourceLoader.getNamespaces());
-        Set<DefDescriptor<?>> descriptors = sourceLoader.find(new DescriptorFilter("*://*:*"));
-        //
-        // Initialize our map to hold all defs.
-        //
-        for (DefDescriptor<?> descriptor : descriptors) {
-            registry.put(descriptor, new DefHolder(descriptor));
+        for (String namespace : namespaces) {
+            namespaceKeys.add(namespace.toLowerCase());
         }
         this.name = getClass().getSimpleName()+defTypes+prefixes+namespaces;
     }
 
+    /**
+     * Index every namespace that is not yet indexed, in the background.
+     *
+     * @param executor the executor to index on, one task per namespace.
+     */
+    public void prewarm(Executor executor) {
+        for (String namespace : namespaceKeys) {
+            if (!registry.containsKey(namespace)) {
+                executor.execute(() -> getNamespaceHolders(namespace));
+            }
+        }
+    }
+
+    /**
+     * Get the holders of a namespace, indexing it the first time.
+     *
+     * @param namespace the namespace, in any case.
+     * @return the holders by descriptor, or null if the loader has no such namespace.
+     */
+    private Map<DefDescriptor<?>, DefHolder> getNamespaceHolders(String namespace) {
+        if (namespace == null) {
+            return null;
+        }
+        String key = namespace.toLowerCase();
+        if (!namespaceKeys.contains(key)) {
+            return null;
+        }
+        return registry.computeIfAbsent(key, k -> {
+            Set<DefDescriptor<?>> descriptors = sourceLoader.find(new DescriptorFilter("*://" + k + ":*"));
+            Map<DefDescriptor<?>, DefHolder> holders = new ConcurrentHashMap<>(descriptors.size() * 4 / 3 + 1);
+            for (DefDescriptor<?> descriptor : descriptors) {
+                holders.put(descriptor, new DefHolder(descriptor));
+            }
+            return holders;
+        });
+    }
 
     @Override
     public <T extends Definition> T getDef(DefDescriptor<T> descriptor) throws QuickFixException {
-        DefHolder holder = registry.get(descriptor);
+        return getDef(descriptor, true);
+    }
+
+    /**
+     * Parse a definition ahead of its use, from a context other than the one that will use it.
+     *
+     * A definition is kept as for {@link #getDef(DefDescriptor)}, but a QuickFixException is not, as it may come from
+     * the context rather than the source. The next getDef parses again, and reports its own failure.
+     */
+    public <T extends Definition> T prefetchDef(DefDescriptor<T> descriptor) throws QuickFixException {
+        return getDef(descriptor, false);
+    }
+
+    private <T extends Definition> T getDef(DefDescriptor<T> descriptor, boolean keepFailure)
+            throws QuickFixException {
+        Map<DefDescriptor<?>, DefHolder> holders = getNamespaceHolders(descriptor.getNamespace());
+        DefHolder holder = holders != null ? holders.get(descriptor) : null;
 
         if (holder == null) {
             return null;
@@ -98,11 +184,33 @@ public class CompilingDefRegistry implements DefRegistry {
                     DefDescriptor<Definition> canonical = (DefDescriptor<Definition>)holder.descriptor;
                     Source<Definition> source = sourceLoader.getSource(canonical);
                     if (source != null && source.exists()) {
-                        Parser<Definition> parser = parserFactory.getParser(source.getFormat(), canonical);
-                        holder.def = parser.parse(canonical, source);
+                        String sourceHash = null;
+                        if (store != null) {
+                            // read once, for the hash and then, on a miss, for the parser.
+                            String contents = readContents(source);
+                            if (contents != null) {
+                                Hash hash = source.getHash();
+                                sourceHash = hash.isSet() ? hash.toString() : null;
+                                source = new ReadSource<>(source, contents);
+                            }
+                        }
+                        Definition def = sourceHash != null ? store.get(canonical, sourceHash) : null;
+                        boolean parsed = def == null;
+                        if (parsed) {
+                            Parser<Definition> parser = parserFactory.getParser(source.getFormat(), canonical);
+                            def = parser.parse(canonical, source);
+                        }
+                        holder.def = def;
                         holder.def.validateDefinition();
+                        if (parsed && sourceHash != null) {
+                            store.put(canonical, sourceHash, def);
+                        }
                     }
                 } catch (QuickFixException qfe) {
+                    if (!keepFailure) {
+                        holder.def = null;
+                        throw qfe;
+                    }
                     holder.qfe = qfe;
                 }
                 holder.initialized = true;
@@ -116,6 +224,77 @@ public class CompilingDefRegistry implements DefRegistry {
         return def;
     }
 
+    /**
+     * Read a source through, which also sets its hash.
+     *
+     * @return the contents, or null if the source could not be read.
+     */
+    private String readContents(Source<?> source) {
+        try {
+            return source.getContents();
+        } catch (AuraRuntimeException are) {
+            return null;
+        }
+    }
+
+    /**
+     * A source that has already been read, so that parsing it does not read it again.
+     */
+    private static class ReadSource<D extends Definition> extends Source<D> {
+        private final Source<D> source;
+        private final String contents;
+
+        private ReadSource(Source<D> source, String contents) {
+            super(source.getDescriptor(), source.getSystemId(), source.getFormat());
+            this.source = source;
+            this.contents = contents;
+        }
+
+        @Override
+        public Reader getReader() {
+            return new StringReader(contents);
+        }
+
+        @Override
+        public String getContents() {
+            return contents;
+        }
+
+        /**
+         * The hash of the source read, or, if that source did not set one, of this one once parsed.
+         */
+        @Override
+        public Hash getHash() {
+            Hash hash = source.getHash();
+            return hash.isSet() ? hash : super.getHash();
+        }
+
+        @Override
+        public long getLastModified() {
+            return source.getLastModified();
+        }
+
+        @Override
+        public boolean exists() {
+            return source.exists();
+        }
+
+        @Override
+        public String getUrl() {
+            return source.getUrl();
+        }
+
+        @Override
+        public URL getCacheUrl() {
+            return source.getCacheUrl();
+        }
+
+        @Override
+        public String getDefaultNamespace() {
+            return source.getDefaultNamespace();
+        }
+    }
+
     @Override
     public boolean hasFind() {
         return true;
@@ -125,9 +304,18 @@ public class CompilingDefRegistry implements DefRegistry {
     public Set<DefDescriptor<?>> find(DescriptorFilter matcher) {
         Set<DefDescriptor<?>> ret = Sets.newHashSet();
 
-        for (DefDescriptor<?> key : registry.keySet()) {
-            if (matcher.matchDescriptor(key)) {
-                ret.add(key);
+        for (String namespace : namespaceKeys) {
+            if (matcher.matchNamespace(namespace)) {
+                Map<DefDescriptor<?>, DefHolder> holders = getNamespaceHolders(namespace);
+                if (holders == null) {
+                    // gone in a concurrent reset.
+                    continue;
+                }
+                for (DefDescriptor<?> key : holders.keySet()) {
+                    if (matcher.matchDescriptor(key)) {
+                        ret.add(key);
+                    }
+                }
             }
         }
         return ret;
@@ -135,7 +323,8 @@ public class CompilingDefRegistry implements DefRegistry {
 
     @Override
     public <T extends Definition> boolean exists(DefDescriptor<T> descriptor) {
-        return registry.containsKey(descriptor);
+        Map<DefDescriptor<?>, DefHolder> holders = getNamespaceHolders(descriptor.getNamespace());
+        return holders != null && holders.containsKey(descriptor);
     }
 
     @Override
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ObjectStreamException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.def.DescriptorFilter;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A static registry read from a {@link StaticRegistryFile}, which deserializes each definition the first time it is
+ * asked for.
+ */
+public class LazyStaticDefRegistry extends StaticDefRegistryImpl {
+    private static final long serialVersionUID = 1L;
+
+    static final class Entry {
+        private final int offset;
+        private final int length;
+        private volatile Definition def;
+
+        Entry(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final transient Map<DefDescriptor<?>, Entry> index;
+    private final transient ByteBuffer blobs;
+
+    LazyStaticDefRegistry(Set<DefType> defTypes, Set<String> prefixes, Set<String> namespaces,
+            Map<DefDescriptor<?>, Entry> index, ByteBuffer blobs) {
+        super(defTypes, prefixes, namespaces, Maps.<DefDescriptor<?>, Definition> newHashMap());
+        this.index = index;
+        this.blobs = blobs;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <D extends Definition> D getDef(DefDescriptor<D> descriptor) {
+        Entry entry = index.get(descriptor);
+        if (entry == null) {
+            return null;
+        }
+        Definition def = entry.def;
+        if (def == null) {
+            // a race only costs a second read, both results are equal.
+            def = StaticRegistryFile.readDefinition(blobs, descriptor, entry.offset, entry.length);
+            entry.def = def;
+        }
+        return (D) def;
+    }
+
+    @Override
+    public Set<DefDescriptor<?>> find(DescriptorFilter matcher) {
+        Set<DefDescriptor<?>> ret = new HashSet<>();
+
+        for (DefDescriptor<?> key : index.keySet()) {
+            if (matcher.matchDescriptor(key)) {
+                ret.add(key);
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public <D extends Definition> boolean exists(DefDescriptor<D> descriptor) {
+        return index.containsKey(descriptor);
+    }
+
+    @Override
+    Map<DefDescriptor<?>, Definition> getAllDefs() {
+        Map<DefDescriptor<?>, Definition> defs = Maps.newHashMapWithExpectedSize(index.size());
+        for (DefDescriptor<?> descriptor : index.keySet()) {
+            defs.put(descriptor, getDef(descriptor));
+        }
+        return defs;
+    }
+
+    /**
+     * Serialize as a plain static registry, as the buffer cannot go along.
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        return new StaticDefRegistryImpl(getDefTypes(), getPrefixes(), getNamespaces(), getAllDefs());
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * A persistent store of parsed definitions, keyed by the hash of their source.
+ *
+ * This lets a restarted server skip parsing any source that did not change since the definition was stored. Entries
+ * are only ever returned for the exact source hash they were stored with, so a changed source simply misses. The
+ * store is also tied to a code version, and is discarded whole if that does not match, as serialized definitions
+ * from another build cannot be trusted.
+ *
+ * Definitions are serialized when stored, and only deserialized when first asked for, so that loading the store at
+ * startup is cheap. The store is written asynchronously a while after it changes, and by {@link #save()} at shutdown.
+ *
+ * The store file is read back with Java serialization, so only classes from an allowed set of packages are resolved,
+ * anything else fails the read as if the entry were corrupt. The file should still be writable by the server only.
+ */
+public class PersistentDefStore {
+    private static final Logger logger = Logger.getLogger(PersistentDefStore.class);
+
+    private static final int FORMAT_VERSION = 1;
+
+    /** How long to wait after a change before writing, so that a compile storm results in a single write */
+    private static final long SAVE_DELAY_SECONDS = 30;
+
+    private static final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "aura-def-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The packages whose classes may be read from a store file: the framework, JDK values and collections, and Guava
+     * collections, which is all that definitions and descriptors are built from.
+     */
+    static final List<String> ALLOWED_PACKAGES = ImmutableList.of("org.auraframework.", "java.lang.",
+            "java.util.", "java.math.", "com.google.common.base.", "com.google.common.collect.");
+
+    private static class StoredDef {
+        private final String sourceHash;
+        private final byte[] bytes;
+        private volatile Definition def;
+
+        private StoredDef(String sourceHash, byte[] bytes, Definition def) {
+            this.sourceHash = sourceHash;
+            this.bytes = bytes;
+            this.def = def;
+        }
+    }
+
+    private final File file;
+    private final String version;
+    private final List<String> allowedPackages;
+    private final ConcurrentMap<DefDescriptor<?>, StoredDef> defs = new ConcurrentHashMap<>();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean dirty;
+
+    /**
+     * Create a store, loading what was previously saved to the file.
+     *
+     * @param file the file to load from and save to.
+     * @param version the version of the code, entries saved by any other version are discarded.
+     */
+    public PersistentDefStore(File file, String version) {
+        this(file, version, ALLOWED_PACKAGES);
+    }
+
+    /**
+     * Create a store that reads back classes from the given packages only.
+     */
+    PersistentDefStore(File file, String version, List<String> allowedPackages) {
+        this.file = file;
+        this.version = version;
+        this.allowedPackages = allowedPackages;
+        load();
+    }
+
+    /**
+     * Get a stored definition.
+     *
+     * @param descriptor the descriptor of the definition.
+     * @param sourceHash the hash of the current source for the descriptor.
+     * @return the definition, or null if none was stored for this source.
+     */
+    public <T extends Definition> T get(DefDescriptor<T> descriptor, String sourceHash) {
+        StoredDef stored = defs.get(descriptor);
+        if (stored == null || !stored.sourceHash.equals(sourceHash)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Definition def = stored.def;
+        if (def == null) {
+            def = deserialize(stored.bytes);
+            if (def == null) {
+                defs.remove(descriptor, stored);
+                misses.incrementAndGet();
+                return null;
+            }
+            stored.def = def;
+        }
+        hits.incrementAndGet();
+        @SuppressWarnings("unchecked")
+        T result = (T) def;
+        return result;
+    }
+
+    /**
+     * Store a definition, replacing anything stored for the descriptor.
+     *
+     * Definitions that cannot be serialized are silently not stored.
+     *
+     * @param descriptor the descriptor of the definition.
+     * @param sourceHash the hash of the source the definition was parsed from.
+     * @param def the validated definition.
+     */
+    public void put(DefDescriptor<?> descriptor, String sourceHash, Definition def) {
+        byte[] bytes = serialize(def);
+        if (bytes == null) {
+            return;
+        }
+        defs.put(descriptor, new StoredDef(sourceHash, bytes, def));
+        dirty = true;
+        if (saveScheduled.compareAndSet(false, true)) {
+            saver.schedule(() -> {
+                saveScheduled.set(false);
+                save();
+            }, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Write the store to its file if anything changed since it was last written.
+     *
+     * The file is written beside the old one and moved in place, so a crash leaves either the old or new store.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(version);
+                Map<DefDescriptor<?>, StoredDef> snapshot = Maps.newHashMap(defs);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<DefDescriptor<?>, StoredDef> entry : snapshot.entrySet()) {
+                    out.writeObject(entry.getKey());
+                    out.writeUTF(entry.getValue().sourceHash);
+                    out.writeInt(entry.getValue().bytes.length);
+                    out.write(entry.getValue().bytes);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            dirty = true;
+            temp.delete();
+            logger.error("Unable to save definitions to " + file, ioe);
+        }
+    }
+
+    public int size() {
+        return defs.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: entries=%d, hits=%d, misses=%d", file, defs.size(), hits.get(), misses.get());
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (ObjectInputStream in = new AllowedClassInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION || !version.equals(in.readUTF())) {
+                logger.info("Discarding definitions saved by another version in " + file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                DefDescriptor<?> descriptor = (DefDescriptor<?>) in.readObject();
+                String sourceHash = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                defs.put(descriptor, new StoredDef(sourceHash, bytes, null));
+            }
+            logger.info("Loaded " + count + " definitions from " + file);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // Do not fail here, just start empty.
+            defs.clear();
+            logger.warn("Unable to load definitions from " + file + ", ignored", e);
+        }
+    }
+
+    private static byte[] serialize(Definition def) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(def);
+        } catch (IOException ioe) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private Definition deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new AllowedClassInputStream(new ByteArrayInputStream(bytes))) {
+            return (Definition) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * An object stream that refuses classes outside the allowed packages, before anything of theirs is created.
+     */
+    private class AllowedClassInputStream extends ObjectInputStream {
+        private AllowedClassInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            // arrays are allowed as their element class is, primitive arrays always.
+            int dimensions = 0;
+            while (name.charAt(dimensions) == '[') {
+                dimensions++;
+            }
+            if (dimensions > 0) {
+                name = name.charAt(dimensions) == 'L' ? name.substring(dimensions + 1, name.length() - 1) : null;
+            }
+            if (name != null && !isAllowed(name)) {
+                throw new InvalidClassException(desc.getName(), "not allowed in a definition store");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("proxy", "not allowed in a definition store");
+        }
+
+        private boolean isAllowed(String name) {
+            for (String allowed : allowedPackages) {
+                if (name.startsWith(allowed)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -58,6 +58,13 @@ public class StaticDefRegistryImpl extends DefRegistryImpl {
         return (D)defs.get(descriptor);
     }
 
+    /**
+     * @return every definition of this registry, by descriptor.
+     */
+    Map<DefDescriptor<?>, Definition> getAllDefs() {
+        return defs;
+    }
+
     public void setSourceFactory(SourceFactory sourceFactory) {
         this.sourceFactory = sourceFactory;
     }
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.throwable.AuraRuntimeException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The binary format of precompiled static registry files.
+ *
+ * A file is laid out as follows, all numbers big endian:
+ * <ul>
+ * <li>magic and format version</li>
+ * <li>a string table, every string written once and then referred to by index</li>
+ * <li>a descriptor table, every descriptor written once as prefix, namespace, name, type and bundle</li>
+ * <li>for each registry, its types, prefixes and namespaces, and an index of its definitions as descriptor, offset and
+ * length</li>
+ * <li>the definitions, each serialized on its own</li>
+ * </ul>
+ *
+ * Reading only decodes the tables and the index. A definition is deserialized from its slice of the buffer the first
+ * time it is asked for, so a file can be mapped rather than read, and definitions that are never used cost nothing.
+ */
+public final class StaticRegistryFile {
+    private static final int MAGIC = 0x41524547; // "AREG"
+
+    private static final int FORMAT_VERSION = 1;
+
+    private StaticRegistryFile() {
+    }
+
+    /**
+     * Write static registries.
+     *
+     * @param registries the registries to write.
+     * @param out the stream to write to, which is left open.
+     */
+    public static void write(List<StaticDefRegistryImpl> registries, OutputStream out) throws IOException {
+        Map<String, Integer> strings = Maps.newLinkedHashMap();
+        Map<DefDescriptor<?>, Integer> descriptors = Maps.newLinkedHashMap();
+        List<DefDescriptor<?>> descriptorList = Lists.newArrayList();
+        for (StaticDefRegistryImpl registry : registries) {
+            for (DefType defType : registry.getDefTypes()) {
+                intern(strings, defType.name());
+            }
+            for (String prefix : registry.getPrefixes()) {
+                intern(strings, prefix);
+            }
+            for (String namespace : registry.getNamespaces()) {
+                intern(strings, namespace);
+            }
+        }
+        List<Map<DefDescriptor<?>, Definition>> allDefs = Lists.newArrayList();
+        for (StaticDefRegistryImpl registry : registries) {
+            Map<DefDescriptor<?>, Definition> defs = registry.getAllDefs();
+            for (DefDescriptor<?> descriptor : defs.keySet()) {
+                intern(strings, descriptors, descriptorList, descriptor);
+            }
+            allDefs.add(defs);
+        }
+
+        ByteArrayOutputStream blobs = new ByteArrayOutputStream();
+        List<List<int[]>> indexes = Lists.newArrayList();
+        for (Map<DefDescriptor<?>, Definition> defs : allDefs) {
+            List<int[]> index = Lists.newArrayList();
+            for (Map.Entry<DefDescriptor<?>, Definition> entry : defs.entrySet()) {
+                int offset = blobs.size();
+                try (ObjectOutputStream defOut = new ObjectOutputStream(blobs)) {
+                    defOut.writeObject(entry.getValue());
+                }
+                index.add(new int[] { descriptors.get(entry.getKey()), offset, blobs.size() - offset });
+            }
+            indexes.add(index);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+        data.writeInt(descriptorList.size());
+        for (DefDescriptor<?> descriptor : descriptorList) {
+            data.writeInt(getIndex(strings, descriptor.getPrefix()));
+            data.writeInt(getIndex(strings, descriptor.getNamespace()));
+            data.writeInt(getIndex(strings, descriptor.getName()));
+            data.writeInt(getIndex(strings, descriptor.getDefType().name()));
+            data.writeInt(descriptor.getBundle() != null ? descriptors.get(descriptor.getBundle()) : -1);
+        }
+        data.writeInt(registries.size());
+        for (int i = 0; i < registries.size(); i++) {
+            StaticDefRegistryImpl registry = registries.get(i);
+            data.writeInt(registry.getDefTypes().size());
+            for (DefType defType : registry.getDefTypes()) {
+                data.writeInt(getIndex(strings, defType.name()));
+            }
+            data.writeInt(registry.getPrefixes().size());
+            for (String prefix : registry.getPrefixes()) {
+                data.writeInt(getIndex(strings, prefix));
+            }
+            data.writeInt(registry.getNamespaces().size());
+            for (String namespace : registry.getNamespaces()) {
+                data.writeInt(getIndex(strings, namespace));
+            }
+            data.writeInt(indexes.get(i).size());
+            for (int[] entry : indexes.get(i)) {
+                data.writeInt(entry[0]);
+                data.writeInt(entry[1]);
+                data.writeInt(entry[2]);
+            }
+        }
+        data.writeInt(blobs.size());
+        blobs.writeTo(data);
+        data.flush();
+    }
+
+    private static int intern(Map<String, Integer> strings, String string) {
+        if (string == null) {
+            return -1;
+        }
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    private static int intern(Map<String, Integer> strings, Map<DefDescriptor<?>, Integer> descriptors,
+            List<DefDescriptor<?>> descriptorList, DefDescriptor<?> descriptor) {
+        Integer index = descriptors.get(descriptor);
+        if (index == null) {
+            // bundles come first, so that reading can resolve them as it goes.
+            if (descriptor.getBundle() != null) {
+                intern(strings, descriptors, descriptorList, descriptor.getBundle());
+            }
+            intern(strings, descriptor.getPrefix());
+            intern(strings, descriptor.getNamespace());
+            intern(strings, descriptor.getName());
+            intern(strings, descriptor.getDefType().name());
+            index = descriptorList.size();
+            descriptors.put(descriptor, index);
+            descriptorList.add(descriptor);
+        }
+        return index;
+    }
+
+    private static int getIndex(Map<String, Integer> strings, String string) {
+        return string != null ? strings.get(string) : -1;
+    }
+
+    /**
+     * @return true if the buffer, from its position, holds registries in this format.
+     */
+    public static boolean isStaticRegistryFile(ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Map a file in memory.
+     */
+    public static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Read static registries, leaving their definitions in the buffer until they are asked for.
+     *
+     * @param buffer the buffer holding the registries, which must not be changed afterwards.
+     */
+    public static List<StaticDefRegistryImpl> read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a static registry file");
+        }
+        int version = in.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported static registry file version " + version);
+        }
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        DefDescriptor<?>[] descriptors = new DefDescriptor<?>[in.getInt()];
+        for (int i = 0; i < descriptors.length; i++) {
+            String prefix = getString(strings, in.getInt());
+            String namespace = getString(strings, in.getInt());
+            String name = getString(strings, in.getInt());
+            DefType defType = DefType.valueOf(strings[in.getInt()]);
+            int bundle = in.getInt();
+            descriptors[i] = new DefDescriptorImpl<>(prefix, namespace, name, defType.getPrimaryInterface(),
+                    bundle >= 0 ? descriptors[bundle] : null);
+        }
+        int registryCount = in.getInt();
+        List<Set<DefType>> defTypes = Lists.newArrayList();
+        List<Set<String>> prefixes = Lists.newArrayList();
+        List<Set<String>> namespaces = Lists.newArrayList();
+        List<Map<DefDescriptor<?>, LazyStaticDefRegistry.Entry>> indexes = Lists.newArrayList();
+        for (int r = 0; r < registryCount; r++) {
+            Set<DefType> types = Sets.newHashSet();
+            for (int i = in.getInt(); i > 0; i--) {
+                types.add(DefType.valueOf(strings[in.getInt()]));
+            }
+            defTypes.add(types);
+            prefixes.add(readStrings(in, strings));
+            namespaces.add(readStrings(in, strings));
+            int count = in.getInt();
+            Map<DefDescriptor<?>, LazyStaticDefRegistry.Entry> index = Maps.newHashMapWithExpectedSize(count);
+            for (int i = 0; i < count; i++) {
+                index.put(descriptors[in.getInt()], new LazyStaticDefRegistry.Entry(in.getInt(), in.getInt()));
+            }
+            indexes.add(index);
+        }
+        int blobLength = in.getInt();
+        ByteBuffer blobs = in.slice();
+        blobs.limit(blobLength);
+
+        List<StaticDefRegistryImpl> registries = Lists.newArrayListWithCapacity(registryCount);
+        for (int r = 0; r < registryCount; r++) {
+            registries.add(new LazyStaticDefRegistry(defTypes.get(r), prefixes.get(r), namespaces.get(r),
+                    indexes.get(r), blobs));
+        }
+        return registries;
+    }
+
+    private static String getString(String[] strings, int index) {
+        return index >= 0 ? strings[index] : null;
+    }
+
+    private static Set<String> readStrings(ByteBuffer in, String[] strings) {
+        Set<String> set = Sets.newHashSet();
+        for (int i = in.getInt(); i > 0; i--) {
+            set.add(strings[in.getInt()]);
+        }
+        return set;
+    }
+
+    /**
+     * Deserialize a definition from its slice of the buffer.
+     */
+    static Definition readDefinition(ByteBuffer blobs, DefDescriptor<?> descriptor, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = blobs.duplicate();
+        slice.position(offset);
+        slice.get(bytes);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Definition) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new AuraRuntimeException("Unable to read " + descriptor + " from static registry file", e);
+        }
+    }
+}
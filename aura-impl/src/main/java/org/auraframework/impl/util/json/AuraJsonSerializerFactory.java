@@ -17,8 +17,6 @@ package org.auraframework.impl.util.json;
 
 import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -29,21 +27,31 @@ import org.auraframework.service.LoggingService;
 import org.auraframework.util.json.DefaultJsonSerializer;
 import org.auraframework.util.json.JsonSerializer;
 import org.auraframework.util.json.JsonSerializerFactory;
+import org.auraframework.util.json.JsonSerializers;
 
 import com.google.common.collect.ImmutableMap;
 
 /**
  * Retrieves Json Serializers
+ *
+ * The serializer of a class is resolved once, and then kept with the class itself, so that finding it again costs no
+ * more than a field read.
  */
 @ServiceComponent
 public class AuraJsonSerializerFactory implements JsonSerializerFactory {
 
     private static Map<String, JsonSerializer<?>> SERIALIZERS_LOOKUP_MAP;
     private static Map<Class<?>, JsonSerializer<?>> SERIALIZERS_INSTANCE_MAP;
-    private static final ConcurrentMap<String, JsonSerializer<?>> cache = new ConcurrentHashMap<>();
     private static final JsonSerializer NOT_FOUND = new DefaultJsonSerializer();
     private static final Object lock = new Object();
 
+    private final ClassValue<JsonSerializer<?>> cache = new ClassValue<JsonSerializer<?>>() {
+        @Override
+        protected JsonSerializer<?> computeValue(Class<?> type) {
+            return resolveSerializer(type);
+        }
+    };
+
     @Inject
     private LoggingService loggingService;
     
@@ -70,33 +78,42 @@ public class AuraJsonSerializerFactory implements JsonSerializerFactory {
     @Override
     @SuppressWarnings("unchecked")
     public <T> JsonSerializer<T> getSerializer(T o) {
-        Class<?> c = o.getClass();
-        String className = c.getName();
-        JsonSerializer<T> s = (JsonSerializer<T>) cache.get(className);
-        if (s != null) {
-            return (s != NOT_FOUND)? s : null;
+        JsonSerializer<T> s = (JsonSerializer<T>) cache.get(o.getClass());
+        return (s != NOT_FOUND) ? s : null;
+    }
+
+    /**
+     * Find the serializer for a class, the first time it is asked for.
+     *
+     * Arrays and enums come first, then an exact match on the class name, then the first registered supertype.
+     *
+     * @param c the class to serialize.
+     * @return the serializer, or NOT_FOUND.
+     */
+    private JsonSerializer<?> resolveSerializer(Class<?> c) {
+        if (c.isArray()) {
+            return JsonSerializers.ARRAY;
+        } else if (c.isEnum()) {
+            return JsonSerializers.STRING;
         }
 
         if (SERIALIZERS_INSTANCE_MAP == null) {
             initSerializerMaps();
         }
 
-        s = (JsonSerializer<T>) SERIALIZERS_LOOKUP_MAP.get(className);
+        String className = c.getName();
+        JsonSerializer<?> s = SERIALIZERS_LOOKUP_MAP.get(className);
         if (s != null) {
-            cache.putIfAbsent(className, s);
             return s;
         }
 
         for (Map.Entry<Class<?>, JsonSerializer<?>> e : SERIALIZERS_INSTANCE_MAP.entrySet()) {
             if (e.getKey().isAssignableFrom(c)) {
-                s = (JsonSerializer<T>) e.getValue();
-                cache.putIfAbsent(className, s);
-                return s;
+                return e.getValue();
             }
         }
 
-        cache.putIfAbsent(className, NOT_FOUND);
         loggingService.info("no JsonSerializer found for:" + className);
-        return null;
+        return NOT_FOUND;
     }
 }
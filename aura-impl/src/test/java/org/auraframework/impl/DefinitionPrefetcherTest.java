@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.system.DefDescriptorImpl;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+public class DefinitionPrefetcherTest extends UnitTestCase {
+    private final DefDescriptor<ComponentDef> a = new DefDescriptorImpl<>("markup", "test", "a", ComponentDef.class);
+    private final DefDescriptor<ComponentDef> b = new DefDescriptorImpl<>("markup", "test", "b", ComponentDef.class);
+    private final DefDescriptor<ComponentDef> c = new DefDescriptorImpl<>("markup", "test", "c", ComponentDef.class);
+    private final DefDescriptor<ComponentDef> d = new DefDescriptorImpl<>("markup", "test", "d", ComponentDef.class);
+
+    /**
+     * a and b depend on one another, and both share c and d.
+     */
+    private final Map<DefDescriptor<?>, Set<DefDescriptor<?>>> graph = ImmutableMap.<DefDescriptor<?>, Set<DefDescriptor<?>>> of(
+            a, ImmutableSet.<DefDescriptor<?>> of(b, c),
+            b, ImmutableSet.<DefDescriptor<?>> of(a, c, d),
+            c, ImmutableSet.<DefDescriptor<?>> of(d),
+            d, ImmutableSet.<DefDescriptor<?>> of());
+
+    /**
+     * Walks {@link #graph}, counting what happens on each worker.
+     */
+    private class GraphFetcher implements DefinitionPrefetcher.Fetcher {
+        private final DefinitionPrefetcher prefetcher;
+        private final ConcurrentMap<DefDescriptor<?>, AtomicInteger> fetched = new ConcurrentHashMap<>();
+        private final Set<Thread> workers = Sets.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        private final AtomicInteger starts = new AtomicInteger();
+        private final AtomicInteger ends = new AtomicInteger();
+        private final AtomicInteger notWorker = new AtomicInteger();
+
+        private GraphFetcher(DefinitionPrefetcher prefetcher) {
+            this.prefetcher = prefetcher;
+        }
+
+        @Override
+        public void start() {
+            starts.incrementAndGet();
+        }
+
+        @Override
+        public Collection<DefDescriptor<?>> fetch(DefDescriptor<?> descriptor) {
+            workers.add(Thread.currentThread());
+            if (!prefetcher.isWorker()) {
+                notWorker.incrementAndGet();
+            }
+            fetched.putIfAbsent(descriptor, new AtomicInteger());
+            fetched.get(descriptor).incrementAndGet();
+            return graph.get(descriptor);
+        }
+
+        @Override
+        public void end() {
+            ends.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testPrefetchSerialDoesNothing() {
+        DefinitionPrefetcher prefetcher = new DefinitionPrefetcher(1);
+        GraphFetcher fetcher = new GraphFetcher(prefetcher);
+
+        prefetcher.prefetch(a, fetcher);
+
+        assertTrue(fetcher.fetched.isEmpty());
+        assertEquals(0, fetcher.starts.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testPrefetchCyclicSharedGraphFetchesEachOnce() {
+        DefinitionPrefetcher prefetcher = new DefinitionPrefetcher(4);
+        GraphFetcher fetcher = new GraphFetcher(prefetcher);
+
+        prefetcher.prefetch(a, fetcher);
+
+        assertEquals(graph.keySet(), fetcher.fetched.keySet());
+        for (AtomicInteger count : fetcher.fetched.values()) {
+            assertEquals(1, count.get());
+        }
+        assertEquals(0, fetcher.notWorker.get());
+        assertFalse(fetcher.workers.contains(Thread.currentThread()));
+        assertFalse(prefetcher.isWorker());
+    }
+
+    @Test(timeout = 10000)
+    public void testPrefetchStartsOncePerWorker() {
+        DefinitionPrefetcher prefetcher = new DefinitionPrefetcher(2);
+        GraphFetcher fetcher = new GraphFetcher(prefetcher);
+
+        prefetcher.prefetch(a, fetcher);
+
+        assertEquals(2, fetcher.starts.get());
+        assertEquals(2, fetcher.ends.get());
+    }
+
+    /**
+     * A fetch that compiles, and so prefetches again while holding a lock the other workers want, must not wait on
+     * the workers.
+     */
+    @Test(timeout = 10000)
+    public void testNestedPrefetchOnWorkerDoesNotDeadlock() {
+        final DefinitionPrefetcher prefetcher = new DefinitionPrefetcher(2);
+        final Object holder = new Object();
+        final AtomicInteger nested = new AtomicInteger();
+        GraphFetcher fetcher = new GraphFetcher(prefetcher) {
+            @Override
+            public Collection<DefDescriptor<?>> fetch(DefDescriptor<?> descriptor) {
+                synchronized (holder) {
+                    prefetcher.prefetch(descriptor, new GraphFetcher(prefetcher) {
+                        @Override
+                        public Collection<DefDescriptor<?>> fetch(DefDescriptor<?> inner) {
+                            nested.incrementAndGet();
+                            return Collections.emptySet();
+                        }
+                    });
+                    return super.fetch(descriptor);
+                }
+            }
+        };
+
+        prefetcher.prefetch(a, fetcher);
+
+        assertEquals(graph.keySet(), fetcher.fetched.keySet());
+        assertEquals(0, nested.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testPrefetchContinuesPastFailedFetch() {
+        DefinitionPrefetcher prefetcher = new DefinitionPrefetcher(2);
+        GraphFetcher fetcher = new GraphFetcher(prefetcher) {
+            @Override
+            public Collection<DefDescriptor<?>> fetch(DefDescriptor<?> descriptor) {
+                Collection<DefDescriptor<?>> dependencies = super.fetch(descriptor);
+                if (descriptor.equals(c)) {
+                    throw new RuntimeException("broken");
+                }
+                return dependencies;
+            }
+        };
+
+        prefetcher.prefetch(a, fetcher);
+
+        assertEquals(graph.keySet(), fetcher.fetched.keySet());
+        assertEquals(2, fetcher.ends.get());
+    }
+}
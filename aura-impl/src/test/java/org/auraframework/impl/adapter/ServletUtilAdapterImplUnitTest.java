@@ -883,4 +883,33 @@ public class ServletUtilAdapterImplUnitTest extends UnitTestCase {
         Mockito.verify(mockContextService, Mockito.atLeastOnce()).endContext();
         Mockito.verify(adapter, Mockito.atLeastOnce()).setNoCache(mockResponse);
     }
+
+    @Test
+    public void testCheckNotModifiedMatchesIfNoneMatch() {
+        ServletUtilAdapterImpl adapter = new ServletUtilAdapterImpl();
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"other\", W/\"tag\"");
+
+        assertTrue(adapter.checkNotModified(request, response, "\"tag\""));
+
+        Mockito.verify(response).setHeader(HttpHeaders.ETAG, "\"tag\"");
+        Mockito.verify(response).setHeader(HttpHeaders.VARY, "Accept-Encoding");
+        Mockito.verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void testCheckNotModifiedSetsTagWithoutMatch() {
+        ServletUtilAdapterImpl adapter = new ServletUtilAdapterImpl();
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"other\"");
+
+        assertFalse(adapter.checkNotModified(request, response, "\"tag\""));
+        assertFalse(adapter.checkNotModified(Mockito.mock(HttpServletRequest.class), response, "\"tag\""));
+
+        Mockito.verify(response, Mockito.times(2)).setHeader(HttpHeaders.ETAG, "\"tag\"");
+        Mockito.verify(response, Mockito.times(2)).setHeader(HttpHeaders.VARY, "Accept-Encoding");
+        Mockito.verify(response, Mockito.never()).setStatus(Mockito.anyInt());
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.adapter.format.json;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.auraframework.def.ActionDef;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.instance.Action;
+import org.auraframework.service.DefinitionService;
+import org.auraframework.service.InstanceService;
+import org.auraframework.system.Message;
+import org.auraframework.throwable.quickfix.InvalidDefinitionException;
+import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+
+public class MessageJSONFormatAdapterTest extends UnitTestCase {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test
+    public void testReadCreatesActionsInOrder() throws Exception {
+        InstanceService instanceService = mock(InstanceService.class);
+        DefinitionService definitionService = mock(DefinitionService.class);
+        Action first = mock(Action.class);
+        Action second = mock(Action.class);
+        DefDescriptor<ComponentDef> caller = mock(DefDescriptor.class);
+        when(instanceService.getInstance(eq("java://c.first/ACTION$run"), eq(ActionDef.class),
+                Matchers.<Map<String, Object>> any())).thenReturn(first);
+        when(instanceService.getInstance(eq("java://c.second/ACTION$run"), eq(ActionDef.class),
+                Matchers.<Map<String, Object>> any())).thenReturn(second);
+        when(definitionService.getDefDescriptor("markup://c:caller", ComponentDef.class)).thenReturn(caller);
+        MessageJSONFormatAdapter adapter = new MessageJSONFormatAdapter();
+        adapter.setInstanceService(instanceService);
+        adapter.setDefinitionService(definitionService);
+
+        Message message = adapter.read(new StringReader("{\"actions\":["
+                + "{\"id\":\"1;a\",\"descriptor\":\"java://c.first/ACTION$run\",\"callingDescriptor\":\"markup://c:caller\","
+                + "\"params\":{\"count\":3,\"actions\":[]},\"version\":\"2.0\"},"
+                + "{\"params\":{},\"descriptor\":\"java://c.second/ACTION$run\",\"id\":\"2;a\",\"callingDescriptor\":\"UNKNOWN\"}"
+                + "]}"));
+
+        assertEquals(2, message.getActions().size());
+        assertSame(first, message.getActions().get(0));
+        assertSame(second, message.getActions().get(1));
+        ArgumentCaptor<Map> params = ArgumentCaptor.forClass(Map.class);
+        verify(instanceService).getInstance(eq("java://c.first/ACTION$run"), eq(ActionDef.class), params.capture());
+        assertEquals(new BigDecimal(3), params.getValue().get("count"));
+        verify(first).setId("1;a");
+        verify(first).setCallingDescriptor(caller);
+        verify(first).setCallerVersion("2.0");
+        verify(second).setId("2;a");
+        verify(second, never()).setCallingDescriptor(any(DefDescriptor.class));
+        verify(second, never()).setCallerVersion(any(String.class));
+    }
+
+    @Test
+    public void testReadWithoutActions() throws Exception {
+        MessageJSONFormatAdapter adapter = new MessageJSONFormatAdapter();
+
+        Message message = adapter.read(new StringReader("{}"));
+
+        assertEquals(0, message.getActions().size());
+    }
+
+    @Test
+    public void testReadRethrowsQuickFixException() throws Exception {
+        InstanceService instanceService = mock(InstanceService.class);
+        QuickFixException expected = new InvalidDefinitionException("bad", null);
+        when(instanceService.getInstance(eq("java://c.bad/ACTION$run"), eq(ActionDef.class),
+                Matchers.<Map<String, Object>> any())).thenThrow(expected);
+        MessageJSONFormatAdapter adapter = new MessageJSONFormatAdapter();
+        adapter.setInstanceService(instanceService);
+
+        try {
+            adapter.read(new StringReader("{\"actions\":[{\"descriptor\":\"java://c.bad/ACTION$run\",\"params\":{}}]}"));
+            fail("Expected the QuickFixException to be thrown");
+        } catch (QuickFixException qfe) {
+            assertSame(expected, qfe);
+        }
+    }
+}
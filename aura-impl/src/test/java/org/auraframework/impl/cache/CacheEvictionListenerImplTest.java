@@ -15,6 +15,8 @@
  */
 package org.auraframework.impl.cache;
 
+import java.util.List;
+
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.system.LoggingContext;
 import org.auraframework.util.test.util.UnitTestCase;
@@ -24,6 +26,8 @@ import org.mockito.Mockito;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.collect.Lists;
 
 public class CacheEvictionListenerImplTest extends UnitTestCase {
     @Mock
@@ -191,4 +195,46 @@ public class CacheEvictionListenerImplTest extends UnitTestCase {
         Mockito.verify(loggingContext, Mockito.times(1)).logCacheInfo(name, expectedMessage, size, cacheStats);
         Mockito.verifyNoMoreInteractions(loggingContext);
     }
+
+    @Test
+    public void testOnRemovalCountsCauses() throws Exception {
+        CacheEvictionListenerImpl<String,String> listener;
+        CacheStats cacheStats;
+        String name = "test";
+        String expectedMessage = "evicted 1 entries for size pressure, hit rate=0.110, removals={COLLECTED=2, SIZE=1}";
+        long size = 99L;
+
+        listener = new CacheEvictionListenerImpl<>("test", loggingAdapter, 5, 1000, 1);
+        cacheStats = new CacheStats(11, 89, 100, 0, 1, 1);
+        Mockito.when(cache.stats()).thenReturn(cacheStats);
+        Mockito.when(cache.size()).thenReturn(size);
+        Mockito.when(loggingAdapter.getLoggingContext()).thenReturn(loggingContext);
+        Mockito.when(loggingAdapter.isEstablished()).thenReturn(true);
+        listener.setCache(cache);
+        Thread.sleep(5);
+        listener.onRemoval("a", "1", com.github.benmanes.caffeine.cache.RemovalCause.COLLECTED);
+        listener.onRemoval("b", "2", com.github.benmanes.caffeine.cache.RemovalCause.COLLECTED);
+        listener.onRemoval("c", "3", com.github.benmanes.caffeine.cache.RemovalCause.SIZE);
+        Mockito.verify(loggingContext, Mockito.times(1)).logCacheInfo(name, expectedMessage, size, cacheStats);
+        Mockito.verifyNoMoreInteractions(loggingContext);
+
+        assertEquals(Long.valueOf(2), listener.getRemovalCounts().get(RemovalCause.COLLECTED));
+        assertEquals(Long.valueOf(1), listener.getRemovalCounts().get(RemovalCause.SIZE));
+        assertNull(listener.getRemovalCounts().get(RemovalCause.EXPLICIT));
+    }
+
+    @Test
+    public void testOnRemovalPassesOnEvictionsOnly() throws Exception {
+        CacheEvictionListenerImpl<String,String> listener;
+        List<String> evicted = Lists.newArrayList();
+
+        listener = new CacheEvictionListenerImpl<>("test", loggingAdapter, 5, 1000, 1);
+        listener.setEvictionListener((key, value) -> evicted.add(key + "=" + value));
+        listener.onRemoval("a", "1", com.github.benmanes.caffeine.cache.RemovalCause.SIZE);
+        listener.onRemoval("b", "2", com.github.benmanes.caffeine.cache.RemovalCause.EXPLICIT);
+        listener.onRemoval("c", "3", com.github.benmanes.caffeine.cache.RemovalCause.REPLACED);
+        listener.onRemoval("d", null, com.github.benmanes.caffeine.cache.RemovalCause.COLLECTED);
+
+        assertEquals(Lists.newArrayList("a=1", "d=null"), evicted);
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.auraframework.impl.cache;
 
+import com.google.common.collect.ImmutableMap;
 import org.auraframework.cache.Cache;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
@@ -23,7 +24,9 @@ import org.mockito.Mockito;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class CacheImplTest extends UnitTestCase {
 
@@ -182,4 +185,55 @@ public class CacheImplTest extends UnitTestCase {
         Mockito.verify(backingCache, Mockito.never()).invalidate(
                 Mockito.anyCollection());
     }
+
+    @Test
+    public void testWeighedCacheEvictsByWeight() {
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+                .setConcurrencyLevel(1)
+                .setWeigher(StringWeigher.INSTANCE)
+                .setMaximumWeight(100)
+                .build();
+        // each entry weighs 2 * (1 + 19) = 40
+        cache.put("a", "0123456789012345678");
+        cache.put("b", "0123456789012345678");
+        assertEquals(2, cache.getKeySet().size());
+
+        cache.put("c", "0123456789012345678");
+        assertEquals(2, cache.getKeySet().size());
+        assertEquals("0123456789012345678", cache.getIfPresent("c"));
+    }
+
+    @Test
+    public void testSummarizeWeightsNamesHeaviestEntries() {
+        String summary = CacheImpl.summarizeWeights(
+                ImmutableMap.of("a", "x", "b", "xxxxxxxx", "c", "xx", "d", "xxxx"),
+                (String key, String value) -> value.length(), 100);
+
+        assertEquals(", weight=15 of 100, average entry weight=3, heaviest entries=[b=8, d=4, c=2]", summary);
+    }
+
+    @Test
+    public void testSummarizeWeightsEmpty() {
+        String summary = CacheImpl.summarizeWeights(Collections.<String, String> emptyMap(),
+                (String key, String value) -> value.length(), 100);
+
+        assertEquals(", weight=0 of 100, average entry weight=0, heaviest entries=[]", summary);
+    }
+
+    @Test
+    public void testRefreshAfterWriteReloadsOnRead() throws Exception {
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+                .setRefreshAfterWrite(1, TimeUnit.MILLISECONDS, key -> "new " + key)
+                .build();
+        cache.put("a", "old a");
+        Thread.sleep(10);
+
+        // the read starts the reload, which lands in the background.
+        cache.getIfPresent("a");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"new a".equals(cache.getIfPresent("a")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("new a", cache.getIfPresent("a"));
+    }
 }
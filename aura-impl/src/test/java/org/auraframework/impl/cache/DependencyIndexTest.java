@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.impl.system.DefDescriptorImpl;
+import org.auraframework.system.DependencyEntry;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+public class DependencyIndexTest extends UnitTestCase {
+    private final DefDescriptor<ComponentDef> shared = new DefDescriptorImpl<>("markup", "test", "shared", ComponentDef.class);
+    private final DefDescriptor<ComponentDef> first = new DefDescriptorImpl<>("markup", "test", "first", ComponentDef.class);
+    private final DefDescriptor<ComponentDef> second = new DefDescriptorImpl<>("markup", "test", "second", ComponentDef.class);
+
+    private DependencyEntry makeEntry(String uid, DefDescriptor<?>... dependencies) {
+        Set<DefDescriptor<? extends Definition>> deps = Sets.newLinkedHashSet();
+        Collections.addAll(deps, dependencies);
+        return new DependencyEntry(uid, deps, Collections.emptyList());
+    }
+
+    @Test
+    public void testRemoveReturnsOnlyDependents() {
+        DependencyIndex index = new DependencyIndex();
+        index.add("uid1/first", makeEntry("uid1", shared, first));
+        index.add("first", makeEntry("uid1", shared, first));
+        index.add("uid2/second", makeEntry("uid2", shared, second));
+
+        Map<String, Set<String>> removed = index.remove(Collections.<DefDescriptor<?>> singleton(first));
+
+        assertEquals(ImmutableMap.of("uid1", Sets.newHashSet("uid1/first", "first")), removed);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRemoveSharedDependencyRemovesAll() {
+        DependencyIndex index = new DependencyIndex();
+        index.add("uid1/first", makeEntry("uid1", shared, first));
+        index.add("uid2/second", makeEntry("uid2", shared, second));
+
+        Map<String, Set<String>> removed = index.remove(Collections.<DefDescriptor<?>> singleton(shared));
+
+        assertEquals(Sets.newHashSet("uid1", "uid2"), removed.keySet());
+        assertEquals(0, index.size());
+        // nothing left to remove through the other dependencies
+        assertTrue(index.remove(Sets.<DefDescriptor<?>> newHashSet(first, second)).isEmpty());
+    }
+
+    @Test
+    public void testFailedEntriesAreIgnored() {
+        DependencyIndex index = new DependencyIndex();
+        index.add("first", new DependencyEntry(null));
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testRemoveKeyDropsEntryWithItsLastKey() {
+        DependencyIndex index = new DependencyIndex();
+        DependencyEntry entry = makeEntry("uid1", shared, first);
+        index.add("uid1/first", entry);
+        index.add("first", entry);
+
+        index.remove("uid1/first", entry);
+        assertEquals(1, index.size());
+
+        // collected, so the entry is no longer known.
+        index.remove("first", null);
+        assertEquals(0, index.size());
+        assertTrue(index.remove(Collections.<DefDescriptor<?>> singleton(first)).isEmpty());
+    }
+
+    @Test
+    public void testRemoveKeyAfterRemoveByDependencyDoesNothing() {
+        DependencyIndex index = new DependencyIndex();
+        index.add("uid1/first", makeEntry("uid1", shared, first));
+        index.add("uid2/second", makeEntry("uid2", shared, second));
+        index.remove(Collections.<DefDescriptor<?>> singleton(first));
+
+        // the key went with its entry, so there is nothing left to look it up by.
+        index.remove("uid1/first", null);
+
+        assertEquals(1, index.size());
+        assertEquals(Sets.newHashSet("uid2"),
+                index.remove(Collections.<DefDescriptor<?>> singleton(shared)).keySet());
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.EncodedContent.Encoding;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class EncodedContentWeigherTest extends UnitTestCase {
+    @Test
+    public void testWeighCountsKeyCharsAndAllEncodings() {
+        EncodedContent content = EncodedContent.encode("value");
+        int expected = 2 * 3 + content.getBytes(Encoding.IDENTITY).length + content.getBytes(Encoding.GZIP).length
+                + content.getBytes(Encoding.DEFLATE).length;
+
+        assertEquals(expected, EncodedContentWeigher.INSTANCE.weigh("key", content));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheEngine;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+public class FrequencyCacheImplTest extends UnitTestCase {
+
+    private <K, T> Cache<K, T> buildCache() {
+        return new CacheImpl.Builder<K, T>()
+                .setEngine(CacheEngine.FREQUENCY)
+                .setMaximumSize(100)
+                .setRecordStats(true)
+                .setName("test")
+                .build();
+    }
+
+    @Test
+    public void testBuilderSelectsEngine() {
+        assertTrue(new CacheImpl.Builder<String, String>().build() instanceof CacheImpl);
+        assertTrue(buildCache() instanceof FrequencyCacheImpl);
+    }
+
+    @Test
+    public void testPutAndGetIfPresent() {
+        Cache<String, String> cache = buildCache();
+        cache.put("key", "value");
+
+        assertEquals("value", cache.getIfPresent("key"));
+        assertNull(cache.getIfPresent("other"));
+    }
+
+    @Test
+    public void testGetLoadsOnlyWhenAbsent() throws Exception {
+        Cache<String, String> cache = buildCache();
+        cache.put("key", "value");
+
+        assertEquals("value", cache.get("key", new Callable<String>() {
+            @Override
+            public String call() {
+                fail("loader should not be called for a present key");
+                return null;
+            }
+        }));
+        assertEquals("loaded", cache.get("other", new Callable<String>() {
+            @Override
+            public String call() {
+                return "loaded";
+            }
+        }));
+        assertEquals("loaded", cache.getIfPresent("other"));
+    }
+
+    @Test
+    public void testGetWrapsCheckedException() throws Exception {
+        Cache<String, String> cache = buildCache();
+        final IOException expected = new IOException("expected");
+
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw expected;
+                }
+            });
+            fail("expected an ExecutionException");
+        } catch (ExecutionException ee) {
+            assertSame(expected, ee.getCause());
+        }
+    }
+
+    @Test
+    public void testGetWrapsUncheckedException() throws Exception {
+        Cache<String, String> cache = buildCache();
+        final IllegalStateException expected = new IllegalStateException("expected");
+
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw expected;
+                }
+            });
+            fail("expected an UncheckedExecutionException");
+        } catch (UncheckedExecutionException uee) {
+            assertSame(expected, uee.getCause());
+        }
+    }
+
+    @Test
+    public void testInvalidatePartial() {
+        Cache<String, String> cache = buildCache();
+        cache.put("someKey", "someValue");
+        cache.put("someOtherKey", "someValue");
+        cache.put("unmatchedKey", "someValue");
+
+        cache.invalidatePartial("some");
+        assertEquals(Sets.newHashSet("unmatchedKey"), cache.getKeySet());
+    }
+
+    @Test
+    public void testInvalidatePartial_EmptyString() {
+        Cache<String, String> cache = buildCache();
+        cache.put("someKey", "someValue");
+
+        cache.invalidatePartial("");
+        assertTrue(cache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testInvalidateKeys() {
+        Cache<String, String> cache = buildCache();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        cache.invalidate(Sets.newHashSet("a", "b"));
+        assertEquals(Sets.newHashSet("c"), cache.getKeySet());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class MappedStringStoreTest extends UnitTestCase {
+
+    private File getStoreDirectory() throws Exception {
+        File directory = Files.createTempDirectory("mappedStringStoreTest").toFile();
+        deleteFileOnTeardown(directory);
+        return directory;
+    }
+
+    /**
+     * A store that writes its files on the calling thread.
+     */
+    private MappedStringStore<String> createStore(File directory, long maximumBytes) {
+        return new MappedStringStore<>(directory, maximumBytes, MoreExecutors.sameThreadExecutor());
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        MappedStringStore<String> store = createStore(getStoreDirectory(), 1024);
+        store.put("key", "value é中");
+
+        assertEquals("value é中", store.get("key"));
+        assertNull(store.get("other"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testPutReplacesValue() throws Exception {
+        MappedStringStore<String> store = createStore(getStoreDirectory(), 1024);
+        store.put("key", "first");
+        store.put("key", "second");
+
+        assertEquals("second", store.get("key"));
+        assertEquals(6, store.getTotalBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyRead() throws Exception {
+        MappedStringStore<String> store = createStore(getStoreDirectory(), 10);
+        store.put("a", "aaaa");
+        store.put("b", "bbbb");
+        store.get("a");
+        store.put("c", "cccc");
+
+        assertEquals(Sets.newHashSet("a", "c"), store.getKeySet());
+        assertEquals(8, store.getTotalBytes());
+    }
+
+    @Test
+    public void testValueLargerThanStoreIsSkipped() throws Exception {
+        MappedStringStore<String> store = createStore(getStoreDirectory(), 4);
+        store.put("a", "too large");
+
+        assertNull(store.get("a"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testRemoveDeletesFiles() throws Exception {
+        File directory = getStoreDirectory();
+        MappedStringStore<String> store = createStore(directory, 1024);
+        store.put("someKey", "1");
+        store.put("someOtherKey", "2");
+        store.put("unmatchedKey", "3");
+        assertEquals(3, directory.listFiles().length);
+
+        store.removePartial("some");
+        assertEquals(Sets.newHashSet("unmatchedKey"), store.getKeySet());
+        assertEquals(1, directory.listFiles().length);
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void testValueIsReadableBeforeItIsWritten() throws Exception {
+        File directory = getStoreDirectory();
+        final List<Runnable> writes = Lists.newArrayList();
+        MappedStringStore<String> store = new MappedStringStore<>(directory, 1024, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                writes.add(command);
+            }
+        });
+        store.put("key", "value");
+
+        assertEquals("value", store.get("key"));
+        assertEquals(0, directory.listFiles().length);
+
+        writes.get(0).run();
+        assertEquals("value", store.get("key"));
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void testValueRemovedBeforeItIsWrittenIsNotWritten() throws Exception {
+        File directory = getStoreDirectory();
+        final List<Runnable> writes = Lists.newArrayList();
+        MappedStringStore<String> store = new MappedStringStore<>(directory, 1024, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                writes.add(command);
+            }
+        });
+        store.put("key", "value");
+        store.clear();
+        writes.get(0).run();
+
+        assertNull(store.get("key"));
+        assertEquals(0, store.size());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void testStaleFilesAreDeleted() throws Exception {
+        File directory = getStoreDirectory();
+        Files.write(new File(directory, "entry-1.bin").toPath(), new byte[] { 1, 2, 3 });
+
+        createStore(directory, 1024);
+        assertEquals(0, directory.listFiles().length);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class StringWeigherTest extends UnitTestCase {
+    @Test
+    public void testWeighCountsKeyAndValueChars() {
+        assertEquals(2 * (3 + 5), StringWeigher.INSTANCE.weigh("key", "value"));
+    }
+
+    @Test
+    public void testWeighEmpty() {
+        assertEquals(0, StringWeigher.INSTANCE.weigh("", ""));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+
+import org.auraframework.cache.Cache;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class TieredCacheImplTest extends UnitTestCase {
+
+    private Cache<String, String> buildCache() throws Exception {
+        File directory = Files.createTempDirectory("tieredCacheImplTest").toFile();
+        deleteFileOnTeardown(directory);
+        Cache<String, String> cache = new CacheImpl.Builder<String, String>()
+                .setUseSecondaryStorage(true)
+                .setSecondaryStorageLocation(directory)
+                .setSecondaryStorageMaximumSize(1024)
+                .build();
+        assertTrue(cache instanceof TieredCacheImpl);
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private com.google.common.cache.Cache<String, String> getPrimary(Cache<String, String> cache) {
+        return (com.google.common.cache.Cache<String, String>) cache.getPrivateUnderlyingCache();
+    }
+
+    @Test
+    public void testGetIfPresentFallsBackToSecondary() throws Exception {
+        Cache<String, String> cache = buildCache();
+        cache.put("key", "value");
+
+        // simulate the primary tier dropping the entry
+        getPrimary(cache).invalidate("key");
+        assertEquals("value", cache.getIfPresent("key"));
+        // but the value is not put back in the primary tier
+        assertNull(getPrimary(cache).getIfPresent("key"));
+    }
+
+    @Test
+    public void testGetUsesSecondaryBeforeLoader() throws Exception {
+        Cache<String, String> cache = buildCache();
+        assertEquals("loaded", cache.get("key", new Callable<String>() {
+            @Override
+            public String call() {
+                return "loaded";
+            }
+        }));
+
+        getPrimary(cache).invalidate("key");
+        assertEquals("loaded", cache.get("key", new Callable<String>() {
+            @Override
+            public String call() {
+                fail("loader should not be called for a key in secondary storage");
+                return null;
+            }
+        }));
+        assertNull(getPrimary(cache).getIfPresent("key"));
+    }
+
+    @Test
+    public void testInvalidateClearsBothTiers() throws Exception {
+        Cache<String, String> cache = buildCache();
+        cache.put("someKey", "1");
+        cache.put("otherKey", "2");
+
+        cache.invalidate("someKey");
+        assertNull(cache.getIfPresent("someKey"));
+
+        cache.invalidateAll();
+        assertNull(cache.getIfPresent("otherKey"));
+        assertTrue(cache.getKeySet().isEmpty());
+    }
+
+    @Test
+    public void testInvalidatePartialClearsBothTiers() throws Exception {
+        Cache<String, String> cache = buildCache();
+        cache.put("someKey", "1");
+        cache.put("otherKey", "2");
+        getPrimary(cache).invalidateAll();
+
+        cache.invalidatePartial("some");
+        assertNull(cache.getIfPresent("someKey"));
+        assertEquals("2", cache.getIfPresent("otherKey"));
+    }
+}
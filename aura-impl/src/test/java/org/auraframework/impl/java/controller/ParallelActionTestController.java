@@ -21,6 +21,7 @@ import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.ds.servicecomponent.Controller;
 import org.auraframework.system.Annotations.AuraEnabled;
 import org.auraframework.system.Annotations.BackgroundAction;
+import org.auraframework.system.Annotations.CacheableAction;
 import org.auraframework.system.Annotations.Key;
 import org.auraframework.throwable.ClientOutOfSyncException;
 import org.auraframework.util.json.Json;
@@ -50,6 +51,18 @@ public class ParallelActionTestController implements Controller {
 
 	}
 
+    @AuraEnabled
+    @CacheableAction(params = "i")
+    public static Record executeCacheable(@Key("i") int i) {
+        return new Record(i);
+    }
+
+    @AuraEnabled
+    @CacheableAction(params = "i")
+    public static Record executeCacheableWithError(@Key("i") int i) {
+        throw new IllegalStateException("Testing error " + i);
+    }
+
 	@AuraEnabled
 	public static Record executeInForegroundWithReturn(@Key("i")int i) {
 		return new Record(i);
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.root.parser;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.auraframework.util.IOUtil;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class HTMLReaderTest extends UnitTestCase {
+
+    private boolean needsEntities(String contents) {
+        return HTMLReader.needsEntities(contents.toCharArray(), contents.length());
+    }
+
+    private String read(HTMLReader reader) throws Exception {
+        StringWriter writer = new StringWriter();
+        IOUtil.copyStream(reader, writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void testPredefinedEntitiesDoNotNeedPrelude() {
+        assertFalse(needsEntities("<a b='&amp;&lt;'>&gt;&quot;&apos;&#169;&#xA9;</a>"));
+    }
+
+    @Test
+    public void testOtherEntitiesNeedPrelude() {
+        assertTrue(needsEntities("<a>&nbsp;</a>"));
+        assertTrue(needsEntities("<a>&amp</a>"));
+        assertTrue(needsEntities("<a>& b</a>"));
+        assertTrue(needsEntities("<!DOCTYPE a []><a/>"));
+    }
+
+    @Test
+    public void testCreateKeepsLineNumbers() throws Exception {
+        String contents = "<a>\n<b/></a>";
+        assertEquals("\n" + contents, read(HTMLReader.create(contents.toCharArray(), contents.length())));
+
+        String withDtd = read(new HTMLReader(new StringReader(contents)));
+        assertTrue(withDtd.startsWith("<!DOCTYPE"));
+        assertTrue(withDtd.endsWith("]>\n" + contents));
+    }
+
+    @Test
+    public void testCreateResolvesHtmlEntities() throws Exception {
+        String contents = "<a>&nbsp;&amp;</a>";
+        XMLStreamReader xmlReader = XMLParser.createXMLStreamReader(
+                HTMLReader.create(contents.toCharArray(), contents.length()));
+        while (xmlReader.next() != XMLStreamConstants.CHARACTERS) {
+        }
+        assertEquals("\u00A0&", xmlReader.getText());
+        xmlReader.close();
+    }
+}
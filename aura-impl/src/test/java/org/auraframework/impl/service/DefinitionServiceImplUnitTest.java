@@ -18,10 +18,12 @@ package org.auraframework.impl.service;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
@@ -215,6 +217,32 @@ public class DefinitionServiceImplUnitTest extends AuraImplTestCase {
         Mockito.verify(definition, Mockito.times(1)).validateDefinition();
     }
 
+    @Test
+    public void testGetDefinitionRemembersCacheableFailure() throws Exception {
+        DefinitionServiceImpl definitionService = (DefinitionServiceImpl)createDefinitionServiceWithMocks();
+        QuickFixException expected = Mockito.mock(QuickFixException.class);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = Mockito.spy(new MockDefinition(descriptor));
+        Mockito.doThrow(expected).when(definition).validateDefinition();
+        Mockito.when(configAdapter.isCacheable(Mockito.any(DefRegistry.class), Mockito.any())).thenReturn(true);
+        setupMockRegistryFor(descriptor, registry1, definition);
+
+        for (int i = 0; i < 2; i++) {
+            // a fresh context each time, so that only the global cache remembers.
+            setupContext(definitionService);
+            Exception actual = null;
+            try {
+                definitionService.getDefinition(descriptor);
+            } catch (QuickFixException e) {
+                actual = e;
+            }
+            assertEquals(expected, actual);
+        }
+        Mockito.verify(definition, Mockito.times(1)).validateDefinition();
+        assertEquals(1, definitionService.getFailedCompileHitCount());
+        assertTrue(definitionService.getFailedCompileCount() > 0);
+    }
+
     @Test
     public void testGetDefinitionFailsOnValidateRefsError() throws Exception {
         DefinitionService definitionService = createDefinitionServiceWithMocks();
@@ -711,6 +739,50 @@ public class DefinitionServiceImplUnitTest extends AuraImplTestCase {
     	assertNull("we should return null when getting Uid with null descriptor", 
     			definitionService.getUid("testUID", null));
     }
+
+    @Test
+    public void testConcurrentCompilesOfSameDescriptorAreCoalesced() throws Exception {
+        DefinitionServiceImpl definitionService = (DefinitionServiceImpl)createDefinitionServiceWithMocks();
+        setupContext(definitionService);
+        DefDescriptor<Definition> descriptor = getMockDescriptor();
+        Definition definition = Mockito.spy(new MockDefinition(descriptor));
+        registries.addRegistryFor(descriptor, registry1);
+        Mockito.when(configAdapter.isCacheable(Mockito.any(DefRegistry.class), Mockito.any())).thenReturn(true);
+        CountDownLatch compiling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(registry1.getDef(descriptor)).thenAnswer(invocation -> {
+            compiling.countDown();
+            release.await();
+            return definition;
+        });
+        List<Definition> results = Collections.synchronizedList(Lists.newArrayList());
+        Runnable get = () -> {
+            try {
+                results.add(definitionService.getDefinition(descriptor));
+            } catch (QuickFixException qfe) {
+                throw new RuntimeException(qfe);
+            }
+        };
+
+        Thread leader = new Thread(get);
+        leader.start();
+        compiling.await();
+        Thread waiter = new Thread(get);
+        waiter.start();
+        long start = System.nanoTime();
+        while (definitionService.getCoalescedCompileCount() == 0 && System.nanoTime() - start < 10000000000L) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        leader.join();
+        waiter.join();
+
+        assertEquals(1, definitionService.getCompileCount());
+        assertEquals(1, definitionService.getCoalescedCompileCount());
+        assertEquals(Lists.newArrayList(definition, definition), results);
+        Mockito.verify(registry1, Mockito.times(1)).getDef(descriptor);
+        Mockito.verify(definition, Mockito.times(1)).validateDefinition();
+    }
     
 
 //void updateLoaded(DefDescriptor<?> loading) throws QuickFixException, ClientOutOfSyncException;
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.source.file;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.system.DefDescriptorImpl;
+import org.auraframework.system.SourceListener.SourceMonitorEvent;
+import org.auraframework.util.FileMonitor;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+public class FileSourceLoaderTest extends UnitTestCase {
+
+    private File createBase() throws Exception {
+        File base = Files.createTempDirectory("fileSourceLoaderTest").toFile().getCanonicalFile();
+        deleteFileOnTeardown(base);
+        return base;
+    }
+
+    private File createFile(File base, String path) throws Exception {
+        File file = new File(base, path);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+        return file;
+    }
+
+    @Test
+    public void testCreatedDirectoryWithFilesIsIndexed() throws Exception {
+        File base = createBase();
+        createFile(base, "one/cmp/cmp.cmp");
+        FileSourceLoader loader = new FileSourceLoader(base, null);
+        assertEquals(ImmutableSet.of("one"), loader.getNamespaces());
+
+        // a whole namespace copied in, only the directory is reported.
+        createFile(base, "two/other/other.cmp");
+        createFile(base, "two/other/otherController.js");
+        loader.onSourceChanged(null, SourceMonitorEvent.CREATED, new File(base, "two").getPath());
+
+        assertEquals(ImmutableSet.of("one", "two"), loader.getNamespaces());
+    }
+
+    @Test
+    public void testCreatedFileInUnindexedDirectoryPicksUpSiblings() throws Exception {
+        File base = createBase();
+        createFile(base, "one/cmp/cmp.cmp");
+        FileSourceLoader loader = new FileSourceLoader(base, null);
+        assertEquals(ImmutableSet.of("one"), loader.getNamespaces());
+
+        // a bundle renamed into place, then one file touched.
+        createFile(base, "one/renamed/renamed.cmp");
+        File controller = createFile(base, "one/renamed/renamedController.js");
+        loader.onSourceChanged(null, SourceMonitorEvent.CREATED, controller.getPath());
+
+        Set<String> names = Sets.newHashSet();
+        for (DefDescriptor<ComponentDef> descriptor : loader.find(ComponentDef.class, "markup", "one")) {
+            names.add(descriptor.getName());
+        }
+        assertEquals(ImmutableSet.of("cmp", "renamed"), names);
+    }
+
+    @Test
+    public void testUnindexedFileIsAbsentWhenMonitored() throws Exception {
+        File base = createBase();
+        createFile(base, "one/cmp/cmp.cmp");
+        FileSourceLoader loader = new FileSourceLoader(base, Mockito.mock(FileMonitor.class));
+        assertEquals(ImmutableSet.of("one"), loader.getNamespaces());
+
+        // the monitor has not reported it yet.
+        createFile(base, "one/late/late.cmp");
+
+        assertFalse(loader.getSource(new DefDescriptorImpl<>("markup", "one", "late", ComponentDef.class)).exists());
+        assertTrue(loader.getSource(new DefDescriptorImpl<>("markup", "one", "cmp", ComponentDef.class)).exists());
+    }
+
+    @Test
+    public void testUnindexedFileIsFoundWhenNotMonitored() throws Exception {
+        File base = createBase();
+        createFile(base, "one/cmp/cmp.cmp");
+        FileSourceLoader loader = new FileSourceLoader(base, null);
+        assertEquals(ImmutableSet.of("one"), loader.getNamespaces());
+
+        createFile(base, "one/late/late.cmp");
+
+        assertTrue(loader.getSource(new DefDescriptorImpl<>("markup", "one", "late", ComponentDef.class)).exists());
+    }
+}
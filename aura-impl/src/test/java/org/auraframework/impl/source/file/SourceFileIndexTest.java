@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.source.file;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+public class SourceFileIndexTest extends UnitTestCase {
+
+    private File createBase() throws Exception {
+        File base = Files.createTempDirectory("sourceFileIndexTest").toFile().getCanonicalFile();
+        deleteFileOnTeardown(base);
+        return base;
+    }
+
+    private File createFile(File base, String path) throws Exception {
+        File file = new File(base, path);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+        return file;
+    }
+
+    @Test
+    public void testScanFindsNamespacesWithFiles() throws Exception {
+        File base = createBase();
+        File cmp = createFile(base, "one/cmp/cmp.cmp");
+        createFile(base, "two/other/other.cmp");
+        new File(base, "empty/dir").mkdirs();
+
+        SourceFileIndex index = new SourceFileIndex(base);
+
+        assertEquals(ImmutableSet.of("one", "two"), index.getNamespaces());
+        assertEquals(ImmutableSet.of(cmp), Sets.newHashSet(index.getFiles("ONE")));
+    }
+
+    @Test
+    public void testGetIgnoresCase() throws Exception {
+        File base = createBase();
+        File cmp = createFile(base, "one/myCmp/myCmp.cmp");
+
+        SourceFileIndex index = new SourceFileIndex(base);
+
+        assertEquals(cmp, index.get("one" + File.separator + "mycmp" + File.separator + "MYCMP.cmp"));
+        assertNull(index.get("one" + File.separator + "mycmp" + File.separator + "missing.cmp"));
+    }
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        File base = createBase();
+        SourceFileIndex index = new SourceFileIndex(base);
+        File cmp = createFile(base, "one/cmp/cmp.cmp");
+        File controller = createFile(base, "one/cmp/cmpController.js");
+
+        index.add(cmp);
+        index.add(controller);
+        assertEquals(ImmutableSet.of("one"), index.getNamespaces());
+        assertEquals(2, index.getFiles("one", "one" + File.separator + "cmp").size());
+
+        index.remove(controller);
+        assertNull(index.get("one" + File.separator + "cmp" + File.separator + "cmpController.js"));
+        assertEquals(cmp, index.get("one" + File.separator + "cmp" + File.separator + "cmp.cmp"));
+
+        index.remove(new File(base, "one"));
+        assertTrue(index.getNamespaces().isEmpty());
+    }
+
+    @Test
+    public void testAddIgnoresFilesOutsideNamespaces() throws Exception {
+        File base = createBase();
+        SourceFileIndex index = new SourceFileIndex(base);
+
+        index.add(createFile(base, "top.txt"));
+        index.add(new File(base.getParentFile(), "elsewhere/file.txt"));
+
+        assertTrue(index.getNamespaces().isEmpty());
+    }
+
+    @Test
+    public void testAddAllPicksUpDirectoryThatArrivedWithFiles() throws Exception {
+        File base = createBase();
+        SourceFileIndex index = new SourceFileIndex(base);
+        File cmp = createFile(base, "one/cmp/cmp.cmp");
+        File controller = createFile(base, "one/cmp/cmpController.js");
+        assertFalse(index.contains(new File(base, "one/cmp")));
+
+        index.addAll(new File(base, "one"));
+
+        assertTrue(index.contains(new File(base, "one/cmp")));
+        assertEquals(ImmutableSet.of(cmp, controller), Sets.newHashSet(index.getFiles("one")));
+    }
+
+    @Test
+    public void testGetKeepsPathsThatDifferOnlyInCase() throws Exception {
+        File base = createBase();
+        SourceFileIndex index = new SourceFileIndex(base);
+        String upperPath = "one" + File.separator + "cmp" + File.separator + "Cmp.cmp";
+        String lowerPath = "one" + File.separator + "cmp" + File.separator + "cmp.cmp";
+        // not created, as the file system may not tell them apart.
+        File upper = new File(base, upperPath);
+        File lower = new File(base, lowerPath);
+
+        index.add(upper);
+        index.add(lower);
+        assertEquals(upper, index.get(upperPath));
+        assertEquals(lower, index.get(lowerPath));
+        assertEquals(2, index.getFiles("one").size());
+
+        index.remove(lower);
+        assertEquals(upper, index.get(lowerPath));
+        assertEquals(upper, index.get(upperPath));
+
+        index.remove(upper);
+        assertNull(index.get(upperPath));
+    }
+}
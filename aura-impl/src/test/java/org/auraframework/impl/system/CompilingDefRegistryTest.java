@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.impl.parser.ParserFactory;
+import org.auraframework.system.Parser;
+import org.auraframework.system.Parser.Format;
+import org.auraframework.system.Source;
+import org.auraframework.system.SourceLoader;
+import org.auraframework.throwable.AuraRuntimeException;
+import org.auraframework.throwable.quickfix.InvalidDefinitionException;
+import org.auraframework.util.IOUtil;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+public class CompilingDefRegistryTest extends UnitTestCase {
+
+    private final DefDescriptor<ComponentDef> first =
+            new DefDescriptorImpl<>("markup://one:first", ComponentDef.class, null);
+
+    private final DefDescriptor<ComponentDef> second =
+            new DefDescriptorImpl<>("markup://two:second", ComponentDef.class, null);
+
+    private SourceLoader createSourceLoader() {
+        SourceLoader sourceLoader = Mockito.mock(SourceLoader.class);
+        Mockito.when(sourceLoader.getNamespaces()).thenReturn(ImmutableSet.of("one", "Two"));
+        Mockito.when(sourceLoader.find(Mockito.any(DescriptorFilter.class))).thenAnswer(invocation -> {
+            DescriptorFilter filter = (DescriptorFilter) invocation.getArguments()[0];
+            Set<DefDescriptor<?>> found = Sets.newHashSet();
+            for (DefDescriptor<?> descriptor : ImmutableSet.of(first, second)) {
+                if (filter.matchDescriptor(descriptor)) {
+                    found.add(descriptor);
+                }
+            }
+            return found;
+        });
+        return sourceLoader;
+    }
+
+    private CompilingDefRegistry createRegistry(SourceLoader sourceLoader) {
+        return new CompilingDefRegistry(sourceLoader, ImmutableSet.of("markup"), ImmutableSet.of(DefType.COMPONENT),
+                Mockito.mock(ParserFactory.class));
+    }
+
+    @Test
+    public void testConstructionDoesNotIndex() {
+        SourceLoader sourceLoader = createSourceLoader();
+        createRegistry(sourceLoader);
+
+        Mockito.verify(sourceLoader, Mockito.never()).find(Mockito.any(DescriptorFilter.class));
+    }
+
+    @Test
+    public void testExistsIndexesOnlyItsNamespace() {
+        SourceLoader sourceLoader = createSourceLoader();
+        CompilingDefRegistry registry = createRegistry(sourceLoader);
+
+        assertTrue(registry.exists(first));
+        assertTrue(registry.exists(first));
+
+        Mockito.verify(sourceLoader, Mockito.times(1)).find(Mockito.any(DescriptorFilter.class));
+    }
+
+    @Test
+    public void testExistsForUnknownNamespaceDoesNotIndex() {
+        SourceLoader sourceLoader = createSourceLoader();
+        CompilingDefRegistry registry = createRegistry(sourceLoader);
+
+        assertFalse(registry.exists(new DefDescriptorImpl<>("markup://three:third", ComponentDef.class, null)));
+
+        Mockito.verify(sourceLoader, Mockito.never()).find(Mockito.any(DescriptorFilter.class));
+    }
+
+    @Test
+    public void testFindMatchesAcrossNamespaces() {
+        CompilingDefRegistry registry = createRegistry(createSourceLoader());
+
+        assertEquals(ImmutableSet.of(first, second), registry.find(new DescriptorFilter("*://*:*")));
+        assertEquals(ImmutableSet.of(second), registry.find(new DescriptorFilter("markup://two:*")));
+    }
+
+    @Test
+    public void testPrewarmIndexesEveryNamespace() {
+        SourceLoader sourceLoader = createSourceLoader();
+        CompilingDefRegistry registry = createRegistry(sourceLoader);
+
+        registry.prewarm(Runnable::run);
+        Mockito.verify(sourceLoader, Mockito.times(2)).find(Mockito.any(DescriptorFilter.class));
+
+        assertTrue(registry.exists(first));
+        assertTrue(registry.exists(second));
+        Mockito.verify(sourceLoader, Mockito.times(2)).find(Mockito.any(DescriptorFilter.class));
+    }
+
+    @Test
+    public void testPrefetchDoesNotKeepFailure() throws Exception {
+        SourceLoader sourceLoader = createSourceLoader();
+        @SuppressWarnings("unchecked")
+        Source<ComponentDef> source = Mockito.mock(Source.class);
+        Mockito.when(source.exists()).thenReturn(true);
+        Mockito.doReturn(source).when(sourceLoader).getSource(first);
+        ComponentDef def = Mockito.mock(ComponentDef.class);
+        @SuppressWarnings("unchecked")
+        Parser<ComponentDef> parser = Mockito.mock(Parser.class);
+        Mockito.when(parser.parse(first, source))
+                .thenThrow(new InvalidDefinitionException("not in this context", null))
+                .thenReturn(def);
+        ParserFactory parserFactory = Mockito.mock(ParserFactory.class);
+        Mockito.when(parserFactory.getParser(Mockito.any(Format.class), Mockito.eq(first))).thenReturn(parser);
+        CompilingDefRegistry registry = new CompilingDefRegistry(sourceLoader, ImmutableSet.of("markup"),
+                ImmutableSet.of(DefType.COMPONENT), parserFactory);
+
+        try {
+            registry.prefetchDef(first);
+            fail("Expected the prefetch to fail");
+        } catch (InvalidDefinitionException expected) {
+            // the next getDef should parse again
+        }
+
+        assertSame(def, registry.getDef(first));
+        assertSame(def, registry.prefetchDef(first));
+        Mockito.verify(parser, Mockito.times(2)).parse(first, source);
+    }
+
+    /**
+     * A source that counts how often it is read.
+     */
+    private static class CountingSource extends Source<ComponentDef> {
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private CountingSource(DefDescriptor<ComponentDef> descriptor) {
+            super(descriptor, descriptor.getQualifiedName(), Format.XML);
+        }
+
+        @Override
+        public Reader getReader() {
+            reads.incrementAndGet();
+            return new StringReader("<aura:component/>");
+        }
+
+        @Override
+        public String getContents() {
+            try {
+                StringWriter sw = new StringWriter();
+                IOUtil.copyStream(getHashingReader(), sw);
+                return sw.toString();
+            } catch (IOException e) {
+                throw new AuraRuntimeException(e);
+            }
+        }
+
+        @Override
+        public long getLastModified() {
+            return 0;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+    }
+
+    @Test
+    public void testGetDefWithStoreReadsSourceOnce() throws Exception {
+        SourceLoader sourceLoader = createSourceLoader();
+        CountingSource source = new CountingSource(first);
+        Mockito.doReturn(source).when(sourceLoader).getSource(first);
+        ComponentDef def = Mockito.mock(ComponentDef.class);
+        @SuppressWarnings("unchecked")
+        Parser<ComponentDef> parser = Mockito.mock(Parser.class);
+        Mockito.when(parser.parse(Mockito.eq(first), Mockito.any(Source.class))).thenAnswer(invocation -> {
+            // as the parsers do, read through the hashing reader.
+            IOUtil.copyStream(((Source<?>) invocation.getArguments()[1]).getHashingReader(), new StringWriter());
+            return def;
+        });
+        ParserFactory parserFactory = Mockito.mock(ParserFactory.class);
+        Mockito.when(parserFactory.getParser(Mockito.any(Format.class), Mockito.eq(first))).thenReturn(parser);
+        File directory = Files.createTempDirectory("compilingDefRegistryTest").toFile();
+        deleteFileOnTeardown(directory);
+        PersistentDefStore store = new PersistentDefStore(new File(directory, "test.defs"), "1");
+        CompilingDefRegistry registry = new CompilingDefRegistry(sourceLoader, ImmutableSet.of("markup"),
+                ImmutableSet.of(DefType.COMPONENT), parserFactory, store);
+
+        assertSame(def, registry.getDef(first));
+        assertEquals(1, source.reads.get());
+        assertTrue(source.getHash().isSet());
+    }
+}
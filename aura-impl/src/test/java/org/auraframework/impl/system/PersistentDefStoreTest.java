@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.Definition;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+public class PersistentDefStoreTest extends UnitTestCase {
+
+    private final DefDescriptor<ComponentDef> descriptor =
+            new DefDescriptorImpl<>("markup://test:persisted", ComponentDef.class, null);
+
+    private File getStoreFile() throws Exception {
+        File directory = Files.createTempDirectory("persistentDefStoreTest").toFile();
+        deleteFileOnTeardown(directory);
+        return new File(directory, "test.defs");
+    }
+
+    /**
+     * Mocks are built from Mockito classes, which a store refuses unless told otherwise.
+     */
+    private PersistentDefStore loadStore(File file, String version) {
+        return new PersistentDefStore(file, version, ImmutableList.<String> builder()
+                .addAll(PersistentDefStore.ALLOWED_PACKAGES).add("org.mockito.").build());
+    }
+
+    private ComponentDef createDef() {
+        return Mockito.mock(ComponentDef.class, Mockito.withSettings().serializable());
+    }
+
+    @Test
+    public void testGetReturnsDefForSameSourceHash() throws Exception {
+        PersistentDefStore store = new PersistentDefStore(getStoreFile(), "1");
+        ComponentDef def = createDef();
+        store.put(descriptor, "hash", def);
+
+        assertSame(def, store.get(descriptor, "hash"));
+    }
+
+    @Test
+    public void testGetMissesForChangedSourceHash() throws Exception {
+        PersistentDefStore store = new PersistentDefStore(getStoreFile(), "1");
+        store.put(descriptor, "hash", createDef());
+
+        assertNull(store.get(descriptor, "changed"));
+    }
+
+    @Test
+    public void testSavedDefsAreLoaded() throws Exception {
+        File file = getStoreFile();
+        PersistentDefStore store = new PersistentDefStore(file, "1");
+        store.put(descriptor, "hash", createDef());
+        store.save();
+
+        PersistentDefStore loaded = loadStore(file, "1");
+
+        assertEquals(1, loaded.size());
+        Definition def = loaded.get(descriptor, "hash");
+        assertNotNull(def);
+        assertTrue(def instanceof ComponentDef);
+    }
+
+    @Test
+    public void testSavedDefsFromOtherVersionAreDiscarded() throws Exception {
+        File file = getStoreFile();
+        PersistentDefStore store = new PersistentDefStore(file, "1");
+        store.put(descriptor, "hash", createDef());
+        store.save();
+
+        PersistentDefStore loaded = loadStore(file, "2");
+
+        assertEquals(0, loaded.size());
+        assertNull(loaded.get(descriptor, "hash"));
+    }
+
+    @Test
+    public void testUnserializableDefIsNotStored() throws Exception {
+        PersistentDefStore store = new PersistentDefStore(getStoreFile(), "1");
+        store.put(descriptor, "hash", Mockito.mock(ComponentDef.class));
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testSavedDefOfClassNotAllowedIsNotLoaded() throws Exception {
+        File file = getStoreFile();
+        PersistentDefStore store = new PersistentDefStore(file, "1");
+        store.put(descriptor, "hash", createDef());
+        store.save();
+
+        PersistentDefStore loaded = new PersistentDefStore(file, "1");
+
+        assertEquals(1, loaded.size());
+        assertNull(loaded.get(descriptor, "hash"));
+        assertEquals(0, loaded.size());
+    }
+}
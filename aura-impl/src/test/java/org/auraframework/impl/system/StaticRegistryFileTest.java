@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.system;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.def.Definition;
+import org.auraframework.def.DescriptorFilter;
+import org.auraframework.def.IncludeDef;
+import org.auraframework.def.LibraryDef;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class StaticRegistryFileTest extends UnitTestCase {
+
+    private final DefDescriptor<ComponentDef> component =
+            new DefDescriptorImpl<>("markup", "one", "cmp", ComponentDef.class);
+
+    private final DefDescriptor<LibraryDef> library =
+            new DefDescriptorImpl<>("markup", "two", "lib", LibraryDef.class);
+
+    private final DefDescriptor<IncludeDef> include =
+            new DefDescriptorImpl<>("js", "two", "include", IncludeDef.class, library);
+
+    private <T extends Definition> T createDef(Class<T> defClass) {
+        return Mockito.mock(defClass, Mockito.withSettings().serializable());
+    }
+
+    private StaticDefRegistryImpl createRegistry(Set<DefType> defTypes, Set<String> prefixes, Set<String> namespaces) {
+        return new StaticDefRegistryImpl(defTypes, prefixes, namespaces, new HashMap<DefDescriptor<?>, Definition>());
+    }
+
+    private ByteBuffer write(StaticDefRegistryImpl... registries) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StaticRegistryFile.write(Lists.newArrayList(registries), out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    @Test
+    public void testReadRegistriesAsWritten() throws Exception {
+        StaticDefRegistryImpl first = createRegistry(ImmutableSet.of(DefType.COMPONENT),
+                ImmutableSet.of("markup"), ImmutableSet.of("one"));
+        first.defs.put(component, createDef(ComponentDef.class));
+        StaticDefRegistryImpl second = createRegistry(ImmutableSet.of(DefType.LIBRARY, DefType.INCLUDE),
+                ImmutableSet.of("markup", "js"), ImmutableSet.of("two"));
+        second.defs.put(library, createDef(LibraryDef.class));
+        second.defs.put(include, createDef(IncludeDef.class));
+
+        ByteBuffer buffer = write(first, second);
+        assertTrue(StaticRegistryFile.isStaticRegistryFile(buffer));
+        List<StaticDefRegistryImpl> registries = StaticRegistryFile.read(buffer);
+
+        assertEquals(2, registries.size());
+        StaticDefRegistryImpl readFirst = registries.get(0);
+        assertEquals(ImmutableSet.of(DefType.COMPONENT), readFirst.getDefTypes());
+        assertEquals(ImmutableSet.of("markup"), readFirst.getPrefixes());
+        assertEquals(ImmutableSet.of("one"), readFirst.getNamespaces());
+        assertTrue(readFirst.exists(component));
+        assertFalse(readFirst.exists(library));
+        assertTrue(readFirst.getDef(component) instanceof ComponentDef);
+
+        StaticDefRegistryImpl readSecond = registries.get(1);
+        assertEquals(ImmutableSet.of(include), readSecond.find(new DescriptorFilter("js://two:*")));
+        DefDescriptor<?> readInclude = readSecond.find(new DescriptorFilter("js://two:*")).iterator().next();
+        assertEquals(library, readInclude.getBundle());
+        assertTrue(readSecond.getDef(include) instanceof IncludeDef);
+    }
+
+    @Test
+    public void testDefinitionIsReadOnce() throws Exception {
+        StaticDefRegistryImpl registry = createRegistry(ImmutableSet.of(DefType.COMPONENT),
+                ImmutableSet.of("markup"), ImmutableSet.of("one"));
+        registry.defs.put(component, createDef(ComponentDef.class));
+
+        StaticDefRegistryImpl read = StaticRegistryFile.read(write(registry)).get(0);
+
+        assertSame(read.getDef(component), read.getDef(component));
+    }
+
+    @Test
+    public void testOtherContentIsNotAStaticRegistryFile() {
+        assertFalse(StaticRegistryFile.isStaticRegistryFile(ByteBuffer.wrap(new byte[] { (byte) 0xac, (byte) 0xed, 0, 5 })));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.util.json;
+
+import java.math.BigDecimal;
+
+import javax.inject.Inject;
+
+import org.auraframework.impl.adapter.JsonSerializerAdapterImpl;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.Location;
+import org.auraframework.test.util.AuraTestCase;
+import org.auraframework.util.json.JsonSerializerFactory;
+import org.auraframework.util.json.JsonSerializers;
+import org.junit.Test;
+
+public class AuraJsonSerializerFactoryTest extends AuraTestCase {
+    @Inject
+    private JsonSerializerFactory jsonSerializerFactory;
+
+    @Test
+    public void testGetSerializerForArray() {
+        assertSame(JsonSerializers.ARRAY, jsonSerializerFactory.getSerializer(new String[0]));
+        assertSame(JsonSerializers.ARRAY, jsonSerializerFactory.getSerializer(new int[0]));
+    }
+
+    @Test
+    public void testGetSerializerForEnum() {
+        assertSame(JsonSerializers.STRING, jsonSerializerFactory.getSerializer(Mode.PROD));
+    }
+
+    @Test
+    public void testGetSerializerByClassName() {
+        assertSame(JsonSerializers.BIGDECIMAL, jsonSerializerFactory.getSerializer(BigDecimal.ONE));
+    }
+
+    @Test
+    public void testGetSerializerBySupertypeIsKept() {
+        Location location = new Location("filename", 0);
+
+        assertSame(JsonSerializerAdapterImpl.LOCATION, jsonSerializerFactory.getSerializer(location));
+        assertSame(JsonSerializerAdapterImpl.LOCATION, jsonSerializerFactory.getSerializer(location));
+    }
+
+    @Test
+    public void testGetSerializerNotFound() {
+        assertNull(jsonSerializerFactory.getSerializer(new Object()));
+        assertNull(jsonSerializerFactory.getSerializer(new Object()));
+    }
+}
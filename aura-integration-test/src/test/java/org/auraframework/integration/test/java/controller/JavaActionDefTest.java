@@ -15,6 +15,7 @@
  */
 package org.auraframework.integration.test.java.controller;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.auraframework.def.ActionDef;
@@ -51,6 +52,30 @@ public class JavaActionDefTest extends AuraImplTestCase {
         assertTrue("ActionDef should be background when class has Background annotation", actual);
     }
 
+    @Test
+    public void testJavaActionDefResultIsNotCacheableByDefault() throws Exception {
+        String controllerName = "java://org.auraframework.impl.java.controller.ParallelActionTestController";
+        String actionName = "executeInForeground";
+        ActionDef actionDef = getJavaActionDef(controllerName, actionName);
+
+        boolean actual = ((JavaActionDef) actionDef).isResultCacheable();
+        assertFalse("JavaActionDef result should NOT be cacheable by default", actual);
+    }
+
+    @Test
+    public void testJavaActionDefResultIsCacheableWithAnnotation() throws Exception {
+        String controllerName = "java://org.auraframework.impl.java.controller.ParallelActionTestController";
+        String actionName = "executeCacheable";
+        JavaActionDef actionDef = (JavaActionDef) getJavaActionDef(controllerName, actionName);
+
+        assertTrue("ActionDef result should be cacheable when method has CacheableAction annotation",
+                actionDef.isResultCacheable());
+        assertEquals(Collections.singletonList("i"), actionDef.getResultCacheKeyParams());
+        assertTrue(actionDef.isResultCacheKeyAppUid());
+        assertFalse(actionDef.isResultCacheKeyLocale());
+        assertTrue(actionDef.isResultCacheKeyUser());
+    }
+
     @Test
     public void testJavaActionDefWithMethodHasNoParams() throws Exception{
         String controllerName = "java://org.auraframework.components.test.java.controller.TestController";
@@ -22,8 +22,10 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -45,6 +47,8 @@ import org.auraframework.instance.AbstractActionImpl;
 import org.auraframework.instance.Action;
 import org.auraframework.instance.ActionDelegate;
 import org.auraframework.instance.Component;
+import org.auraframework.cache.Cache;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
 import org.auraframework.service.ServerService;
@@ -54,6 +58,8 @@ import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.system.Location;
 import org.auraframework.system.Message;
+import org.auraframework.system.SourceListener;
+import org.auraframework.system.SourceListener.SourceMonitorEvent;
 import org.auraframework.system.SubDefDescriptor;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
@@ -74,6 +80,9 @@ public class ServerServiceImplTest extends AuraImplTestCase {
     @Inject
     private ServerService serverService;
 
+    @Inject
+    private CachingService cachingService;
+
     public ServerServiceImplTest() {
         super();
         setShouldSetupContext(false);
@@ -790,6 +799,77 @@ public class ServerServiceImplTest extends AuraImplTestCase {
         }
     }
 
+    private static final String CACHEABLE_CONTROLLER = "java://org.auraframework.impl.java.controller.ParallelActionTestController";
+
+    /**
+     * Run a single action on the server, as a request would.
+     *
+     * @return the serialized action from the response.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> runSingleAction(String actionName, Map<String, Object> params) throws Exception {
+        Action action = instanceService.getInstance(CACHEABLE_CONTROLLER + "/ACTION$" + actionName, ActionDef.class,
+                params);
+        StringWriter sw = new StringWriter();
+        serverService.run(new Message(Lists.newArrayList(action)), contextService.getCurrentContext(), sw, null);
+        Map<String, Object> json = (Map<String, Object>) new JsonReader().read(sw.toString());
+        List<Object> actions = (List<Object>) json.get("actions");
+        assertEquals(1, actions.size());
+        return (Map<String, Object>) actions.get(0);
+    }
+
+    /**
+     * A cacheable action run again with the same key is sent the kept result, without the controller running.
+     */
+    @Test
+    public void testCacheableActionSecondRunUsesCachedResult() throws Exception {
+        contextService.startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        Map<String, Object> params = Maps.newHashMap();
+        params.put("i", 42);
+
+        Map<String, Object> first = runSingleAction("executeCacheable", params);
+        Map<String, Object> second = runSingleAction("executeCacheable", params);
+
+        assertEquals("SUCCESS", first.get("state"));
+        assertEquals("SUCCESS", second.get("state"));
+        // the return value holds a count of the records made, which only stays the same if the controller did not run.
+        assertEquals(first.get("returnValue"), second.get("returnValue"));
+    }
+
+    @Test
+    public void testCacheableActionRunsAgainAfterSourceChange() throws Exception {
+        contextService.startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        Map<String, Object> params = Maps.newHashMap();
+        params.put("i", 43);
+
+        Map<String, Object> first = runSingleAction("executeCacheable", params);
+        cachingService.notifyDependentSourceChange(Collections.<WeakReference<SourceListener>> emptySet(),
+                definitionService.getDefDescriptor("markup://aura:text", ComponentDef.class),
+                SourceMonitorEvent.CHANGED, null);
+        Map<String, Object> second = runSingleAction("executeCacheable", params);
+
+        assertEquals("SUCCESS", second.get("state"));
+        assertFalse("Expected the controller to run again after a source change",
+                first.get("returnValue").equals(second.get("returnValue")));
+    }
+
+    @Test
+    public void testCacheableActionErrorIsNotCached() throws Exception {
+        contextService.startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        Map<String, Object> params = Maps.newHashMap();
+        params.put("i", 44);
+
+        Map<String, Object> first = runSingleAction("executeCacheableWithError", params);
+        Map<String, Object> second = runSingleAction("executeCacheableWithError", params);
+
+        assertEquals("ERROR", first.get("state"));
+        assertEquals("ERROR", second.get("state"));
+        Cache<String, String> actionResultCache = cachingService.getActionResultCache();
+        for (String key : actionResultCache.getKeySet()) {
+            assertFalse("Expected no cached error result, found: " + key, key.contains("executeCacheableWithError"));
+        }
+    }
+
     private String getDefinitionsOutput(String source, AuraContext.Mode mode)
             throws Exception {
         DefDescriptor<ApplicationDef> appDesc = addSourceAutoCleanup(
@@ -50,6 +50,41 @@ public interface Annotations {
     @interface CabooseAction {
     }
 
+    /**
+     * Marks a method whose serialized result may be kept on the server, and sent again to later calls with the same
+     * key without running the method.
+     *
+     * The key always holds the action, the mode, the access and the calling component, and then the parts declared
+     * here. The result must not depend on anything else, and the method must have no side effects. Kept results are
+     * dropped whenever a source changes.
+     *
+     * The AuraEnabled annotation is still required to use this method as a server action.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface CacheableAction {
+        /**
+         * The names of the parameters, as given to their Key annotation, whose values are part of the key.
+         */
+        String[] params() default {};
+
+        /**
+         * Whether the uid of the application the action is called from is part of the key.
+         */
+        boolean appUid() default true;
+
+        /**
+         * Whether the locale of the request is part of the key.
+         */
+        boolean locale() default false;
+
+        /**
+         * Whether the session of the caller is part of the key. Only turn this off if the result is the same for every
+         * user.
+         */
+        boolean user() default true;
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.METHOD)
     @interface AuraEnabled {
@@ -111,6 +111,11 @@ public abstract class AuraCompiler {
         }
     }
 
+    /**
+     * The system property giving the number of namespaces to compile at once, by default one per processor.
+     */
+    public static final String THREADS_PROPERTY = "aura.compiler.threads";
+
     public static void main(String[] args) throws Throwable {
         CommandLineLogger cll = new CommandLineLogger();
         File componentsDir = new File(args[0]);
@@ -125,7 +130,8 @@ public abstract class AuraCompiler {
 
         try {
             applicationContext.getBean(AuraDeprecated.class);
-            new RegistrySerializer(componentsDir, outputDir, ns.toArray(new String [ns.size()]), cll).execute();
+            int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+            new RegistrySerializer(componentsDir, outputDir, ns.toArray(new String [ns.size()]), cll, threads).execute();
         } catch (RegistrySerializerException rse) {
             cll.error(rse.getMessage(), rse.getCause());
             System.exit(1);
@@ -16,6 +16,7 @@
 package org.auraframework.tools.definition;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -25,12 +26,13 @@ import org.auraframework.def.DefDescriptor.DefType;
 import org.auraframework.def.Definition;
 import org.auraframework.def.DescriptorFilter;
 import org.auraframework.impl.source.file.FileSourceLoader;
+import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.impl.system.StaticDefRegistryImpl;
+import org.auraframework.impl.system.StaticRegistryFile;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
-import org.auraframework.system.DefRegistry;
 import org.auraframework.throwable.quickfix.QuickFixException;
 
 import javax.annotation.CheckForNull;
@@ -40,11 +42,25 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Compile components into a set of static registries and write them to a file.
@@ -52,8 +68,12 @@ import java.util.Set;
  * This requires a components directory, an output directory, and optionally can take
  * a set of namespaces to exclude.
  *
- * Note that the output file is a binary object file that is a set of registries,
- * one per namespace, that contain all of the defs that are in the namespaces.
+ * Note that the output file is a binary file in the format of {@link StaticRegistryFile}, holding a set of
+ * registries, one per namespace, that contain all of the defs that are in the namespaces.
+ *
+ * Namespaces are compiled on a pool of worker threads, each in its own context. The registries are written
+ * in namespace order, with their definitions in descriptor order, so the output does not depend on the
+ * number of threads or on which namespace finishes first.
  */
 public class RegistrySerializer {
     private static final Log log = LogFactory.getLog(RegistrySerializer.class);
@@ -72,6 +92,58 @@ public class RegistrySerializer {
         }
     };
 
+    /**
+     * Statistics for the compilation of a single namespace.
+     */
+    public static class NamespaceStats {
+        private final String namespace;
+        private final int defCount;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        private NamespaceStats(String namespace, int defCount, long nanos, long allocatedBytes) {
+            this.namespace = namespace;
+            this.defCount = defCount;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        /**
+         * @return the number of definitions written for the namespace.
+         */
+        public int getDefCount() {
+            return defCount;
+        }
+
+        /**
+         * @return the wall clock time spent compiling the namespace, in milliseconds.
+         */
+        public long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        /**
+         * @return the bytes allocated by the thread compiling the namespace, or -1 if the JVM does not say.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(namespace).append(": ").append(defCount).append(" defs in ").append(getMillis()).append("ms");
+            if (allocatedBytes >= 0) {
+                sb.append(", ").append(allocatedBytes / (1024 * 1024)).append("MB allocated");
+            }
+            return sb.toString();
+        }
+    }
+
     public static interface RegistrySerializerLogger {
         public void error(CharSequence loggable);
 
@@ -174,10 +246,25 @@ public class RegistrySerializer {
     @Nonnull
     private final RegistrySerializerLogger logger;
 
+    /**
+     * The number of namespaces to compile at once.
+     */
+    private final int threads;
+
+    /**
+     * Statistics for each namespace compiled, by namespace.
+     */
+    private final SortedMap<String, NamespaceStats> stats = new ConcurrentSkipListMap<>();
+
+    /**
+     * An upper bound on the peak heap usage during the last write, or -1 if unknown.
+     */
+    private long peakHeapBytes = -1;
+
     /**
      * A flag for an error occuring.
      */
-    private boolean error = false;
+    private volatile boolean error = false;
 
     /**
      * Create a compiler instance.
@@ -190,6 +277,20 @@ public class RegistrySerializer {
      */
     public RegistrySerializer(@Nonnull File componentDirectory, @Nonnull File outputDirectory,
             @Nonnull String[] excluded, @CheckForNull RegistrySerializerLogger logger) {
+        this(componentDirectory, outputDirectory, excluded, logger, 1);
+    }
+
+    /**
+     * Create a compiler instance that compiles several namespaces at once.
+     *
+     * @param componentDirectory the directory that we should use for components.
+     * @param outputDirectory the output directory where we should write the compiled component '.registry' file.
+     * @param excluded a set of excluded namespaces.
+     * @param threads the number of namespaces to compile at once.
+     */
+    public RegistrySerializer(@Nonnull File componentDirectory, @Nonnull File outputDirectory,
+            @Nonnull String[] excluded, @CheckForNull RegistrySerializerLogger logger, int threads) {
+        this.threads = Math.max(1, threads);
         this.componentDirectory = componentDirectory;
         this.outputDirectory = outputDirectory;
         this.excluded = excluded;
@@ -207,16 +308,11 @@ public class RegistrySerializer {
      * @throws RegistrySerializerException if there is an error.
      */
     public void write(@Nonnull Set<String> namespaces, @Nonnull OutputStream out) {
-        List<DefRegistry> regs = Lists.newArrayList();
-        for (String name : namespaces) {
-            regs.add(getRegistry(name));
-        }
+        List<StaticDefRegistryImpl> regs = compile(Lists.newArrayList(Sets.newTreeSet(namespaces)));
 
-        ObjectOutputStream objectOut = null;
         try {
             try {
-                objectOut = new ObjectOutputStream(out);
-                objectOut.writeObject(regs);
+                StaticRegistryFile.write(regs, out);
             } finally {
                 out.close();
             }
@@ -226,6 +322,113 @@ public class RegistrySerializer {
         }
     }
 
+    /**
+     * Compile the namespaces on a pool of worker threads.
+     *
+     * @param namespaces the namespaces to compile, in the order their registries should be returned.
+     * @return the registries for the namespaces that compiled.
+     */
+    private List<StaticDefRegistryImpl> compile(@Nonnull List<String> namespaces) {
+        List<MemoryPoolMXBean> heapPools = Lists.newArrayList();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        stats.clear();
+        long start = System.nanoTime();
+        int poolSize = Math.max(1, Math.min(threads, namespaces.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "aura-compiler-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<StaticDefRegistryImpl> regs = Lists.newArrayList();
+        try {
+            List<Future<StaticDefRegistryImpl>> futures = Lists.newArrayList();
+            for (String namespace : namespaces) {
+                futures.add(executor.submit(() -> compileNamespace(namespace)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    regs.add(futures.get(i).get());
+                } catch (ExecutionException ee) {
+                    logger.error("Unable to compile " + namespaces.get(i), ee.getCause());
+                    error = true;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while compiling", ie);
+            error = true;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        peakHeapBytes = heapPools.isEmpty() ? -1 : 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        for (NamespaceStats namespaceStats : stats.values()) {
+            logger.info(namespaceStats.toString());
+        }
+        StringBuilder summary = new StringBuilder();
+        summary.append("Compiled ").append(namespaces.size()).append(" namespaces in ")
+                .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).append("ms on ")
+                .append(poolSize).append(" threads");
+        if (peakHeapBytes >= 0) {
+            // the pools peak at different times, so their sum is only a bound on the peak of the whole heap.
+            summary.append(", peak heap at most ").append(peakHeapBytes / (1024 * 1024))
+                    .append("MB (sum of per-pool peaks)");
+        }
+        logger.info(summary);
+        return regs;
+    }
+
+    /**
+     * Compile a namespace in a context of its own, recording statistics for it.
+     *
+     * @param namespace the namespace to compile.
+     */
+    private StaticDefRegistryImpl compileNamespace(@Nonnull String namespace) {
+        long start = System.nanoTime();
+        long allocated = getAllocatedBytes();
+        StaticDefRegistryImpl registry;
+        Aura.getContextService().startContext(Mode.DEV, Format.JSON, Authentication.AUTHENTICATED, null);
+        try {
+            registry = getRegistry(namespace);
+        } finally {
+            Aura.getContextService().endContext();
+        }
+        long end = System.nanoTime();
+        if (allocated >= 0) {
+            allocated = getAllocatedBytes() - allocated;
+        }
+        int defCount = registry.find(new DescriptorFilter("*://*:*", "*")).size();
+        stats.put(namespace, new NamespaceStats(namespace, defCount, end - start, allocated));
+        return registry;
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread, or -1 if the JVM does not say.
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
     /**
      * Get a registry for the namespace given.
      *
@@ -234,11 +437,11 @@ public class RegistrySerializer {
      *
      * @param namespace the namespace for which we want to retrieve a static registry.
      */
-    private DefRegistry getRegistry(@Nonnull String namespace) {
-        Set<String> prefixes = Sets.newHashSet();
-        Set<DefType> types = Sets.newHashSet();
+    private StaticDefRegistryImpl getRegistry(@Nonnull String namespace) {
+        Set<String> prefixes = Sets.newTreeSet();
+        Set<DefType> types = EnumSet.noneOf(DefType.class);
         Set<DefDescriptor<?>> descriptors;
-        List<Definition> defs = Lists.newArrayList();
+        List<Map.Entry<DefDescriptor<?>, Definition>> defs = Lists.newArrayList();
         DefinitionService definitionService = Aura.getDefinitionService();
         DescriptorFilter root_nsf = new DescriptorFilter(namespace, "*");
         Map<DefDescriptor<?>, Definition> filtered;
@@ -274,14 +477,19 @@ public class RegistrySerializer {
                 logger.debug("ENTRY: "+desc+"@"+desc.getDefType().toString());
                 types.add(desc.getDefType());
                 prefixes.add(desc.getPrefix());
-                defs.add(def);
+                defs.add(entry);
             }
         }
         if (defs.size() == 0) {
             logger.error("No files compiled for "+namespace);
             error = true;
         }
-        return new StaticDefRegistryImpl(types, prefixes, namespaces, defs);
+        Collections.sort(defs, (a, b) -> DefDescriptorImpl.compare(a.getKey(), b.getKey()));
+        Map<DefDescriptor<?>, Definition> sorted = Maps.newLinkedHashMap();
+        for (Map.Entry<DefDescriptor<?>, Definition> entry : defs) {
+            sorted.put(entry.getValue().getDescriptor(), entry.getValue());
+        }
+        return new StaticDefRegistryImpl(types, prefixes, namespaces, sorted);
     }
 
     public static final String ERR_ARGS_REQUIRED = "Component and Output Directory are both required";
@@ -337,12 +545,7 @@ public class RegistrySerializer {
             throw new RegistrySerializerException("Unable to create "+outputFile, fnfe);
         }
         try {
-            Aura.getContextService().startContext(Mode.DEV, Format.JSON, Authentication.AUTHENTICATED, null);
-            try {
-                write(namespaces, out);
-            } finally {
-                Aura.getContextService().endContext();
-            }
+            write(namespaces, out);
             if (error) {
                 throw new RegistrySerializerException("one or more errors occurred during compile");
             }
@@ -355,6 +558,36 @@ public class RegistrySerializer {
         }
     }
 
+    /**
+     * Gets the statistics for each namespace compiled by the last write.
+     *
+     * @return The statistics, by namespace.
+     */
+    public SortedMap<String, NamespaceStats> getStats() {
+        return Collections.unmodifiableSortedMap(stats);
+    }
+
+    /**
+     * Gets an upper bound on the peak heap usage during the last write.
+     *
+     * This is the sum of the peak usage of each heap memory pool. The pools need not peak at the same time, so the
+     * heap as a whole may never have held this much.
+     *
+     * @return The sum of the per-pool peaks in bytes, or -1 if unknown.
+     */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /**
+     * Gets the number of namespaces compiled at once.
+     *
+     * @return The number of threads.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
     /**
      * Gets the componentDirectory for this instance.
      *
@@ -22,9 +22,14 @@ import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
 
 import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
 
 
 public class RegistrySerializerTest extends UnitTestCase {
@@ -81,6 +86,28 @@ public class RegistrySerializerTest extends UnitTestCase {
         }
     }
 
+    @Test
+    public void testThreadsIsAtLeastOne() {
+        RegistrySerializer rs = new RegistrySerializer(actb.getComponentsPath().toFile(),
+                actb.getComponentsPath().toFile(), null, null, 0);
+        assertEquals(1, rs.getThreads());
+    }
+
+    @Test
+    public void testOutputDoesNotDependOnThreads() {
+        File dir = actb.getComponentsPath().toFile();
+        Set<String> namespaces = Sets.newHashSet("aura", "ui");
+
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        new RegistrySerializer(dir, dir, null, null, 1).write(namespaces, single);
+        ByteArrayOutputStream several = new ByteArrayOutputStream();
+        new RegistrySerializer(dir, dir, null, null, 4).write(namespaces, several);
+
+        assertTrue("Expected output to be written", single.size() > 0);
+        assertTrue("Expected the same output on 1 and 4 threads",
+                Arrays.equals(single.toByteArray(), several.toByteArray()));
+    }
+
 //    public void testOutputValid() throws Exception {
 //        TestLogger logger = new TestLogger();
 //        Path compPath = actb.getComponentsPath();
@@ -15,7 +15,9 @@
  */
 package org.auraframework.util;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -37,12 +39,6 @@ public class AuraTextUtil {
             "\\u003E", "\\n", "\\u2029", "" };
     private static final TrieMatcher JS_SEARCH_REPLACE = TrieMatcher.compile(JS_IN, JS_OUT);
 
-    private static final String[] JSON_IN = new String[] { "\\", "\n", "\r", "\t", "\"", "!--", "<", ">", "\u2028",
-            "\u2029", "\u0000", "*/" };
-    private static final String[] JSON_OUT = new String[] { "\\\\", "\\n", "\\r", "\\t", "\\\"", "\\u0021--",
-            "\\u003C", "\\u003E", "\\n", "\\u2029", "", "\\u002A/" };
-    private static final TrieMatcher JSON_SEARCH_REPLACE = TrieMatcher.compile(JSON_IN, JSON_OUT);
-
     private static final String[] RESERVED_METHODS = new String[]{
             "auraType","getDef","getRendering",
             "index","deIndex","find",
@@ -214,7 +210,113 @@ public class AuraTextUtil {
      * Properly escapes string for JSON.
      */
     public static String escapeForJSONString(String in) {
-        return TrieMatcher.replaceMultiple(in, JSON_SEARCH_REPLACE);
+        if (in == null) {
+            return null;
+        }
+        int length = in.length();
+        for (int i = 0; i < length; i++) {
+            if (getJSONEscape(in, i) != null) {
+                StringBuilder sb = new StringBuilder(length + 16);
+                sb.append(in, 0, i);
+                try {
+                    appendJSONEscaped(in, i, sb);
+                } catch (IOException ioe) {
+                    // in memory, this cannot happen.
+                    throw new RuntimeException(ioe);
+                }
+                return sb.toString();
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Properly escapes string for JSON, appending the result as it goes.
+     *
+     * The input is scanned once, and the runs of characters that need no escaping are appended as is, without
+     * building any intermediate string.
+     *
+     * @param in the string to escape.
+     * @param out where to append the escaped string.
+     */
+    public static void escapeForJSONString(CharSequence in, Appendable out) throws IOException {
+        appendJSONEscaped(in, 0, out);
+    }
+
+    private static void appendJSONEscaped(CharSequence in, int from, Appendable out) throws IOException {
+        int length = in.length();
+        int start = from;
+        for (int i = from; i < length; i++) {
+            String escape = getJSONEscape(in, i);
+            if (escape != null) {
+                appendRun(in, start, i, out);
+                out.append(escape);
+                start = i + 1;
+            }
+        }
+        if (start == 0) {
+            out.append(in);
+        } else {
+            appendRun(in, start, length, out);
+        }
+    }
+
+    /**
+     * Append part of a string, going straight to the writer for strings, since Writer.append copies the part first.
+     */
+    private static void appendRun(CharSequence in, int start, int end, Appendable out) throws IOException {
+        if (start >= end) {
+            return;
+        }
+        if (out instanceof Writer && in instanceof String) {
+            ((Writer) out).write((String) in, start, end - start);
+        } else {
+            out.append(in, start, end);
+        }
+    }
+
+    /**
+     * Get the JSON escape of the character at an index.
+     *
+     * Besides the JSON specials, this escapes what could end a script or an HTML comment: the '!' of "!--", the '*'
+     * of "*&#47;", and the angle brackets. U+2028 is a line break, and NUL is dropped.
+     *
+     * @return the escape, or null if the character is kept as is.
+     */
+    private static String getJSONEscape(CharSequence in, int index) {
+        switch (in.charAt(index)) {
+        case '\\':
+            return "\\\\";
+        case '\n':
+        case '\u2028':
+            return "\\n";
+        case '\r':
+            return "\\r";
+        case '\t':
+            return "\\t";
+        case '"':
+            return "\\\"";
+        case '<':
+            return "\\u003C";
+        case '>':
+            return "\\u003E";
+        case '\u2029':
+            return "\\u2029";
+        case '\u0000':
+            return "";
+        case '!':
+            if (index + 2 < in.length() && in.charAt(index + 1) == '-' && in.charAt(index + 2) == '-') {
+                return "\\u0021";
+            }
+            return null;
+        case '*':
+            if (index + 1 < in.length() && in.charAt(index + 1) == '/') {
+                return "\\u002A";
+            }
+            return null;
+        default:
+            return null;
+        }
     }
 
     /**
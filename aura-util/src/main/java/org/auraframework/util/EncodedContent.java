@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A generated text resource, held as UTF-8 bytes along with its gzip and deflate encodings.
+ *
+ * Large generated resources are served far more often than they are built, so they are encoded once when built and
+ * each request just writes the variant its client accepts.
+ */
+public final class EncodedContent implements Serializable {
+    private static final long serialVersionUID = 3541092635497219571L;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The content codings we hold, with the token for the Content-Encoding header.
+     */
+    public enum Encoding {
+        IDENTITY(null), GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        private Encoding(String token) {
+            this.token = token;
+        }
+
+        /**
+         * @return the Content-Encoding token, or null if no header should be sent.
+         */
+        public String getToken() {
+            return token;
+        }
+    }
+
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final byte[] deflate;
+
+    private EncodedContent(byte[] identity, byte[] gzip, byte[] deflate) {
+        this.identity = identity;
+        this.gzip = gzip;
+        this.deflate = deflate;
+    }
+
+    /**
+     * Encode text.
+     *
+     * @param text the text.
+     * @return the content, with every encoding built.
+     */
+    public static EncodedContent encode(CharSequence text) {
+        try (Builder builder = new Builder(null, null)) {
+            builder.append(text);
+            return builder.build();
+        } catch (IOException ioe) {
+            // in memory, this cannot happen.
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    /**
+     * @param encoding the encoding wanted.
+     * @return the bytes in that encoding, which must not be modified.
+     */
+    public byte[] getBytes(Encoding encoding) {
+        switch (encoding) {
+        case GZIP:
+            return gzip;
+        case DEFLATE:
+            return deflate;
+        default:
+            return identity;
+        }
+    }
+
+    /**
+     * @return the content as text.
+     */
+    public String getText() {
+        return new String(identity, UTF8);
+    }
+
+    /**
+     * @return the total number of bytes held, over all encodings.
+     */
+    public int size() {
+        return identity.length + gzip.length + deflate.length;
+    }
+
+    /**
+     * Choose the encoding to send for an Accept-Encoding header.
+     *
+     * gzip is preferred over deflate when both are acceptable, as some clients mishandle deflate. Quality values of
+     * zero exclude a coding, any other value accepts it.
+     *
+     * @param acceptEncoding the header value, may be null.
+     * @return the encoding to send.
+     */
+    public static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return Encoding.IDENTITY;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        boolean any = false;
+        boolean gzipExcluded = false;
+        boolean deflateExcluded = false;
+
+        for (String part : acceptEncoding.split(",")) {
+            String coding = part;
+            boolean excluded = false;
+            int semi = part.indexOf(';');
+            if (semi >= 0) {
+                coding = part.substring(0, semi);
+                excluded = isZeroQuality(part.substring(semi + 1));
+            }
+            coding = coding.trim();
+            if ("gzip".equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                gzip = !excluded;
+                gzipExcluded = excluded;
+            } else if ("deflate".equalsIgnoreCase(coding)) {
+                deflate = !excluded;
+                deflateExcluded = excluded;
+            } else if ("*".equals(coding)) {
+                any = !excluded;
+            }
+        }
+        if (gzip || (any && !gzipExcluded)) {
+            return Encoding.GZIP;
+        }
+        if (deflate || (any && !deflateExcluded)) {
+            return Encoding.DEFLATE;
+        }
+        return Encoding.IDENTITY;
+    }
+
+    /**
+     * Create a writer that encodes text into a stream in one encoding only, for content that will not be kept.
+     *
+     * Closing the writer finishes the encoding and flushes the stream, which is left open.
+     *
+     * @param out the stream to write to.
+     * @param encoding the encoding to write in.
+     */
+    public static Writer newWriter(final OutputStream out, Encoding encoding) throws IOException {
+        OutputStream target = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        };
+        switch (encoding) {
+        case GZIP:
+            target = new GZIPOutputStream(target, 8192);
+            break;
+        case DEFLATE:
+            target = new DeflaterOutputStream(target, new Deflater(Deflater.DEFAULT_COMPRESSION), 8192) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+            break;
+        default:
+            break;
+        }
+        return new OutputStreamWriter(target, UTF8);
+    }
+
+    /**
+     * A gzip stream whose compressor can be released without writing anything more.
+     */
+    private static final class GzipOutputStream extends GZIPOutputStream {
+        private GzipOutputStream(OutputStream out, int size) throws IOException {
+            super(out, size);
+        }
+
+        private void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * A writer that builds encoded content as text is written to it.
+     *
+     * Every encoding is built in a single pass, and one of them can be streamed to another output as it is
+     * produced, so that generated content can be sent while it is built, without ever holding it as a String.
+     */
+    public static final class Builder extends Writer {
+        private final ByteArrayOutputStream identity = new ByteArrayOutputStream(8192);
+        private final ByteArrayOutputStream gzip = new ByteArrayOutputStream(2048);
+        private final ByteArrayOutputStream deflate = new ByteArrayOutputStream(2048);
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final OutputStream tee;
+        private final OutputStream identityOut;
+        private final GzipOutputStream gzipOut;
+        private final DeflaterOutputStream deflateOut;
+        private final Writer utf8;
+        private boolean built;
+
+        /**
+         * @param tee where to stream one encoding as it is built, may be null.
+         * @param teeEncoding the encoding to stream, ignored if tee is null.
+         */
+        public Builder(OutputStream tee, Encoding teeEncoding) throws IOException {
+            this.tee = tee;
+            this.identityOut = teeIf(identity, teeEncoding == Encoding.IDENTITY);
+            this.gzipOut = new GzipOutputStream(teeIf(gzip, teeEncoding == Encoding.GZIP), 8192);
+            this.deflateOut = new DeflaterOutputStream(teeIf(deflate, teeEncoding == Encoding.DEFLATE), deflater,
+                    8192);
+            this.utf8 = new OutputStreamWriter(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    identityOut.write(b);
+                    gzipOut.write(b);
+                    deflateOut.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    identityOut.write(b, off, len);
+                    gzipOut.write(b, off, len);
+                    deflateOut.write(b, off, len);
+                }
+            }, UTF8);
+        }
+
+        private OutputStream teeIf(final ByteArrayOutputStream bytes, boolean teed) {
+            if (tee == null || !teed) {
+                return bytes;
+            }
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    bytes.write(b);
+                    tee.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    bytes.write(b, off, len);
+                    tee.write(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            utf8.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            utf8.write(str, off, len);
+        }
+
+        /**
+         * Push what has been written so far through the encoder. The compressed encodings keep what they have not
+         * yet compressed.
+         */
+        @Override
+        public void flush() throws IOException {
+            utf8.flush();
+            if (tee != null) {
+                tee.flush();
+            }
+        }
+
+        /**
+         * Finish every encoding, and flush the tee, which is left open.
+         *
+         * @return the content.
+         */
+        public EncodedContent build() throws IOException {
+            if (built) {
+                throw new IllegalStateException("Already built");
+            }
+            built = true;
+            utf8.flush();
+            // closing the compressors does not close the tee, our wrappers do not pass it on.
+            gzipOut.close();
+            deflateOut.close();
+            deflater.end();
+            if (tee != null) {
+                tee.flush();
+            }
+            return new EncodedContent(identity.toByteArray(), gzip.toByteArray(), deflate.toByteArray());
+        }
+
+        /**
+         * Release the compressors, a builder that was not built is discarded.
+         */
+        @Override
+        public void close() {
+            gzipOut.end();
+            deflater.end();
+        }
+    }
+
+    private static boolean isZeroQuality(String params) {
+        for (String param : params.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Float.parseFloat(trimmed.substring(2).trim()) <= 0f;
+                } catch (NumberFormatException nfe) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -15,14 +15,11 @@
  */
 package org.auraframework.util.json;
 
-import static org.auraframework.util.json.JsonSerializers.ARRAY;
 import static org.auraframework.util.json.JsonSerializers.LITERAL;
-import static org.auraframework.util.json.JsonSerializers.STRING;
 
 
 /**
- * uses 2 maps to find serializers. first is direct class lookup (fast), second
- * is an instanceof lookup (slow)
+ * finds serializers through a factory, which resolves them by class
  */
 public class ClassMapJsonSerializationContext extends BaseJsonSerializationContext {
 
@@ -42,13 +39,6 @@ public class ClassMapJsonSerializationContext extends BaseJsonSerializationConte
         if (o == null) {
             return (JsonSerializer<T>) LITERAL;
         }
-        Class<?> c = o.getClass();
-        if (c.isArray()) {
-            return (JsonSerializer<T>) ARRAY;
-        } else if (c.isEnum()) {
-            return (JsonSerializer<T>) STRING;
-        }
-
         return jsonSerializerFactory.getSerializer(o);
     }
 }
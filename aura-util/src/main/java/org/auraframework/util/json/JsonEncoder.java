@@ -592,7 +592,7 @@ public class JsonEncoder implements Json {
     @Override
     public void writeString(Object value) throws IOException {
         out.append('"');
-        out.append(AuraTextUtil.escapeForJSONString(value.toString()));
+        AuraTextUtil.escapeForJSONString(value instanceof CharSequence ? (CharSequence) value : value.toString(), out);
         out.append('"');
     }
 
@@ -737,11 +737,16 @@ public class JsonEncoder implements Json {
     public void writeMapKey(Object key) throws IOException {
         writeComma();
         writeIndent();
-        JsonSerializer<Object> serializer = serializationContext.getSerializer(key);
-        if (serializer == null) {
-            throw new JsonSerializerNotFoundException(key);
+        if (key instanceof String) {
+            // nearly every key is a string, which needs no lookup.
+            JsonSerializers.STRING.serialize(this, key);
+        } else {
+            JsonSerializer<Object> serializer = serializationContext.getSerializer(key);
+            if (serializer == null) {
+                throw new JsonSerializerNotFoundException(key);
+            }
+            serializer.serialize(this, key);
         }
-        serializer.serialize(this, key);
         writeMapSeparator();
     }
 
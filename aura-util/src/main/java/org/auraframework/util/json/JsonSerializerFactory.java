@@ -19,5 +19,11 @@ package org.auraframework.util.json;
  * Interface for getting json serializer based on class
  */
 public interface JsonSerializerFactory {
+    /**
+     * Get the serializer for a non-null value, including arrays and enums.
+     *
+     * @param o the value to serialize.
+     * @return the serializer, or null if there is none for the class of the value.
+     */
     <T> JsonSerializer<T> getSerializer(T o);
 }
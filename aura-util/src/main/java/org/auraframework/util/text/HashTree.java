@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.text;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Merkle tree of MD5 hashes over an ordered set of keyed strings.
+ *
+ * The root hash depends on every string and on their order, like an MD5 over their concatenation would, but once
+ * built, a tree over the same keys can be updated by rehashing only the changed leaves and their ancestors. Trees are
+ * immutable, {@link #update(Map)} returns a new tree that shares what did not change.
+ */
+public final class HashTree<K> {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The position of each key among the leaves */
+    private final Map<K, Integer> index;
+
+    /** The string hashed for each leaf */
+    private final String[] contents;
+
+    /**
+     * The nodes, heap-ordered: the root is at 1, the children of n at 2n and 2n+1, and the leaves start at
+     * {@link #capacity}. Positions past the last leaf are null, and a node with only a left child has its hash.
+     */
+    private final byte[][] nodes;
+
+    private final int capacity;
+
+    private HashTree(Map<K, Integer> index, String[] contents, byte[][] nodes, int capacity) {
+        this.index = index;
+        this.contents = contents;
+        this.nodes = nodes;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Build a tree.
+     *
+     * @param keys the keys of the leaves, in order, without duplicates.
+     * @param contents the string to hash for each key, in the same order.
+     * @return the tree.
+     */
+    public static <K> HashTree<K> build(List<K> keys, List<String> contents) {
+        if (keys.size() != contents.size()) {
+            throw new IllegalArgumentException("Mismatched keys and contents");
+        }
+        int size = keys.size();
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        Map<K, Integer> index = new HashMap<>(size * 2);
+        String[] leaves = new String[size];
+        byte[][] nodes = new byte[capacity * 2][];
+        MessageDigest digest = getDigest();
+        for (int i = 0; i < size; i++) {
+            if (index.put(keys.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate key " + keys.get(i));
+            }
+            leaves[i] = contents.get(i);
+            nodes[capacity + i] = hashLeaf(digest, leaves[i]);
+        }
+        for (int n = capacity - 1; n > 0; n--) {
+            nodes[n] = hashNode(digest, nodes[2 * n], nodes[2 * n + 1]);
+        }
+        return new HashTree<>(Collections.unmodifiableMap(index), leaves, nodes, capacity);
+    }
+
+    /**
+     * Update a tree with new contents for its keys.
+     *
+     * Only leaves whose string changed, and their ancestors, are rehashed.
+     *
+     * @param current the string to hash for each key.
+     * @return the updated tree, this tree if nothing changed, or null if the keys are not exactly those of this tree,
+     *         in which case a new tree must be built.
+     */
+    public HashTree<K> update(Map<K, String> current) {
+        if (current.size() != contents.length) {
+            return null;
+        }
+        String[] newContents = null;
+        byte[][] newNodes = null;
+        BitSet dirty = null;
+        MessageDigest digest = null;
+        for (Map.Entry<K, String> entry : current.entrySet()) {
+            Integer position = index.get(entry.getKey());
+            if (position == null) {
+                return null;
+            }
+            int i = position.intValue();
+            if (contents[i].equals(entry.getValue())) {
+                continue;
+            }
+            if (newNodes == null) {
+                newContents = Arrays.copyOf(contents, contents.length);
+                newNodes = Arrays.copyOf(nodes, nodes.length);
+                dirty = new BitSet(capacity);
+                digest = getDigest();
+            }
+            newContents[i] = entry.getValue();
+            newNodes[capacity + i] = hashLeaf(digest, newContents[i]);
+            dirty.set((capacity + i) >> 1);
+        }
+        if (newNodes == null) {
+            return this;
+        }
+        //
+        // Walk up one level at a time, so that a shared ancestor is only hashed once.
+        //
+        for (int level = capacity >> 1; level > 0; level >>= 1) {
+            BitSet parents = new BitSet(capacity);
+            for (int n = dirty.nextSetBit(level); n >= 0 && n < level * 2; n = dirty.nextSetBit(n + 1)) {
+                newNodes[n] = hashNode(digest, newNodes[2 * n], newNodes[2 * n + 1]);
+                parents.set(n >> 1);
+            }
+            dirty = parents;
+        }
+        return new HashTree<>(index, newContents, newNodes, capacity);
+    }
+
+    /**
+     * @return the root hash, covering every leaf.
+     */
+    public Hash getRoot() {
+        byte[] root = nodes[1];
+        if (root == null) {
+            return new Hash(getDigest().digest());
+        }
+        return new Hash(root);
+    }
+
+    /**
+     * @return the number of leaves.
+     */
+    public int size() {
+        return contents.length;
+    }
+
+    private static byte[] hashLeaf(MessageDigest digest, String content) {
+        digest.reset();
+        digest.update((byte) 0);
+        digest.update(content.getBytes(UTF8));
+        return digest.digest();
+    }
+
+    private static byte[] hashNode(MessageDigest digest, byte[] left, byte[] right) {
+        if (right == null) {
+            return left;
+        }
+        digest.reset();
+        digest.update((byte) 1);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 is a required MessageDigest algorithm, but is not registered here.");
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.auraframework.util;
 
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
 
@@ -205,6 +206,30 @@ public class AuraTextUtilTest extends UnitTestCase {
         }
     }
 
+    @Test
+    public void testEscapeForJSONStringKeepsUnescapedString() {
+        String input = "no escapes here - at all";
+        assertSame(input, AuraTextUtil.escapeForJSONString(input));
+    }
+
+    @Test
+    public void testEscapeForJSONStringMultipleSequences() {
+        assertEquals("a\\u0021--\\u003E*b\\u002A/\\u002A/c!-", AuraTextUtil.escapeForJSONString("a!-->*b*/*/c!-"));
+    }
+
+    @Test
+    public void testEscapeForJSONStringAppendable() throws Exception {
+        for (StringPair p : JSON_STRING_PAIRS) {
+            StringBuilder sb = new StringBuilder("prefix");
+            AuraTextUtil.escapeForJSONString(p.input, sb);
+            assertEquals("prefix" + p.expected, sb.toString());
+
+            StringWriter sw = new StringWriter();
+            AuraTextUtil.escapeForJSONString(p.input, sw);
+            assertEquals(p.expected, sw.toString());
+        }
+    }
+
     private static class SplitMatch {
         public final String input;
         public final String delimiter;
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.auraframework.util.EncodedContent.Encoding;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class EncodedContentTest extends UnitTestCase {
+    private static final String TEXT = "$A.componentService.addComponent(\"markup://a:b\", function (){/* \u00e9\u4e2d */});\n";
+
+    @Test
+    public void testEncodingsDecodeToText() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(TEXT);
+        }
+        EncodedContent content = EncodedContent.encode(sb);
+
+        assertEquals(sb.toString(), content.getText());
+        assertEquals(sb.toString(), new String(content.getBytes(Encoding.IDENTITY), "UTF-8"));
+        assertEquals(sb.toString(), read(new GZIPInputStream(new ByteArrayInputStream(content.getBytes(Encoding.GZIP)))));
+        assertEquals(sb.toString(),
+                read(new InflaterInputStream(new ByteArrayInputStream(content.getBytes(Encoding.DEFLATE)))));
+        assertTrue(content.getBytes(Encoding.GZIP).length < content.getBytes(Encoding.IDENTITY).length);
+    }
+
+    @Test
+    public void testBuilderStreamsOneEncoding() throws Exception {
+        ByteArrayOutputStream tee = new ByteArrayOutputStream();
+        EncodedContent content;
+        try (EncodedContent.Builder builder = new EncodedContent.Builder(tee, Encoding.GZIP)) {
+            for (int i = 0; i < 100; i++) {
+                builder.append(TEXT);
+                builder.flush();
+            }
+            content = builder.build();
+        }
+
+        assertTrue(Arrays.equals(content.getBytes(Encoding.GZIP), tee.toByteArray()));
+        assertEquals(EncodedContent.encode(content.getText()).getText(), content.getText());
+        assertTrue(content.getText().startsWith(TEXT));
+    }
+
+    @Test
+    public void testNewWriterWritesOneEncodingAndLeavesStreamOpen() throws Exception {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(TEXT);
+        }
+        for (Encoding encoding : Encoding.values()) {
+            final boolean[] closed = { false };
+            ByteArrayOutputStream out = new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    closed[0] = true;
+                }
+            };
+            try (Writer writer = EncodedContent.newWriter(out, encoding)) {
+                for (int i = 0; i < 100; i++) {
+                    writer.append(TEXT);
+                }
+            }
+
+            assertFalse(closed[0]);
+            InputStream in = new ByteArrayInputStream(out.toByteArray());
+            if (encoding == Encoding.GZIP) {
+                in = new GZIPInputStream(in);
+            } else if (encoding == Encoding.DEFLATE) {
+                in = new InflaterInputStream(in);
+            }
+            assertEquals(encoding.name(), expected.toString(), read(in));
+        }
+    }
+
+    @Test
+    public void testNegotiate() {
+        assertEquals(Encoding.IDENTITY, EncodedContent.negotiate(null));
+        assertEquals(Encoding.IDENTITY, EncodedContent.negotiate(""));
+        assertEquals(Encoding.IDENTITY, EncodedContent.negotiate("identity"));
+        assertEquals(Encoding.GZIP, EncodedContent.negotiate("gzip, deflate, br"));
+        assertEquals(Encoding.GZIP, EncodedContent.negotiate("deflate;q=1.0, gzip;q=0.5"));
+        assertEquals(Encoding.DEFLATE, EncodedContent.negotiate("deflate"));
+        assertEquals(Encoding.DEFLATE, EncodedContent.negotiate("gzip;q=0, deflate"));
+        assertEquals(Encoding.GZIP, EncodedContent.negotiate("*"));
+        assertEquals(Encoding.DEFLATE, EncodedContent.negotiate("*, gzip;q=0"));
+        assertEquals(Encoding.IDENTITY, EncodedContent.negotiate("gzip;q=0.0, deflate; q=0"));
+    }
+
+    private String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtil.copyStream(in, out);
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.text;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class HashTreeTest extends UnitTestCase {
+
+    private final List<String> keys = Arrays.asList("a", "b", "c", "d", "e");
+
+    @Test
+    public void testRootDependsOnEveryLeaf() {
+        Hash root = HashTree.build(keys, Arrays.asList("1", "2", "3", "4", "5")).getRoot();
+
+        assertFalse(root.equals(HashTree.build(keys, Arrays.asList("1", "2", "3", "4", "6")).getRoot()));
+        assertFalse(root.equals(HashTree.build(keys, Arrays.asList("0", "2", "3", "4", "5")).getRoot()));
+        assertEquals(root, HashTree.build(keys, Arrays.asList("1", "2", "3", "4", "5")).getRoot());
+    }
+
+    @Test
+    public void testRootDependsOnOrder() {
+        Hash root = HashTree.build(keys, Arrays.asList("1", "2", "3", "4", "5")).getRoot();
+
+        assertFalse(root.equals(HashTree.build(keys, Arrays.asList("2", "1", "3", "4", "5")).getRoot()));
+    }
+
+    @Test
+    public void testUpdateMatchesBuild() {
+        HashTree<String> tree = HashTree.build(keys, Arrays.asList("1", "2", "3", "4", "5"));
+        Map<String, String> current = ImmutableMap.<String, String> builder()
+                .put("a", "1").put("b", "2").put("c", "changed").put("d", "4").put("e", "also changed").build();
+
+        HashTree<String> updated = tree.update(current);
+
+        assertEquals(HashTree.build(keys, Arrays.asList("1", "2", "changed", "4", "also changed")).getRoot(),
+                updated.getRoot());
+        // the original is untouched.
+        assertEquals(HashTree.build(keys, Arrays.asList("1", "2", "3", "4", "5")).getRoot(), tree.getRoot());
+    }
+
+    @Test
+    public void testUpdateWithNoChangeReturnsSameTree() {
+        HashTree<String> tree = HashTree.build(Arrays.asList("a", "b"), Arrays.asList("1", "2"));
+
+        assertSame(tree, tree.update(ImmutableMap.of("a", "1", "b", "2")));
+    }
+
+    @Test
+    public void testUpdateWithDifferentKeysReturnsNull() {
+        HashTree<String> tree = HashTree.build(Arrays.asList("a", "b"), Arrays.asList("1", "2"));
+
+        assertNull(tree.update(ImmutableMap.of("a", "1", "c", "2")));
+        assertNull(tree.update(ImmutableMap.of("a", "1")));
+    }
+
+    @Test
+    public void testSingleLeaf() {
+        HashTree<String> tree = HashTree.build(Arrays.asList("a"), Arrays.asList("1"));
+
+        assertEquals(HashTree.build(Arrays.asList("a"), Arrays.asList("2")).getRoot(),
+                tree.update(ImmutableMap.of("a", "2")).getRoot());
+    }
+}
@@ -226,4 +226,17 @@ public interface ServletUtilAdapter extends AuraAdapter {
             AuraContext context) throws IOException;
 
     void checkFrameworkUID(AuraContext context) throws ClientOutOfSyncException;
+
+    /**
+     * Answer a conditional request for a resource with an entity tag.
+     *
+     * This sets the ETag and Vary headers, and if the request's If-None-Match matches the tag, sets a 304 status so
+     * that the caller can return without writing a body.
+     *
+     * @param request the request, for its If-None-Match header.
+     * @param response the response.
+     * @param etag the strong entity tag of the resource, quoted.
+     * @return true if the response is complete as a 304.
+     */
+    boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String etag);
 }
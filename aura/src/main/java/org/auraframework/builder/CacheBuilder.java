@@ -15,8 +15,16 @@
  */
 package org.auraframework.builder;
 
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.cache.Cache;
+import org.auraframework.cache.CacheEngine;
+
+import com.google.common.cache.Weigher;
 
 public interface CacheBuilder<K, T> {
 
@@ -46,13 +54,31 @@ public interface CacheBuilder<K, T> {
 
 	/**
 	 * Set true to hint the cache to use a non-memory storage strategy,
-	 * typically for large, stable objects.
+	 * typically for large, stable objects. Only string values are kept in
+	 * secondary storage.
 	 * 
 	 * @param useSecondaryStorage
 	 * @return the same CacheBuilder with this property set
 	 */
 	CacheBuilder<K, T> setUseSecondaryStorage(boolean useSecondaryStorage);
 
+	/**
+	 * Set the directory for secondary storage. Anything already in it is deleted when the
+	 * cache is built. Defaults to a new temporary directory, deleted when the process exits.
+	 *
+	 * @param secondaryStorageLocation
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setSecondaryStorageLocation(File secondaryStorageLocation);
+
+	/**
+	 * Set the most bytes to keep in secondary storage before evictions occur.
+	 *
+	 * @param secondaryStorageMaximumSize
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setSecondaryStorageMaximumSize(long secondaryStorageMaximumSize);
+
 	/**
 	 * Set true to hint that the cache should record statistics
 	 * 
@@ -80,6 +106,62 @@ public interface CacheBuilder<K, T> {
 	 */
 	CacheBuilder<K, T> setConcurrencyLevel(int concurrencyLevel);
 
+	/**
+	 * Set the storage engine for the cache. Defaults to {@link CacheEngine#LRU}.
+	 *
+	 * @param engine the engine to build the cache on
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setEngine(CacheEngine engine);
+
+	/**
+	 * Bound the cache by total weight rather than by entry count. When a weigher is
+	 * set, the maximum size is ignored in favor of the maximum weight.
+	 *
+	 * @param weigher computes the weight of each entry, in arbitrary units
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setWeigher(Weigher<? super K, ? super T> weigher);
+
+	/**
+	 * Set the maximum total weight of the cache, in the units of the weigher.
+	 *
+	 * @param maximumWeight
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setMaximumWeight(long maximumWeight);
+
+	/**
+	 * Reload entries in the background once they are older than the given duration.
+	 * The stale value continues to be served while the reload runs. A reload is only
+	 * started by a read of the entry.
+	 *
+	 * @param duration the age after which an entry is eligible for refresh
+	 * @param unit the unit of duration
+	 * @param reloader computes the fresh value for a key
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setRefreshAfterWrite(long duration, TimeUnit unit, Function<? super K, ? extends T> reloader);
+
+	/**
+	 * Drop entries once they are older than the given duration, so that they
+	 * are recomputed on next use.
+	 *
+	 * @param duration the age after which an entry is dropped
+	 * @param unit the unit of duration
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setExpireAfterWrite(long duration, TimeUnit unit);
+
+	/**
+	 * Be told of each entry the cache drops on its own, for size, collection or
+	 * expiry. Entries that are invalidated or replaced are not reported.
+	 *
+	 * @param evictionListener called with the key and value of each evicted entry
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setEvictionListener(BiConsumer<? super K, ? super T> evictionListener);
+
 	Cache<K, T> build();
 
 	/** Associates a human-readable name with the cache */
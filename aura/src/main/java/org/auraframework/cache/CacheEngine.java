@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.cache;
+
+/**
+ * The storage engines a {@link Cache} can be built on.
+ *
+ * @see org.auraframework.builder.CacheBuilder#setEngine(CacheEngine)
+ */
+public enum CacheEngine {
+    /**
+     * A segmented, recency-based cache. Honors soft values, so entries may be
+     * dropped wholesale by the garbage collector under heap pressure.
+     */
+    LRU,
+
+    /**
+     * A frequency-aware cache using W-TinyLFU admission. Values are held strongly,
+     * and the cache may be bounded by weight and refreshed asynchronously after write,
+     * serving the stale value while the new one loads.
+     */
+    FREQUENCY;
+}
@@ -51,4 +51,11 @@ public interface StyleContext extends JsonSerializable {
      * if the application doesn't have token overrides specified).
      */
     TokenCache getTokens();
+
+    /**
+     * Gets a key for everything in this context that changes the generated CSS: the client type, the extra true
+     * conditions and the uid of the token descriptors. It does not cover map-provided tokens, see
+     * {@link TokenCache#hasDynamicTokens()}.
+     */
+    String getKey();
 }
@@ -42,7 +42,14 @@ public class AppCss extends AuraResourceImpl {
         }
 
         try {
-            serverService.writeAppCss(dependencies, response.getWriter());
+            // the encoding is part of the tag, as each encoding is a different representation.
+            String etag = getETag(context, getEncoding(request).name());
+            // map-provided tokens are not covered by the tag, so such CSS is not tagged.
+            if (etag != null && !context.getStyleContext().getTokens().hasDynamicTokens()
+                    && isNotModified(request, response, etag)) {
+                return;
+            }
+            writeEncoded(request, response, serverService.getAppCssContent(dependencies));
         } catch (Throwable t) {
             servletUtilAdapter.handleServletException(t, false, context, request, response, false);
             exceptionAdapter.handleException(new AuraResourceException(getName(), response.getStatus(), t));
@@ -17,7 +17,7 @@
 package org.auraframework.http.resource;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
@@ -27,11 +27,11 @@ import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.EncodedContent.Encoding;
 
 @ServiceComponent
 public class AppJs extends AuraResourceImpl {
-    private static final String APPJS_PREPEND = "\"undefined\"===typeof Aura&&(Aura={});Aura.bootstrap||(Aura.bootstrap={});Aura.frameworkJsReady||(Aura.ApplicationDefs={cmpExporter:{},libExporter:{}},$A={componentService:{addComponent:function(a,b){Aura.ApplicationDefs.cmpExporter[a]=b},addLibraryExporter:function(a,b){Aura.ApplicationDefs.libExporter[a]=b},initEventDefs:function(a){Aura.ApplicationDefs.eventDefs=a},initLibraryDefs:function(a){Aura.ApplicationDefs.libraryDefs=a},initControllerDefs:function(a){Aura.ApplicationDefs.controllerDefs=a}}});\n";
-    private static final String APPJS_APPEND = "\nAura.appJsReady = true;Aura.appDefsReady&&Aura.appDefsReady();";
 
     public AppJs() {
         super("app.js", Format.JS);
@@ -44,15 +44,72 @@ public class AppJs extends AuraResourceImpl {
             return;
         }
 
+        ResponseStream out = null;
         try {
-            PrintWriter writer = response.getWriter();
-            writer.append(APPJS_PREPEND);
-            serverService.writeDefinitions(dependencies, writer);
-            writer.append(APPJS_APPEND);
+            Encoding encoding = getEncoding(request);
+            // the encoding is part of the tag, as each encoding is a different representation.
+            String etag = getETag(context, configAdapter.getLockerServiceCacheBuster(), encoding.name());
+            if (isNotModified(request, response, etag)) {
+                return;
+            }
+            EncodedContent content = serverService.getCachedAppJsContent();
+            if (content != null) {
+                writeEncoded(request, response, content);
+            } else {
+                // stream it as it is built, the length is not known up front. The response is only started once
+                // the definitions are loaded, so that a failure to load can still be reported.
+                out = new ResponseStream(response, encoding);
+                serverService.writeAppJs(dependencies, encoding, out);
+                out.flush();
+            }
         } catch (Throwable t) {
+            if (out != null && out.isOpen() && !response.isCommitted()) {
+                // drops the Content-Encoding and the stream, so that the error can be written instead.
+                response.reset();
+            }
             servletUtilAdapter.handleServletException(t, false, context, request, response, false);
             exceptionAdapter.handleException(new AuraResourceException(getName(), response.getStatus(), t));
         }
     }
 
+    /**
+     * A stream that sets the encoding headers and opens the response's stream on the first write.
+     */
+    private class ResponseStream extends OutputStream {
+        private final HttpServletResponse response;
+        private final Encoding encoding;
+        private OutputStream out;
+
+        private ResponseStream(HttpServletResponse response, Encoding encoding) {
+            this.response = response;
+            this.encoding = encoding;
+        }
+
+        private boolean isOpen() {
+            return out != null;
+        }
+
+        private OutputStream open() throws IOException {
+            if (out == null) {
+                setEncodingHeaders(response, encoding);
+                out = response.getOutputStream();
+            }
+            return out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            open().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            open().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            open().flush();
+        }
+    }
 }
@@ -24,10 +24,13 @@ import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.http.HttpHeaders;
 import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ExceptionAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.def.BaseComponentDef;
+import org.auraframework.def.DefDescriptor;
 import org.auraframework.http.RequestParam.StringParam;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
@@ -35,8 +38,12 @@ import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraResource;
+import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.AuraTextUtil;
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.EncodedContent.Encoding;
 import org.auraframework.util.json.JsonReader;
+import org.auraframework.util.text.Hash;
 
 import com.google.common.collect.Maps;
 
@@ -146,6 +153,94 @@ public abstract class AuraResourceImpl implements AuraResource {
         this.exceptionAdapter = exceptionAdapter;
     }
 
+    /**
+     * Get a strong entity tag for this resource of the current app.
+     *
+     * The tag covers the app uid, the mode and the style context key, plus whatever else the resource's body depends
+     * on, passed as parts. It is computed without building the body, so that a conditional request can be answered
+     * before any serialization is done.
+     *
+     * @param context the context.
+     * @param parts anything else the body depends on, may contain nulls.
+     * @return the quoted tag, or null if the app has no uid.
+     */
+    protected String getETag(AuraContext context, String... parts) {
+        DefDescriptor<? extends BaseComponentDef> app = context.getApplicationDescriptor();
+        if (app == null) {
+            return null;
+        }
+        String uid;
+        try {
+            uid = definitionService.getUid(null, app);
+        } catch (QuickFixException qfe) {
+            // the error is handled where the body is built.
+            return null;
+        }
+        if (uid == null) {
+            return null;
+        }
+        Hash.StringBuilder builder = new Hash.StringBuilder();
+        builder.addString(name);
+        builder.addString("|");
+        builder.addString(uid);
+        builder.addString("|");
+        builder.addString(context.getMode().name());
+        builder.addString("|");
+        builder.addString(context.getStyleContext().getKey());
+        for (String part : parts) {
+            builder.addString("|");
+            builder.addString(String.valueOf(part));
+        }
+        return "\"" + builder.build() + "\"";
+    }
+
+    /**
+     * Answer a conditional request with a 304 if the entity tag matches.
+     *
+     * @param etag the tag from {@link #getETag(AuraContext, String...)}, if null nothing is done.
+     * @return true if the response is complete.
+     */
+    protected boolean isNotModified(HttpServletRequest request, HttpServletResponse response, String etag) {
+        return etag != null && servletUtilAdapter.checkNotModified(request, response, etag);
+    }
+
+    /**
+     * Write pre-encoded content in the best encoding the client accepts.
+     *
+     * The bytes are written directly to the output stream with their Content-Encoding and Content-Length, so the
+     * compressing filter passes them through rather than compressing the content again on every request.
+     *
+     * @param request the request, for its Accept-Encoding header.
+     * @param response the response to write to.
+     * @param content the content.
+     */
+    protected void writeEncoded(HttpServletRequest request, HttpServletResponse response, EncodedContent content)
+            throws IOException {
+        Encoding encoding = getEncoding(request);
+        byte[] bytes = content.getBytes(encoding);
+
+        setEncodingHeaders(response, encoding);
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /**
+     * Set the headers for a body written in an encoding, which must be done before the body is written.
+     */
+    protected void setEncodingHeaders(HttpServletResponse response, Encoding encoding) {
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding.getToken() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+        }
+    }
+
+    /**
+     * Get the encoding to write pre-encoded content in, from the request's Accept-Encoding header.
+     */
+    protected Encoding getEncoding(HttpServletRequest request) {
+        return EncodedContent.negotiate(request != null ? request.getHeader(HttpHeaders.ACCEPT_ENCODING) : null);
+    }
+
     private final StringParam attributesParam = new StringParam("aura.attributes", 0, false);
 
     protected Map<String, Object> getComponentAttributes(HttpServletRequest request) {
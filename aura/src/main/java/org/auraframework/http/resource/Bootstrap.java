@@ -87,17 +87,28 @@ public class Bootstrap extends AuraResourceImpl {
 
     protected void setCacheHeaders(HttpServletResponse response, DefDescriptor<? extends BaseComponentDef> appDesc)
             throws QuickFixException {
-        Integer cacheExpiration = null;
+        int cacheExpiration = getBootstrapCacheExpiration(appDesc);
+        if (cacheExpiration > 0) {
+            servletUtilAdapter.setCacheTimeout(response, cacheExpiration * 1000L);
+        } else {
+            servletUtilAdapter.setNoCache(response);
+        }
+    }
+
+    /**
+     * @return the public cache expiration of the bootstrap, in seconds, or 0 if it is not publicly cacheable.
+     */
+    private int getBootstrapCacheExpiration(DefDescriptor<? extends BaseComponentDef> appDesc)
+            throws QuickFixException {
         if (appDesc.getDefType() == DefType.APPLICATION) {
             // only app has bootstrap cache capability
             ApplicationDef appDef = (ApplicationDef) definitionService.getDefinition(appDesc);
-            cacheExpiration = appDef.getBootstrapPublicCacheExpiration();
-        }
-        if (cacheExpiration != null && cacheExpiration > 0) {
-            servletUtilAdapter.setCacheTimeout(response, cacheExpiration.longValue() * 1000);
-        } else {
-            servletUtilAdapter.setNoCache(response);
+            Integer cacheExpiration = appDef.getBootstrapPublicCacheExpiration();
+            if (cacheExpiration != null && cacheExpiration > 0) {
+                return cacheExpiration.intValue();
+            }
         }
+        return 0;
     }
 
     @Override
@@ -117,6 +128,13 @@ public class Bootstrap extends AuraResourceImpl {
             }
 
             setCacheHeaders(response, app);
+            if (getBootstrapCacheExpiration(app) > 0) {
+                // only a publicly cacheable bootstrap is the same for everyone with the same attributes.
+                String etag = getETag(context, request.getQueryString());
+                if (isNotModified(request, response, etag)) {
+                    return;
+                }
+            }
 
             Instance<?> appInstance = instanceService.getInstance(desc, getComponentAttributes(request));
             definitionService.updateLoaded(desc);
@@ -137,6 +137,11 @@ public class InlineJs extends AuraResourceImpl {
 
         if (shouldCacheHTMLTemplate(defDescriptor, request, context)) {
             servletUtilAdapter.setLongCache(response);
+            // the body is only the same for the same timezone and attributes.
+            String etag = getETag(context, configAdapter.getCurrentTimezone(), request.getQueryString());
+            if (isNotModified(request, response, etag)) {
+                return;
+            }
         } else {
             servletUtilAdapter.setNoCache(response);
         }
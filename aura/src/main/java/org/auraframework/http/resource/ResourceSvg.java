@@ -52,22 +52,26 @@ public class ResourceSvg extends AuraResourceImpl {
             DefDescriptor<SVGDef> svg = definitionService.getDefDescriptor(fqn, SVGDef.class);
             SVGDef def = svg.getDef();
 
-            //Get the original etag if exists
-            String etag = request.getHeader("If-None-Match");
-            //generate the new etag from the definitions hash
+            //generate the etag from the app and the definitions hash
             String hash = def.getOwnHash();
+            String etag = getETag(context, fqn, hash);
+            if (etag == null && hash != null) {
+                //no app to tag by, the definitions hash alone still tells one svg from the next
+                etag = "\"" + hash + "\"";
+            }
             //For security reasons, if the user fetches the svg from the browser directly we
             //force the browser to download the file
             if (request.getHeader("Referer") == null) {
                 response.setContentType(null);
                 response.setHeader("Content-Disposition", "attachment; filename=resources.svg");
+                if (etag != null) {
+                    response.setHeader("ETag", etag);
+                }
                 //Otherwise check the etag, if it matches that reply with a 304, unchanged
-            } else if (etag != null && etag.equals(hash)) {
-                response.setStatus(304);
+            } else if (isNotModified(request, response, etag)) {
                 return;
             }
-            //finally add the etag to the header and write the image
-            response.setHeader("Etag", hash);
+            //finally write the image
             serverService.writeAppSvg(svg, response.getWriter());
         } catch (QuickFixException qfe) {
             servletUtilAdapter.handleServletException(qfe, true, context, request, response, false);
@@ -27,6 +27,8 @@ import org.auraframework.def.Definition;
 import org.auraframework.system.DependencyEntry;
 import org.auraframework.system.SourceListener;
 import org.auraframework.system.SourceListener.SourceMonitorEvent;
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.text.HashTree;
 
 import com.google.common.base.Optional;
 
@@ -59,16 +61,95 @@ public interface CachingService extends AuraService {
 
     Cache<String, String> getAltStringsCache();
 
+    /**
+     * Get the cache of generated resources held with their compressed encodings.
+     *
+     * Keys are of the same uid@descriptor@key form as the string caches, and are invalidated the same way.
+     */
+    Cache<String, EncodedContent> getEncodedContentCache();
+
+    /**
+     * Get the cache of serialized definition segments that generated resources are assembled from.
+     *
+     * Keys name the definition and its own hash, but a segment also reflects the definitions it inherits from, so
+     * the whole cache is dropped on any source change.
+     */
+    Cache<String, String> getDefinitionFragmentCache();
+
+    /**
+     * Get the cache of serialized results of cacheable server actions.
+     *
+     * What a result depends on is only known to the action, so the whole cache is dropped on any source change.
+     */
+    Cache<String, String> getActionResultCache();
+
     Cache<String, Set<DefDescriptor<?>>> getDescriptorFilterCache();
 
     Cache<String, DependencyEntry> getDepsCache();
 
+    /**
+     * Get the cache of failed compiles.
+     *
+     * Entries hold the QuickFixException of a compile, so that a broken definition is not recompiled on every request.
+     * They expire after a while, and are all dropped on any source change.
+     */
+    Cache<String, DependencyEntry> getFailedDepsCache();
+
+    /**
+     * Get the cache of uid hash trees, by descriptor.
+     *
+     * Entries let a recompile after a source change rehash only what changed when computing the uid. They are never
+     * stale, as a tree is only reused for exactly the same dependency set, so they are not dropped on source change.
+     */
+    Cache<String, HashTree<DefDescriptor<?>>> getUidTreeCache();
+
     Cache<String, String> getClientLibraryOutputCache();
 
     Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getDefDescriptorByNameCache();
 
-    Lock getReadLock();
+    /**
+     * Get the current cache epoch.
+     *
+     * The epoch changes whenever a source change invalidates the caches, and is odd while that invalidation is in
+     * progress. Readers take no lock: they snapshot the epoch before computing a value, and only publish the value
+     * with {@link #putIfCurrent} if no invalidation happened meanwhile.
+     *
+     * @return the current epoch.
+     */
+    long getEpoch();
+
+    /**
+     * Put a value in a cache if no source changed since the given epoch.
+     *
+     * A value computed while sources were changing may be stale, so it is dropped rather than cached. The caller still
+     * gets to use it for the current request.
+     *
+     * @param cache the cache to put into.
+     * @param key the key.
+     * @param value the value.
+     * @param epoch the epoch from {@link #getEpoch()} taken before the value was computed.
+     * @return true if the value was cached.
+     */
+    <K, T> boolean putIfCurrent(Cache<K, T> cache, K key, T value, long epoch);
+
+    /**
+     * Put a dependency entry in the deps cache if no source changed since the given epoch.
+     *
+     * The entry is also recorded so that a source change can invalidate only the cached entries, and the strings built
+     * from them, that depend on the changed source.
+     *
+     * @param key the key under which to put the entry in the deps cache.
+     * @param de the entry.
+     * @param epoch the epoch from {@link #getEpoch()} taken before the entry was compiled.
+     * @return true if the entry was cached.
+     */
+    boolean putDependencyEntry(String key, DependencyEntry de, long epoch);
 
+    /**
+     * Get the lock serializing cache invalidation on source changes.
+     *
+     * Readers do not need this, see {@link #getEpoch()}.
+     */
     Lock getWriteLock();
 
     void notifyDependentSourceChange(
@@ -36,6 +36,7 @@ public interface LoggingService extends AuraService {
     public static final String DEF_COUNT = "defCount";
     public static final String DEF_VISIT_COUNT = "defVisitCount";
     public static final String DEF_DESCRIPTOR_COUNT = "defDescriptorCount";
+    public static final String COALESCED_COMPILE_COUNT = "coalescedCompileCount";
     public static final String TIMER_DESERIALIZATION = "deSerialization";
     public static final String AURA_REQUEST_QUERY = "auraRequestQuery";
     public static final String AURA_REQUEST_URI = "auraRequestURI";
@@ -16,6 +16,7 @@
 package org.auraframework.service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Map;
 import java.util.Set;
@@ -28,6 +29,8 @@ import org.auraframework.instance.Component;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.EncodedContent.Encoding;
 
 /**
  * <p>
@@ -69,6 +72,16 @@ public interface ServerService extends AuraService {
      * @throws QuickFixException if the definitions could not be compiled.
      */
     void writeAppCss(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
+
+    /**
+     * get the CSS for the preloads + app, with its compressed encodings.
+     *
+     * The content is cached by app uid, so it is only built and compressed once.
+     *
+     * @throws IOException if unable to build the CSS
+     * @throws QuickFixException if the definitions could not be compiled.
+     */
+    EncodedContent getAppCssContent(Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException;
     
     <T extends BaseComponentDef> Component writeTemplate(AuraContext context, T value, Map<String, Object> componentAttributes, Appendable out) throws IOException, QuickFixException;
 
@@ -91,6 +104,27 @@ public interface ServerService extends AuraService {
      */
     void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
 
+    /**
+     * get the complete app.js for the loading app, if it is cached.
+     *
+     * @return the content with its compressed encodings, or null if it must be written with
+     *         {@link #writeAppJs(Set, Encoding, OutputStream)}.
+     */
+    EncodedContent getCachedAppJsContent() throws QuickFixException;
+
+    /**
+     * write out the complete app.js.
+     *
+     * This is the set of definitions from {@link #writeDefinitions(Set, Writer)}, wrapped in the app.js bootstrap
+     * code. If it is not cached, it is streamed to the output one definition at a time while it is encoded, and
+     * cached with all of its encodings once complete.
+     *
+     * @param encoding the encoding to write in.
+     * @param out the stream to write to, which is flushed but not closed.
+     */
+    void writeAppJs(Set<DefDescriptor<?>> dependencies, Encoding encoding, OutputStream out)
+            throws IOException, QuickFixException;
+
     /**
      * Write out a set of components in JSON.
      * 
@@ -38,7 +38,6 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.springframework.mock.web.MockHttpServletResponse;
 
-import java.io.Writer;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -91,18 +90,18 @@ public class AppCssTest extends UnitTestCase {
                 .thenReturn(dependencies);
 
         Throwable t = new RuntimeException();
-        doThrow(t).when(serverService).writeAppCss(eq(dependencies), any(Writer.class));
+        doThrow(t).when(serverService).getAppCssContent(eq(dependencies));
 
         MockHttpServletResponse response = new MockHttpServletResponse();
 
         // Act
-        appCss.write(null, response, null);
+        appCss.write(null, response, mock(AuraContext.class));
 
         // Assert
         // Knock off the known calls. These are mocked above, and are internal implementation dependent.
         verify(servletUtilAdapter, times(1)).verifyTopLevel(any(HttpServletRequest.class),
                 any(HttpServletResponse.class), any(AuraContext.class));
-        verify(serverService, times(1)).writeAppCss(eq(dependencies), any(Writer.class));
+        verify(serverService, times(1)).getAppCssContent(eq(dependencies));
 
         // And this is the expected call. This must stay.
         verify(servletUtilAdapter, times(1)).handleServletException(eq(t), eq(false),
@@ -18,8 +18,10 @@ package org.auraframework.http.resource;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
+import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -28,22 +30,31 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ExceptionAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.css.StyleContext;
+import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.http.resource.AuraResourceImpl.AuraResourceException;
+import org.auraframework.service.DefinitionService;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.util.EncodedContent;
+import org.auraframework.util.EncodedContent.Encoding;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 /**
@@ -86,18 +97,20 @@ public class AppJsTest extends UnitTestCase {
         appJs.setServletUtilAdapter(servletUtilAdapter);
         appJs.setServerService(serverService);
         appJs.setExceptionAdapter(exceptionAdapter);
+        appJs.setConfigAdapter(mock(ConfigAdapter.class));
 
         Set<DefDescriptor<?>> dependencies = new HashSet<>();
         when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class), any(HttpServletResponse.class), any(AuraContext.class)))
             .thenReturn(dependencies);
 
         Throwable expectedException = new RuntimeException();
-        doThrow(expectedException).when(serverService).writeDefinitions(eq(dependencies), any(PrintWriter.class));
+        doThrow(expectedException).when(serverService).writeAppJs(eq(dependencies), any(Encoding.class),
+                any(OutputStream.class));
 
         MockHttpServletResponse response = new MockHttpServletResponse();
 
         // Act
-        appJs.write(null, response, null);
+        appJs.write(null, response, mock(AuraContext.class));
 
         // Assert
         // Verify the exception first. Because we catch all exceptions and generate gacks,
@@ -110,7 +123,8 @@ public class AppJsTest extends UnitTestCase {
         // Knock off the known calls. These are mocked above, and are internal implementation dependent.
         verify(servletUtilAdapter, times(1)).verifyTopLevel(any(HttpServletRequest.class),
                 any(HttpServletResponse.class), any(AuraContext.class));
-        verify(serverService, times(1)).writeDefinitions(same(dependencies), any(PrintWriter.class));
+        verify(serverService, times(1)).getCachedAppJsContent();
+        verify(serverService, times(1)).writeAppJs(same(dependencies), eq(Encoding.IDENTITY), any(OutputStream.class));
 
         // Make sure nothing else happens.
         verifyNoMoreInteractions(serverService);
@@ -118,6 +132,137 @@ public class AppJsTest extends UnitTestCase {
         verifyNoMoreInteractions(exceptionAdapter);
     }
 
+    /**
+     * Check that the app.js is written in the encoding the client accepts, bypassing the writer.
+     */
+    @Test
+    public void testWriteUsesAcceptedEncoding() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        appJs.setConfigAdapter(mock(ConfigAdapter.class));
+        AuraContext context = mock(AuraContext.class);
+
+        Set<DefDescriptor<?>> dependencies = new HashSet<>();
+        EncodedContent content = EncodedContent.encode("Aura.appJsReady = true;");
+        when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class), any(HttpServletResponse.class), any(AuraContext.class)))
+            .thenReturn(dependencies);
+        when(serverService.getCachedAppJsContent()).thenReturn(content);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appJs.write(request, response, context);
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(content.getBytes(Encoding.GZIP).length, response.getContentLength());
+        assertTrue(Arrays.equals(content.getBytes(Encoding.GZIP), response.getContentAsByteArray()));
+
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+
+        appJs.write(request, response, context);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Aura.appJsReady = true;", response.getContentAsString());
+    }
+
+    /**
+     * Check that an app.js that is not cached is streamed in the accepted encoding, without a length.
+     */
+    @Test
+    public void testWriteStreamsWhenNotCached() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        appJs.setConfigAdapter(mock(ConfigAdapter.class));
+
+        Set<DefDescriptor<?>> dependencies = new HashSet<>();
+        when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class), any(HttpServletResponse.class), any(AuraContext.class)))
+            .thenReturn(dependencies);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appJs.write(request, response, mock(AuraContext.class));
+
+        verify(serverService, times(1)).writeAppJs(same(dependencies), eq(Encoding.DEFLATE),
+                any(OutputStream.class));
+        assertEquals("deflate", response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("Content-Length"));
+    }
+
+    /**
+     * Check that a failure before anything is written leaves the response free for the error.
+     */
+    @Test
+    public void testFailedLoadDoesNotStartResponse() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        appJs.setExceptionAdapter(mock(ExceptionAdapter.class));
+        appJs.setConfigAdapter(mock(ConfigAdapter.class));
+
+        Set<DefDescriptor<?>> dependencies = new HashSet<>();
+        when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class), any(HttpServletResponse.class), any(AuraContext.class)))
+            .thenReturn(dependencies);
+        doThrow(new RuntimeException()).when(serverService).writeAppJs(eq(dependencies), any(Encoding.class),
+                any(OutputStream.class));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appJs.write(request, response, mock(AuraContext.class));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        response.getWriter();
+    }
+
+    /**
+     * Check that a conditional request matching the tag is answered before the app.js is built.
+     */
+    @Test
+    public void testMatchingETagSkipsBuild() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        DefinitionService definitionService = mock(DefinitionService.class);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        appJs.setDefinitionService(definitionService);
+        appJs.setConfigAdapter(mock(ConfigAdapter.class));
+
+        @SuppressWarnings("unchecked")
+        DefDescriptor<ApplicationDef> app = mock(DefDescriptor.class);
+        StyleContext styleContext = mock(StyleContext.class);
+        AuraContext context = mock(AuraContext.class);
+        when(context.getApplicationDescriptor()).thenReturn(app);
+        when(context.getMode()).thenReturn(Mode.PROD);
+        when(context.getStyleContext()).thenReturn(styleContext);
+        when(styleContext.getKey()).thenReturn("webkit");
+        when(definitionService.getUid(null, app)).thenReturn("appUid");
+        when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class), any(HttpServletResponse.class), any(AuraContext.class)))
+            .thenReturn(new HashSet<DefDescriptor<?>>());
+        when(servletUtilAdapter.checkNotModified(any(HttpServletRequest.class), any(HttpServletResponse.class),
+                anyString())).thenReturn(true);
+
+        appJs.write(new MockHttpServletRequest(), new MockHttpServletResponse(), context);
+
+        verify(servletUtilAdapter, times(1)).checkNotModified(any(HttpServletRequest.class),
+                any(HttpServletResponse.class), startsWith("\""));
+        verifyNoMoreInteractions(serverService);
+    }
+
     /**
      * Check that null dependencies doesn't call anything.
      *
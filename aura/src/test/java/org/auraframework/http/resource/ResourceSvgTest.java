@@ -13,62 +13,63 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.auraframework.http.resource;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.SVGDef;
+import org.auraframework.service.DefinitionService;
+import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
-import org.auraframework.system.AuraContext.Format;
-import org.auraframework.test.util.DummyHttpServletResponse;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
-import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+/**
+ * Simple (non-integration) test case for {@link ResourceSvg}.
+ */
 public class ResourceSvgTest extends UnitTestCase {
-
-	/**
-     * Unit Test, Name is API!.
-     */
-    @Test
-    public void testName() {
-        assertEquals("resources.svg", new ResourceSvg().getName());
-    }
-
     /**
-     * Unit Test, Format is API!.
+     * Without an app to tag by, the svg is still tagged by its own hash.
      */
     @Test
-    public void testFormat() {
-        assertEquals(Format.SVG, new ResourceSvg().getFormat());
-    }
-    
-    /**
-     * Verify that we set the correct contentType to response
-     */
-    @Test
-    public void testSetContentType() {
-    	ResourceSvg resourceSvg = new ResourceSvg();
-    	ServletUtilAdapter servletUtilAdapter = Mockito.mock(ServletUtilAdapter.class);
-    	resourceSvg.setServletUtilAdapter(servletUtilAdapter);
-    	Mockito.when(servletUtilAdapter.getContentType(AuraContext.Format.SVG))
-        .thenReturn("image/svg+xml");
-    	
-    	DummyHttpServletResponse response = new DummyHttpServletResponse() {
-            String contentType = "defaultType";
+    public void testETagWithoutApp() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        DefinitionService definitionService = mock(DefinitionService.class);
+        ResourceSvg resourceSvg = new ResourceSvg();
+        resourceSvg.setServletUtilAdapter(servletUtilAdapter);
+        resourceSvg.setServerService(serverService);
+        resourceSvg.setDefinitionService(definitionService);
+
+        @SuppressWarnings("unchecked")
+        DefDescriptor<SVGDef> svg = mock(DefDescriptor.class);
+        SVGDef def = mock(SVGDef.class);
+        when(definitionService.getDefDescriptor("markup://ns:svg", SVGDef.class)).thenReturn(svg);
+        when(svg.getDef()).thenReturn(def);
+        when(def.getOwnHash()).thenReturn("ownHash");
+        when(servletUtilAdapter.checkNotModified(any(HttpServletRequest.class), any(HttpServletResponse.class),
+                any(String.class))).thenReturn(true);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("aura.lookup", "markup://ns:svg");
+        request.addHeader("Referer", "http://localhost/");
 
-            @Override
-            public String getContentType() {
-                return this.contentType;
-            }
+        resourceSvg.write(request, new MockHttpServletResponse(), mock(AuraContext.class));
 
-            @Override
-            public void setContentType(String contentType) {
-                this.contentType = contentType;
-            }
-        };
-    	
-    	resourceSvg.setContentType(response);
-    	
-    	assertEquals("image/svg+xml", response.getContentType());
+        verify(servletUtilAdapter, times(1)).checkNotModified(any(HttpServletRequest.class),
+                any(HttpServletResponse.class), eq("\"ownHash\""));
+        verifyNoMoreInteractions(serverService);
     }
 }